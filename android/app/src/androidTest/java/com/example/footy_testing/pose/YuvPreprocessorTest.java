@@ -0,0 +1,153 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei vergleicht YuvPreprocessor mit dem früheren Bitmap-Pfad von MoveNet (YUV zu
+ * Bitmap, Rotation per Matrix, Bitmap.createScaledBitmap ohne Filter). Läuft als
+ * instrumentierter Test auf dem Gerät, da der Referenzpfad echte Bitmaps braucht:
+ * ./gradlew connectedAndroidTest
+ */
+
+package com.example.footy_testing.pose;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+@RunWith(AndroidJUnit4.class)
+public class YuvPreprocessorTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int MODEL_SIZE = 192;
+
+    /**
+     * Bei 0, 90 und 270 Grad hat der alte Pfad verlustfrei gedreht und ohne Filter skaliert,
+     * dort muss die Vorverarbeitung bitgleich sein. 180 Grad wurde mit Filter gedreht und
+     * skaliert und ist daher nicht vergleichbar.
+     */
+    @Test
+    public void matchesLegacyBitmapPath() {
+        for (int rotation : new int[] { 0, 90, 270 }) {
+            CameraFrame frame = createFrame(WIDTH, rotation, 1);
+
+            int[] expected = legacyPixels(frame, MODEL_SIZE);
+            byte[] actual = preprocess(new YuvPreprocessor(), frame, false);
+
+            int mismatches = 0;
+            for (int i = 0; i < expected.length; i++) {
+                for (int c = 0; c < 3; c++) {
+                    int expectedValue = (expected[i] >> (16 - 8 * c)) & 0xFF;
+                    if (expectedValue != (actual[i * 3 + c] & 0xFF)) {
+                        mismatches++;
+                    }
+                }
+            }
+            assertEquals("Abweichende Kanäle bei " + rotation + " Grad", 0, mismatches);
+        }
+    }
+
+    /**
+     * Zeilen der Y-Plane mit Auffüllung (bytesPerRow > width) liefern dasselbe Ergebnis wie
+     * dicht gepackte Zeilen
+     */
+    @Test
+    public void honorsYRowStride() {
+        for (int rotation : new int[] { 0, 90, 180, 270 }) {
+            for (boolean mirror : new boolean[] { false, true }) {
+                CameraFrame packed = createFrame(WIDTH, rotation, 2);
+                CameraFrame padded = createFrame(WIDTH + 64, rotation, 2);
+
+                assertArrayEquals("Drehung " + rotation + ", Spiegelung " + mirror,
+                        preprocess(new YuvPreprocessor(), packed, mirror),
+                        preprocess(new YuvPreprocessor(), padded, mirror));
+            }
+        }
+    }
+
+    /**
+     * Gleiches Ergebnis mit mehreren Zeilen-Workern
+     */
+    @Test
+    public void stripesMatchSingleThread() {
+        CameraFrame frame = createFrame(WIDTH, 90, 3);
+
+        YuvPreprocessor striped = new YuvPreprocessor();
+        striped.setThreadCount(4);
+        try {
+            assertArrayEquals(preprocess(new YuvPreprocessor(), frame, true), preprocess(striped, frame, true));
+        } finally {
+            striped.shutdown();
+        }
+    }
+
+    private static byte[] preprocess(YuvPreprocessor preprocessor, CameraFrame frame, boolean mirror) {
+        ByteBuffer out = ByteBuffer.allocateDirect(MODEL_SIZE * MODEL_SIZE * 3);
+        preprocessor.preprocess(frame, MODEL_SIZE, MODEL_SIZE, mirror, false, out);
+
+        byte[] bytes = new byte[out.capacity()];
+        out.rewind();
+        out.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Erzeugt ein zufälliges Bild im Format von Android (U/V verschachtelt, Pixel-Stride 2).
+     * Mit gleichem seed sind die Pixel unabhängig von yRowStride gleich, nur die Auffüllung
+     * am Zeilenende unterscheidet sich.
+     */
+    private static CameraFrame createFrame(int yRowStride, int rotation, long seed) {
+        Random random = new Random(seed);
+        byte[] yPlane = new byte[yRowStride * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                yPlane[y * yRowStride + x] = (byte) random.nextInt(256);
+            }
+            for (int x = WIDTH; x < yRowStride; x++) {
+                yPlane[y * yRowStride + x] = (byte) 0xFF;
+            }
+        }
+
+        int uvRowStride = WIDTH;
+        byte[] uPlane = new byte[uvRowStride * HEIGHT / 2 - 1];
+        byte[] vPlane = new byte[uPlane.length];
+        random.nextBytes(uPlane);
+        random.nextBytes(vPlane);
+
+        return new CameraFrame(yPlane, uPlane, vPlane, WIDTH, HEIGHT, yRowStride, uvRowStride, 2, rotation, false);
+    }
+
+    /**
+     * Früherer Pfad aus MoveNetHelper.detectPose: Bitmap in Sensor-Ausrichtung, verlustfreie
+     * Drehung, danach Skalierung ohne Filter
+     */
+    private static int[] legacyPixels(CameraFrame frame, int size) {
+        Bitmap bitmap = ImageUtils.toBitmap(frame);
+
+        if (frame.rotation != 0) {
+            Matrix matrix = new Matrix();
+            matrix.postRotate(frame.rotation);
+            Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            bitmap.recycle();
+            bitmap = rotated;
+        }
+
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap, size, size, false);
+        int[] pixels = new int[size * size];
+        scaled.getPixels(pixels, 0, size, 0, 0, size, size);
+
+        if (scaled != bitmap) {
+            scaled.recycle();
+        }
+        bitmap.recycle();
+        return pixels;
+    }
+}
@@ -1,8 +1,8 @@
 /**
  * Autor: Furkan Kilic
- * 
+ *
  * Die Hauptaktivität der Android-App, die das Flutter-Framework integriert.
- * Hier werden die nativen Erkennung-Services (MoveNetHelper und BallDetectionHelper) 
+ * Hier werden die nativen Erkennung-Services (MoveNetHelper und BallDetectionHelper)
  * mit dem Flutter-Framework verbunden.
  */
 
@@ -12,27 +12,53 @@ import androidx.annotation.NonNull;
 import io.flutter.embedding.android.FlutterActivity;
 import io.flutter.embedding.engine.FlutterEngine;
 import android.util.Log;
+import com.example.footy_testing.pose.InterpreterRegistry;
 import com.example.footy_testing.pose.MoveNetHelper;
 import com.example.footy_testing.pose.BallDetectionHelper;
 
 public class MainActivity extends FlutterActivity {
     private static final String TAG = "MainActivity";
 
+    private MoveNetHelper moveNetHelper;
+    private BallDetectionHelper ballDetectionHelper;
+
     @Override
     public void configureFlutterEngine(@NonNull FlutterEngine flutterEngine) {
         super.configureFlutterEngine(flutterEngine);
 
         try {
 
-            MoveNetHelper.registerWith(flutterEngine, getContext());
-            Log.d(TAG, "MoveNetHelper registriert");
-
-            BallDetectionHelper.registerWith(flutterEngine, getContext());
+            ballDetectionHelper = BallDetectionHelper.registerWith(flutterEngine, getContext());
             Log.d(TAG, "BallDetectionHelper registriert");
 
+            moveNetHelper = MoveNetHelper.registerWith(flutterEngine, getContext(), ballDetectionHelper);
+            Log.d(TAG, "MoveNetHelper registriert");
+
         } catch (Exception e) {
             Log.e(TAG, "Fehler beim Registrieren der MethodChannels", e);
             e.printStackTrace();
         }
     }
+
+    @Override
+    public void cleanUpFlutterEngine(@NonNull FlutterEngine flutterEngine) {
+        // Interpreter bleiben in der InterpreterRegistry warm für die nächste Engine
+        if (moveNetHelper != null) {
+            moveNetHelper.detach();
+            moveNetHelper = null;
+        }
+        if (ballDetectionHelper != null) {
+            ballDetectionHelper.detach();
+            ballDetectionHelper = null;
+        }
+        Log.d(TAG, "Helfer von der FlutterEngine gelöst");
+
+        super.cleanUpFlutterEngine(flutterEngine);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        InterpreterRegistry.getInstance(getContext()).trimMemory(level);
+    }
 }
@@ -0,0 +1,139 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei enthält die Messschleife der Backend-Auswahl ohne Android- und TFLite-Bezug:
+ * jeden Kandidaten anlegen, einige Aufwärm-Durchläufe, danach die mittlere Zeit der gemessenen
+ * Durchläufe, der schnellste gewinnt. BackendSelector misst damit die Interpreter (CPU mit 1, 2
+ * und 4 Threads, NNAPI, GPU) und speichert die Wahl; ohne Gerät läuft dieselbe Schleife in den
+ * JMH-Benchmarks mit einer CPU-Arbeit statt eines Interpreters.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class BackendProbe {
+    /** Thread-Anzahlen der CPU-Kandidaten */
+    public static final int[] CPU_THREAD_COUNTS = { 1, 2, 4 };
+    public static final int WARMUP_RUNS = 2;
+    public static final int TIMED_RUNS = 3;
+
+    /**
+     * Legt die Instanz eines Kandidaten an, führt sie aus und gibt sie wieder frei
+     *
+     * @param <K> Kandidat, z.B. ein Backend
+     * @param <T> Instanz des Kandidaten, z.B. ein Interpreter mit seinen Puffern
+     */
+    public interface Target<K, T> {
+        /**
+         * @return Die Instanz oder null, wenn der Kandidat nicht verfügbar ist
+         */
+        T open(K candidate);
+
+        /** Ein gemessener Durchlauf, z.B. eine Inferenz */
+        void run(T instance) throws Exception;
+
+        void close(T instance);
+    }
+
+    /**
+     * Schnellster Kandidat mit seiner Instanz. Die Instanz gehört danach dem Aufrufer.
+     */
+    public static final class Result<K, T> {
+        public final K candidate;
+        public final T instance;
+        public final double timeMs;
+
+        /** Mittlere Zeit je gemessenem Kandidaten in ms, in der Reihenfolge der Messung */
+        public final Map<String, Double> timingsMs;
+
+        /** Fehlermeldung je Kandidat, der beim Messen fehlschlug */
+        public final Map<String, String> failures;
+
+        Result(K candidate, T instance, double timeMs, Map<String, Double> timingsMs, Map<String, String> failures) {
+            this.candidate = candidate;
+            this.instance = instance;
+            this.timeMs = timeMs;
+            this.timingsMs = Collections.unmodifiableMap(timingsMs);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+    }
+
+    private final int warmupRuns;
+    private final int timedRuns;
+
+    public BackendProbe() {
+        this(WARMUP_RUNS, TIMED_RUNS);
+    }
+
+    public BackendProbe(int warmupRuns, int timedRuns) {
+        this.warmupRuns = Math.max(0, warmupRuns);
+        this.timedRuns = Math.max(1, timedRuns);
+    }
+
+    /**
+     * Misst alle Kandidaten nacheinander. Die Instanzen der langsameren Kandidaten werden
+     * geschlossen, sobald ein schnellerer gefunden ist.
+     *
+     * @param candidates Kandidaten, der Schlüssel in timingsMs ist toString()
+     * @return Der schnellste Kandidat oder null, wenn keiner gemessen werden konnte
+     */
+    public <K, T> Result<K, T> probe(List<K> candidates, Target<K, T> target) {
+        Map<String, Double> timings = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        K bestCandidate = null;
+        T best = null;
+        double bestTime = Double.MAX_VALUE;
+
+        for (K candidate : candidates) {
+            T instance = target.open(candidate);
+            if (instance == null) {
+                continue;
+            }
+
+            double time;
+            try {
+                time = measure(target, instance);
+            } catch (Exception e) {
+                failures.put(candidate.toString(), String.valueOf(e.getMessage()));
+                target.close(instance);
+                continue;
+            }
+            timings.put(candidate.toString(), time);
+
+            if (time < bestTime) {
+                if (best != null) {
+                    target.close(best);
+                }
+                bestCandidate = candidate;
+                best = instance;
+                bestTime = time;
+            } else {
+                target.close(instance);
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+        return new Result<>(bestCandidate, best, bestTime, timings, failures);
+    }
+
+    /**
+     * @return Mittlere Zeit eines Durchlaufs in ms nach den Aufwärm-Durchläufen
+     */
+    public <K, T> double measure(Target<K, T> target, T instance) throws Exception {
+        for (int i = 0; i < warmupRuns; i++) {
+            target.run(instance);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < timedRuns; i++) {
+            target.run(instance);
+        }
+        return (System.nanoTime() - start) / 1e6 / timedRuns;
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei wählt beim Laden eines Modells das schnellste Backend aus. Statt einer festen
+ * try/catch-Kette werden CPU (XNNPACK mit 1, 2 und 4 Threads), NNAPI und, falls unterstützt,
+ * der GPU-Delegate mit einigen Aufwärm-Inferenzen gemessen. Die Wahl wird pro Gerät und
+ * Modell-Hash in den SharedPreferences gespeichert, spätere Starts überspringen die Messung.
+ * Die Messschleife selbst liegt in BackendProbe und läuft auch ohne Android.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.gpu.CompatibilityList;
+import org.tensorflow.lite.gpu.GpuDelegate;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public final class BackendSelector {
+    private static final String TAG = "BackendSelector";
+    private static final String PREFERENCES = "inference_backends";
+
+    /** NNAPI ist erst ab Android 8.1 (API 27) brauchbar */
+    private static final int MIN_NNAPI_SDK = 27;
+
+    /**
+     * Ein Backend-Kandidat, als Schlüssel gespeichert ("cpu1", "cpu2", "cpu4", "nnapi", "gpu")
+     */
+    public static final class Backend {
+        public static final String CPU = "cpu";
+        public static final String NNAPI = "nnapi";
+        public static final String GPU = "gpu";
+
+        public final String type;
+        public final int numThreads;
+
+        Backend(String type, int numThreads) {
+            this.type = type;
+            this.numThreads = numThreads;
+        }
+
+        String key() {
+            return CPU.equals(type) ? CPU + numThreads : type;
+        }
+
+        static Backend fromKey(String key) {
+            if (key == null) {
+                return null;
+            }
+            if (key.startsWith(CPU)) {
+                try {
+                    return new Backend(CPU, Integer.parseInt(key.substring(CPU.length())));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            if (NNAPI.equals(key) || GPU.equals(key)) {
+                return new Backend(key, 1);
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return key();
+        }
+    }
+
+    /**
+     * Ergebnis der Auswahl. Interpreter und Delegate gehören danach dem Aufrufer und müssen
+     * von ihm geschlossen werden.
+     */
+    public static final class Selection {
+        public final Interpreter interpreter;
+        public final GpuDelegate gpuDelegate;
+        public final Backend backend;
+
+        /** true, wenn gemessen wurde, false bei gespeicherter Wahl */
+        public final boolean probed;
+
+        /** Mittlere Inferenzzeit je gemessenem Backend in ms, leer bei gespeicherter Wahl */
+        public final Map<String, Double> timingsMs;
+
+        Selection(Interpreter interpreter, GpuDelegate gpuDelegate, Backend backend, boolean probed,
+                Map<String, Double> timingsMs) {
+            this.interpreter = interpreter;
+            this.gpuDelegate = gpuDelegate;
+            this.backend = backend;
+            this.probed = probed;
+            this.timingsMs = timingsMs;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("backend", backend.key());
+            map.put("probed", probed);
+            map.put("timingsMs", new HashMap<>(timingsMs));
+            return map;
+        }
+    }
+
+    /**
+     * Interpreter eines Kandidaten mit den Puffern für die Messung
+     */
+    private static final class CandidateInterpreter {
+        final Selection selection;
+        final Object[] inputs;
+        final Map<Integer, Object> outputs = new HashMap<>();
+
+        CandidateInterpreter(Selection selection) {
+            this.selection = selection;
+            Interpreter interpreter = selection.interpreter;
+
+            inputs = new Object[interpreter.getInputTensorCount()];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = TensorSpec.of(interpreter.getInputTensor(i)).allocateBuffer();
+            }
+            for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+                outputs.put(i, TensorSpec.of(interpreter.getOutputTensor(i)).allocateBuffer());
+            }
+        }
+    }
+
+    private final SharedPreferences preferences;
+    private final BackendProbe probe = new BackendProbe();
+
+    public BackendSelector(Context context) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Erzeugt einen Interpreter auf dem schnellsten Backend
+     *
+     * @param modelName Name des Modells für Log und Speicherschlüssel
+     * @param model     Modelldatei (wird nicht verändert)
+     * @param allowGpu  GPU-Delegate als Kandidat zulassen
+     * @param reprobe   Gespeicherte Wahl ignorieren und neu messen
+     * @throws IllegalStateException wenn kein Backend das Modell laden kann
+     */
+    public Selection select(String modelName, ByteBuffer model, boolean allowGpu, boolean reprobe) {
+        String preferenceKey = preferenceKey(modelName, model);
+
+        if (!reprobe) {
+            Backend stored = Backend.fromKey(preferences.getString(preferenceKey, null));
+            if (stored != null && (allowGpu || !Backend.GPU.equals(stored.type))) {
+                Selection selection = create(model, stored, false, new HashMap<>());
+                if (selection != null) {
+                    Log.d(TAG, modelName + ": gespeichertes Backend " + stored);
+                    return selection;
+                }
+                Log.w(TAG, modelName + ": gespeichertes Backend " + stored + " nicht mehr verfügbar, messe neu");
+            }
+        }
+
+        Map<String, Double> timings = new LinkedHashMap<>();
+        BackendProbe.Result<Backend, CandidateInterpreter> result = probe.probe(candidates(allowGpu),
+                new BackendProbe.Target<Backend, CandidateInterpreter>() {
+                    @Override
+                    public CandidateInterpreter open(Backend backend) {
+                        Selection selection = create(model, backend, true, timings);
+                        if (selection == null) {
+                            return null;
+                        }
+                        try {
+                            return new CandidateInterpreter(selection);
+                        } catch (RuntimeException e) {
+                            Log.w(TAG, modelName + ": " + backend + " fehlgeschlagen: " + e.getMessage());
+                            BackendSelector.close(selection);
+                            return null;
+                        }
+                    }
+
+                    @Override
+                    public void run(CandidateInterpreter candidate) {
+                        BackendSelector.run(candidate.selection.interpreter, candidate.inputs, candidate.outputs);
+                    }
+
+                    @Override
+                    public void close(CandidateInterpreter candidate) {
+                        BackendSelector.close(candidate.selection);
+                    }
+                });
+
+        if (result == null) {
+            throw new IllegalStateException("Kein Backend kann " + modelName + " laden");
+        }
+
+        for (Map.Entry<String, String> failure : result.failures.entrySet()) {
+            Log.w(TAG, modelName + ": " + failure.getKey() + " fehlgeschlagen: " + failure.getValue());
+        }
+        for (Map.Entry<String, Double> timing : result.timingsMs.entrySet()) {
+            Log.d(TAG, modelName + ": " + timing.getKey() + " "
+                    + String.format(Locale.ROOT, "%.2f", timing.getValue()) + "ms");
+        }
+        // Die Selection hält dieselbe Map, getBackendInfo liefert so alle Messwerte
+        timings.putAll(result.timingsMs);
+
+        Selection best = result.instance.selection;
+        preferences.edit().putString(preferenceKey, best.backend.key()).apply();
+        Log.d(TAG, modelName + ": gewählt " + best.backend + " aus " + timings);
+        return best;
+    }
+
+    private static List<Backend> candidates(boolean allowGpu) {
+        List<Backend> candidates = new ArrayList<>();
+        for (int threads : BackendProbe.CPU_THREAD_COUNTS) {
+            candidates.add(new Backend(Backend.CPU, threads));
+        }
+        if (Build.VERSION.SDK_INT >= MIN_NNAPI_SDK) {
+            candidates.add(new Backend(Backend.NNAPI, 1));
+        }
+        if (allowGpu && isGpuSupported()) {
+            candidates.add(new Backend(Backend.GPU, 1));
+        }
+        return candidates;
+    }
+
+    private static boolean isGpuSupported() {
+        try {
+            CompatibilityList compatibilityList = new CompatibilityList();
+            boolean supported = compatibilityList.isDelegateSupportedOnThisDevice();
+            compatibilityList.close();
+            return supported;
+        } catch (Throwable t) {
+            Log.w(TAG, "GPU-Kompatibilität nicht prüfbar: " + t.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return Der Interpreter auf dem Backend oder null, wenn es nicht verfügbar ist
+     */
+    private static Selection create(ByteBuffer model, Backend backend, boolean probed, Map<String, Double> timings) {
+        GpuDelegate gpuDelegate = null;
+        try {
+            Interpreter.Options options = new Interpreter.Options();
+            switch (backend.type) {
+                case Backend.GPU:
+                    gpuDelegate = new GpuDelegate();
+                    options.addDelegate(gpuDelegate);
+                    break;
+                case Backend.NNAPI:
+                    options.setUseNNAPI(true);
+                    break;
+                default:
+                    options.setUseXNNPACK(true);
+                    options.setNumThreads(backend.numThreads);
+                    break;
+            }
+
+            Interpreter interpreter = new Interpreter(model.duplicate(), options);
+            return new Selection(interpreter, gpuDelegate, backend, probed, timings);
+        } catch (Throwable t) {
+            Log.w(TAG, "Backend " + backend + " nicht verfügbar: " + t.getMessage());
+            if (gpuDelegate != null) {
+                gpuDelegate.close();
+            }
+            return null;
+        }
+    }
+
+    private static void run(Interpreter interpreter, Object[] inputs, Map<Integer, Object> outputs) {
+        for (Object input : inputs) {
+            ((ByteBuffer) input).rewind();
+        }
+        for (Object output : outputs.values()) {
+            ((ByteBuffer) output).rewind();
+        }
+        interpreter.runForMultipleInputsOutputs(inputs, outputs);
+    }
+
+    private static void close(Selection selection) {
+        if (selection == null) {
+            return;
+        }
+        selection.interpreter.close();
+        if (selection.gpuDelegate != null) {
+            selection.gpuDelegate.close();
+        }
+    }
+
+    /**
+     * Schlüssel aus Gerät, Android-Version und CRC32 der Modelldatei, damit ein neues Modell
+     * oder ein Systemupdate neu gemessen wird
+     */
+    private static String preferenceKey(String modelName, ByteBuffer model) {
+        CRC32 crc = new CRC32();
+        ByteBuffer data = model.duplicate();
+        data.rewind();
+        byte[] chunk = new byte[64 * 1024];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+
+        return Build.MANUFACTURER + "/" + Build.MODEL + "/" + Build.VERSION.SDK_INT + "/" + modelName + "/"
+                + Long.toHexString(crc.getValue());
+    }
+}
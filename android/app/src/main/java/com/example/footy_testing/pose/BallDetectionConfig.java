@@ -0,0 +1,62 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei beschreibt die Einstellungen eines Ballerkennungs-Aufrufs (Konfidenz- und
+ * IoU-Schwelle, Inferenz-Schrittweite, Ziel-Laufzeit und Bewegungserkennung), wie sie über den
+ * MethodChannel von detectBall und detectAll übergeben werden.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.Map;
+
+public final class BallDetectionConfig {
+    public static final float DEFAULT_CONF_THRESHOLD = 0.10f;
+    public static final float DEFAULT_IOU_THRESHOLD = 0.45f;
+
+    public final float confThreshold;
+    public final float iouThreshold;
+
+    /** YOLO läuft nur auf jedem k-ten Bild, dazwischen wird die Ballbox vorhergesagt */
+    public final int inferenceStride;
+
+    /** Ziel-Laufzeit pro Bild für den LatencyGovernor, 0 = feste Eingabegröße und Schrittweite */
+    public final float targetLatencyMs;
+
+    /** Ruhige Bilder ohne Inferenz überspringen und die Ballsuche in der Bewegungs-Box beginnen */
+    public final boolean motionGating;
+
+    public BallDetectionConfig(float confThreshold, float iouThreshold, int inferenceStride) {
+        this(confThreshold, iouThreshold, inferenceStride, 0f, false);
+    }
+
+    public BallDetectionConfig(float confThreshold, float iouThreshold, int inferenceStride,
+            float targetLatencyMs, boolean motionGating) {
+        this.confThreshold = confThreshold;
+        this.iouThreshold = iouThreshold;
+        this.inferenceStride = Math.max(1, inferenceStride);
+        this.targetLatencyMs = Math.max(0f, targetLatencyMs);
+        this.motionGating = motionGating;
+    }
+
+    /**
+     * Liest die Einstellungen aus den Argumenten eines MethodChannel-Aufrufs
+     *
+     * @param args Argumente von detectBall oder detectAll
+     * @return Die Einstellungen, fehlende Werte mit Standardwerten
+     */
+    public static BallDetectionConfig fromArguments(Map<String, Object> args) {
+        Object conf = args.get("confThreshold");
+        Object iou = args.get("iouThreshold");
+        Object stride = args.get("inferenceStride");
+        Object target = args.get("targetLatencyMs");
+        Object motion = args.get("motionGating");
+
+        return new BallDetectionConfig(
+                conf instanceof Number ? ((Number) conf).floatValue() : DEFAULT_CONF_THRESHOLD,
+                iou instanceof Number ? ((Number) iou).floatValue() : DEFAULT_IOU_THRESHOLD,
+                stride instanceof Number ? ((Number) stride).intValue() : 1,
+                target instanceof Number ? ((Number) target).floatValue() : 0f,
+                Boolean.TRUE.equals(motion));
+    }
+}
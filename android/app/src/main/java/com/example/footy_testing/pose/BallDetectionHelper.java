@@ -9,22 +9,16 @@
 package com.example.footy_testing.pose;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.Rect;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.gpu.GpuDelegate;
+import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.support.common.FileUtil;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.*;
 
 import io.flutter.embedding.engine.FlutterEngine;
@@ -37,24 +31,101 @@ public class BallDetectionHelper implements MethodChannel.MethodCallHandler {
 
     private static final int INPUT_SIZE = 640;
 
+    private static final int MAX_CANDIDATES = 100;
+    private static final int MAX_DETECTIONS = 5;
+
+    // Tracking-Modus: Ausschnitt um den Ball mit kleinerer Eingabegröße
+    private static final int TRACKING_INPUT_SIZE = 320;
+    private static final float TRACKING_ACQUIRE_CONFIDENCE = 0.40f;
+    private static final int TRACKING_MAX_MISSES = 5;
+    private static final float TRACKING_CROP_SCALE = 6.0f;
+
+    // Vorhersage zwischen zwei Inferenzen (inferenceStride > 1)
+    private static final double MAX_PREDICTION_SECONDS = 0.5;
+
+    // Bewegungserkennung (motionGating): spätestens nach so vielen ruhigen Bildern wieder Inferenz
+    private static final int MOTION_MAX_IDLE_FRAMES = 15;
+    private static final float MOTION_CROP_MARGIN = 0.25f;
+    /** Größere Bewegungs-Boxen lohnen keinen Ausschnitt, dann wird das ganze Bild durchsucht */
+    private static final float MOTION_CROP_MAX_FRACTION = 0.75f;
+    /** Nach einem Fehlschlag in der Bewegungs-Box so viele Suchen im ganzen Bild ohne Ball abwarten */
+    private static final int MOTION_CROP_RETRY_MISSES = 8;
+    /** ... oder bis sich die Mitte der Bewegungs-Box so weit (normiert) verschoben hat */
+    private static final float MOTION_CROP_RETRY_DISTANCE = 0.1f;
+
     private final Context context;
-    private Interpreter yoloInterpreter;
-    private GpuDelegate gpuDelegate;
     private List<String> labels;
     private int soccerBallClassId = -1;
 
-    private long frameCount = 0;
-    private long totalInferenceTime = 0;
-    private double movingAvgInferenceTime = 0;
-
-    public static void registerWith(FlutterEngine flutterEngine, Context context) {
+    private final YuvPreprocessor preprocessor = new YuvPreprocessor();
+    private final InferenceExecutor inferenceExecutor = new InferenceExecutor("BallInference");
+    private final YoloDecoder decoder = new YoloDecoder(MAX_CANDIDATES);
+    private final InterpreterRegistry interpreterRegistry;
+
+    /** Lädt im Hintergrund und hält Status, Zeiten und Backend für getModelStatus */
+    private final ModelLoader modelLoader = new ModelLoader("YOLOv8");
+
+    private final RoiTracker roiTracker = new RoiTracker(TRACKING_ACQUIRE_CONFIDENCE, TRACKING_MAX_MISSES,
+            TRACKING_CROP_SCALE);
+    private final int[] crop = new int[4];
+    private volatile FrameRecorder frameRecorder;
+    private final BallTracker ballTracker = new BallTracker(MAX_PREDICTION_SECONDS);
+    private final float[] predictedBox = new float[4];
+    private int framesSinceInference = 0;
+    private boolean lastInferenceFoundBall = false;
+
+    private final MotionDetector motionDetector = new MotionDetector();
+    /** Ergebnis der letzten Inferenz, wird auf ruhigen Bildern übernommen */
+    private List<Map<String, Object>> lastBallDetections;
+    private int idleFrames = 0;
+    private boolean lastFrameIdle = false;
+    /** Die nächste Suche ohne Tracking beginnt in der Bewegungs-Box */
+    private boolean motionCropPending = false;
+    /** Verbleibende Suchen im ganzen Bild, bevor die Bewegungs-Box wieder versucht wird */
+    private int motionCropBackoff = 0;
+    /** Mitte der Bewegungs-Box beim letzten Fehlschlag */
+    private float missedMotionX;
+    private float missedMotionY;
+
+    /** Batch-Modus der Offline-Analyse: Bilder pro Inferenz, 0 wenn nicht aktiv */
+    private int batchSize = 0;
+    private int batchCount = 0;
+    private int[] batchIndices;
+    private long[] batchTimestamps;
+    private boolean roiTrackingEnabled = true;
+    private int fullInputSize = INPUT_SIZE;
+
+    /** Modell und Backend aus loadModels, für weitere Interpreter anderer Eingabegrößen */
+    private String modelFile;
+    private String labelsFile;
+    private boolean useGpu;
+    /** Eigene Instanz für die Auswertung einer Aufnahme, siehe createOfflineCopy */
+    private boolean offlineCopy = false;
+    /** Interpreter in voller Eingabegröße, so wie das Modell geladen wurde */
+    private SizedInterpreter fullInterpreter;
+    /** Ein Interpreter je Eingabegröße, ein Wechsel der Größe tauscht nur die Instanz */
+    private final Map<Integer, SizedInterpreter> sizedInterpreters = new HashMap<>();
+    /** Interpreter mit Batch-Dimension für den Batch-Modus, getrennt vom Live-Pfad */
+    private SizedInterpreter batchInterpreter;
+    /** false, nachdem eine Eingabegröße nicht angelegt werden konnte (z.B. mit GPU-Delegate) */
+    private boolean resizeSupported = true;
+
+    /** Laufzeiten je Verarbeitungsschritt, abrufbar über getMetrics */
+    private final PipelineMetrics metrics = new PipelineMetrics();
+
+    /** Passt Eingabegröße und Schrittweiten an die Ziel-Laufzeit (targetLatencyMs) an */
+    private final LatencyGovernor governor = new LatencyGovernor();
+
+    public static BallDetectionHelper registerWith(FlutterEngine flutterEngine, Context context) {
         MethodChannel channel = new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL);
         BallDetectionHelper helper = new BallDetectionHelper(context);
         channel.setMethodCallHandler(helper);
+        return helper;
     }
 
     public BallDetectionHelper(Context context) {
         this.context = context;
+        this.interpreterRegistry = InterpreterRegistry.getInstance(context);
     }
 
     @Override
@@ -66,6 +137,10 @@ public class BallDetectionHelper implements MethodChannel.MethodCallHandler {
                     String modelPath = ((String) args.get("modelPath"));
                     String labelsPath = ((String) args.get("labelsPath"));
                     boolean useGpu = args.containsKey("useGpu") ? (boolean) args.get("useGpu") : false;
+                    roiTrackingEnabled = args.containsKey("roiTracking") ? (boolean) args.get("roiTracking") : true;
+                    preprocessor.setThreadCount(args.get("preprocessThreads") instanceof Number
+                            ? ((Number) args.get("preprocessThreads")).intValue()
+                            : YuvPreprocessor.defaultThreadCount());
 
                     if (modelPath.startsWith("assets/"))
                         modelPath = modelPath.substring(7);
@@ -75,97 +150,13 @@ public class BallDetectionHelper implements MethodChannel.MethodCallHandler {
                     Log.d(TAG, "Lade YOLOv8-Modell: " + modelPath);
                     Log.d(TAG, "Lade Labels: " + labelsPath);
 
-                    Interpreter.Options options = new Interpreter.Options();
-                    options.setNumThreads(4);
-
-                    if (useGpu) {
-                        try {
-                            gpuDelegate = new GpuDelegate();
-                            options.addDelegate(gpuDelegate);
-
-                            options.setUseNNAPI(false);
-                            Log.d(TAG, "GPU-Delegate für YOLOv8 aktiviert");
-                        } catch (Exception e) {
-                            Log.w(TAG, "GPU-Delegate für YOLOv8 nicht verfügbar: " + e.getMessage());
-
-                            try {
-                                options.setUseNNAPI(true);
-                                Log.d(TAG, "Fallback auf NNAPI für YOLOv8");
-                            } catch (Exception nnError) {
-                                Log.w(TAG, "NNAPI auch nicht verfügbar: " + nnError.getMessage());
-                            }
-                        }
-                    } else {
-                        try {
-                            options.setUseNNAPI(true);
-                            Log.d(TAG, "NNAPI für YOLOv8 aktiviert");
-                        } catch (Exception e) {
-                            Log.w(TAG, "NNAPI konnte nicht aktiviert werden: " + e.getMessage());
-                        }
-                    }
-
-                    Log.d(TAG, "Verarbeite YOLOv8-Inferenz mit optimierter Konfiguration");
-
-                    try {
-
-                        yoloInterpreter = new Interpreter(FileUtil.loadMappedFile(context, modelPath), options);
-
-                        int[] inputShape = yoloInterpreter.getInputTensor(0).shape();
-                        int[] outputShape = yoloInterpreter.getOutputTensor(0).shape();
-
-                        String inputShapeStr = Arrays.toString(inputShape);
-                        String outputShapeStr = Arrays.toString(outputShape);
-
-                        Log.d(TAG, "Modell geladen - Eingabeform: " + inputShapeStr);
-                        Log.d(TAG, "Modell geladen - Ausgabeform: " + outputShapeStr);
-
-                        labels = FileUtil.loadLabels(context, labelsPath);
-                        Log.d(TAG, "Labels geladen: " + labels.size() + " Klassen");
-
-                        for (int i = 0; i < labels.size(); i++) {
-                            String label = labels.get(i).toLowerCase();
-                            if (label.contains("soccer") || label.contains("sports ball") || label.equals("ball")) {
-                                soccerBallClassId = i;
-                                Log.d(TAG, "Ball-Klasse gefunden: '" + labels.get(i) + "' mit Index " + i);
-                                break;
-                            }
-                        }
-
-                        if (soccerBallClassId == -1) {
-                            Log.w(TAG, "Keine Ball-Klasse in Labels gefunden!");
-                        }
-
-                        result.success(true);
-                    } catch (Exception e) {
-
-                        Log.e(TAG, "Fehler beim Laden des Modells mit ursprünglichen Optionen: " + e.getMessage());
+                    boolean reprobe = args.containsKey("reprobeBackend") ? (boolean) args.get("reprobeBackend") : false;
+                    String modelFile = modelPath;
+                    String labelsFile = labelsPath;
 
-                        options = new Interpreter.Options();
-                        options.setNumThreads(1);
-
-                        try {
-                            options.setUseNNAPI(true);
-                            Log.d(TAG, "NNAPI für Fallback aktiviert");
-                        } catch (Exception nnError) {
-                            Log.w(TAG, "NNAPI für Fallback nicht verfügbar");
-                        }
-
-                        Log.d(TAG, "Versuche mit minimalster Konfiguration");
-
-                        yoloInterpreter = new Interpreter(FileUtil.loadMappedFile(context, modelPath), options);
-
-                        labels = FileUtil.loadLabels(context, labelsPath);
-
-                        for (int i = 0; i < labels.size(); i++) {
-                            String label = labels.get(i).toLowerCase();
-                            if (label.contains("soccer") || label.contains("sports ball") || label.equals("ball")) {
-                                soccerBallClassId = i;
-                                break;
-                            }
-                        }
-
-                        result.success(true);
-                    }
+                    // Laden und Aufwärmen im Hintergrund, das MoveNet-Modell lädt parallel
+                    modelLoader.start(() -> loadModel(modelFile, labelsFile, useGpu, reprobe), this::warmUp,
+                            this::discardLoad, result);
                 } catch (Exception e) {
                     Log.e(TAG, "Fehler beim Laden des Modells", e);
                     e.printStackTrace();
@@ -175,343 +166,853 @@ public class BallDetectionHelper implements MethodChannel.MethodCallHandler {
 
             case "detectBall":
                 try {
+                    long decodeStart = System.nanoTime();
                     Map<String, Object> args = call.arguments();
-                    byte[] yPlane = (byte[]) args.get("imageBytes");
-                    byte[] uPlane = args.containsKey("uPlane") ? (byte[]) args.get("uPlane") : null;
-                    byte[] vPlane = args.containsKey("vPlane") ? (byte[]) args.get("vPlane") : null;
+                    CameraFrame frame = CameraFrame.fromArguments(args);
+                    BallDetectionConfig config = BallDetectionConfig.fromArguments(args);
+                    metrics.record(PipelineMetrics.STAGE_CHANNEL_DECODE, System.nanoTime() - decodeStart);
 
-                    int width = (int) args.get("width");
-                    int height = (int) args.get("height");
+                    FrameRecorder recorder = frameRecorder;
+                    if (recorder != null) {
+                        recorder.record(frame, frame.timestampNanos);
+                    }
+                    inferenceExecutor.submit(() -> processFrame(frame, config), result);
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler bei der Ball-Erkennung", e);
+                    e.printStackTrace();
+                    result.success(errorResult(e));
+                }
+                break;
 
-                    int uvRowStride = args.containsKey("uvRowStride") ? (int) args.get("uvRowStride") : width;
-                    int uvPixelStride = args.containsKey("uvPixelStride") ? (int) args.get("uvPixelStride") : 1;
+            case "getBackendInfo":
+                result.success(modelLoader.getBackendInfo());
+                break;
 
-                    int rotation = args.containsKey("rotation") ? (int) args.get("rotation") : 0;
-                    boolean isFrontCamera = args.containsKey("isFrontCamera") ? (boolean) args.get("isFrontCamera")
-                            : false;
+            case "getModelStatus":
+                result.success(modelLoader.toMap());
+                break;
 
-                    Log.d(TAG,
-                            "Ball-Erkennung, Bildgröße: " + width + "x" + height + ", Frontkamera: " + isFrontCamera);
+            case "getMetrics":
+                result.success(metrics.toMap(inferenceExecutor.getDroppedFrames()));
+                break;
 
-                    long startTime = System.currentTimeMillis();
+            case "resetMetrics":
+                metrics.reset();
+                result.success(true);
+                break;
 
-                    Bitmap bitmap;
-                    if (uPlane != null && vPlane != null) {
-                        bitmap = yuvPlanesToBitmap(yPlane, uPlane, vPlane, width, height, uvRowStride, uvPixelStride);
-                    } else {
-                        bitmap = yuvToBitmap(yPlane, width, height);
-                    }
+            case "dispose":
+                inferenceExecutor.shutdown();
+                dispose(false);
+                modelLoader.reset();
+                preprocessor.shutdown();
+                result.success(true);
+                break;
 
-                    if (bitmap == null) {
-                        Log.e(TAG, "Bitmap-Konvertierung fehlgeschlagen");
-                        result.error("IMAGE_CONVERSION_ERROR", "Bitmap-Konvertierung fehlgeschlagen", null);
-                        return;
-                    }
+            default:
+                result.notImplemented();
+                break;
+        }
+    }
 
-                    if (rotation != 0) {
-                        try {
+    /**
+     * Aufnahme der detectBall-Bilder, wird von MoveNetHelper gesetzt
+     */
+    void setFrameRecorder(FrameRecorder frameRecorder) {
+        this.frameRecorder = frameRecorder;
+    }
 
-                            Matrix rotationMatrix = new Matrix();
-                            rotationMatrix.postRotate(rotation);
+    /**
+     * Übergibt ein Bild an den Inferenz-Thread der Ballerkennung (Streaming-Modus)
+     *
+     * @param frame  Das Kamerabild
+     * @param config Schwellen und Inferenz-Schrittweite
+     * @param result Empfänger des Ergebnisses
+     */
+    void submitFrame(CameraFrame frame, BallDetectionConfig config, MethodChannel.Result result) {
+        inferenceExecutor.submit(() -> processFrame(frame, config), result);
+    }
 
-                            Bitmap rotatedBitmap = Bitmap.createBitmap(
-                                    bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
-                                    rotationMatrix, true);
+    /**
+     * Führt die Ball-Erkennung für ein Bild auf dem Inferenz-Thread aus
+     *
+     * @param frame  Das Kamerabild
+     * @param config Schwellen und Inferenz-Schrittweite
+     * @return Ergebnis-Map für Flutter
+     */
+    private Map<String, Object> processFrame(CameraFrame frame, BallDetectionConfig config) {
+        try {
+            long startTime = System.nanoTime();
 
-                            if (bitmap != rotatedBitmap) {
-                                bitmap.recycle();
-                            }
-                            bitmap = rotatedBitmap;
+            List<Map<String, Object>> detections = trackBall(frame, config);
 
-                            if (rotation == 90 || rotation == 270) {
+            long elapsed = System.nanoTime() - startTime;
+            governor.onFrame(elapsed);
+            long processingTime = elapsed / 1_000_000;
 
-                                Log.d(TAG, "Verarbeite Bild: " + bitmap.getWidth() + "x" + bitmap.getHeight()
-                                        + ", Frontkamera: " + isFrontCamera);
-                            }
-                        } catch (OutOfMemoryError e) {
-                            Log.e(TAG, "Speicherproblem bei der Bildrotation: " + e.getMessage());
+            Map<String, Object> resultMap = new HashMap<>();
+            resultMap.put("detections", detections);
+            resultMap.put("processingTimeMs", processingTime);
+            resultMap.put("droppedFrames", inferenceExecutor.getDroppedFrames());
+            resultMap.put("roiTracking", roiTracker.isTracking());
+            resultMap.put("predicted", framesSinceInference > 0 || lastFrameIdle);
+            resultMap.put("motionIdle", lastFrameIdle);
+            resultMap.put("operatingPoint", getOperatingPoint());
 
-                        }
-                    }
+            return resultMap;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Fehler bei der Ball-Erkennung", e);
+            e.printStackTrace();
+            return errorResult(e);
+        }
+    }
+
+    private static Map<String, Object> errorResult(Exception e) {
+        Map<String, Object> errorResult = new HashMap<>();
+        errorResult.put("error", e.getMessage());
+        errorResult.put("processingTimeMs", 0);
+        errorResult.put("detections", new ArrayList<>());
+        return errorResult;
+    }
 
-                    List<Map<String, Object>> detections = detectBall(bitmap, isFrontCamera);
+    /**
+     * @return true, sobald das YOLOv8-Modell geladen und aufgewärmt ist. Vorher läuft
+     *         detectAll nur mit Pose.
+     */
+    boolean isModelLoaded() {
+        if (offlineCopy) {
+            synchronized (this) {
+                return fullInterpreter != null;
+            }
+        }
+        return modelLoader.isReady();
+    }
 
-                    long processingTime = System.currentTimeMillis() - startTime;
+    /**
+     * Legt eine eigene Instanz mit demselben Modell und denselben Einstellungen an, für das
+     * Abspielen und die Analyse von Aufnahmen. Interpreter, Tracking, Bewegungserkennung,
+     * LatencyGovernor und Metriken sind getrennt vom Live-Pfad, die Interpreter kommen aus dem
+     * Pool der InterpreterRegistry. Nach der Auswertung mit detach freigeben.
+     */
+    BallDetectionHelper createOfflineCopy() throws IOException {
+        String copyModelFile;
+        String copyLabelsFile;
+        boolean copyUseGpu;
+        boolean copyRoiTracking;
+        synchronized (this) {
+            if (fullInterpreter == null) {
+                throw new IllegalStateException("YOLOv8-Modell nicht geladen");
+            }
+            copyModelFile = modelFile;
+            copyLabelsFile = labelsFile;
+            copyUseGpu = useGpu;
+            copyRoiTracking = roiTrackingEnabled;
+        }
 
-                    Map<String, Object> resultMap = new HashMap<>();
-                    resultMap.put("detections", detections);
-                    resultMap.put("processingTimeMs", processingTime);
+        BallDetectionHelper copy = new BallDetectionHelper(context);
+        copy.offlineCopy = true;
+        copy.roiTrackingEnabled = copyRoiTracking;
+        copy.preprocessor.setThreadCount(preprocessor.getThreadCount());
+        try {
+            copy.loadModel(copyModelFile, copyLabelsFile, copyUseGpu, false);
+            copy.warmUp();
+        } catch (IOException | RuntimeException e) {
+            copy.detach();
+            throw e;
+        }
+        return copy;
+    }
 
-                    bitmap.recycle();
+    /**
+     * Liefert die quadratische Eingabegröße des geladenen Modells (z.B. 640)
+     */
+    int getInputSize() {
+        return fullInputSize;
+    }
 
-                    result.success(resultMap);
+    /**
+     * Regelung von Eingabegröße und Schrittweiten, im kombinierten Modus meldet MoveNetHelper
+     * die Laufzeiten und liest die Pose-Schrittweite
+     */
+    LatencyGovernor getGovernor() {
+        return governor;
+    }
 
-                } catch (Exception e) {
-                    Log.e(TAG, "Fehler bei der Ball-Erkennung", e);
-                    e.printStackTrace();
+    /**
+     * @return Aktuelle Stufe des LatencyGovernor für die Ergebnis-Map
+     */
+    Map<String, Object> getOperatingPoint() {
+        return governor.toMap(fullInputSize);
+    }
 
-                    Map<String, Object> errorResult = new HashMap<>();
-                    errorResult.put("error", e.getMessage());
-                    errorResult.put("processingTimeMs", 0);
-                    errorResult.put("detections", new ArrayList<>());
+    /**
+     * @return true, wenn sich das letzte Bild in trackBall seit der letzten Inferenz nicht bewegt
+     *         hat und das Ergebnis übernommen wurde. MoveNetHelper überspringt dann auch MoveNet.
+     */
+    boolean isMotionIdle() {
+        return lastFrameIdle && isModelLoaded();
+    }
 
-                    result.success(errorResult);
-                }
+    /**
+     * Leiht den Interpreter aus der InterpreterRegistry aus, nach einem Neustart der Engine
+     * bereits aufgewärmt, und liest die Labels. Läuft auf dem Loader-Thread.
+     */
+    private synchronized void loadModel(String modelFile, String labelsFile, boolean useGpu, boolean reprobe)
+            throws IOException {
+        // Vorheriges Modell in den Pool zurückgeben, falls loadModels erneut aufgerufen wird
+        dispose(true);
+
+        InterpreterRegistry.Lease lease = interpreterRegistry.acquire(modelFile, useGpu, reprobe);
+        modelLoader.setBackendInfo(lease.toMap());
+        Log.d(TAG, "YOLOv8-Backend: " + lease.selection.backend);
+
+        this.modelFile = modelFile;
+        this.labelsFile = labelsFile;
+        this.useGpu = useGpu;
+        resizeSupported = true;
+        fullInterpreter = SizedInterpreter.of(lease);
+        fullInputSize = fullInterpreter.getInputSize();
+        sizedInterpreters.put(fullInputSize, fullInterpreter);
+        Log.d(TAG, "Modell geladen - Eingabe: " + fullInterpreter.inputSpec);
+        Log.d(TAG, "Modell geladen - Ausgabe: " + fullInterpreter.outputSpec);
+
+        // Tracking-Größe vorab anlegen, damit der erste Wechsel nicht im Live-Pfad passiert
+        if (roiTrackingEnabled) {
+            interpreterForSize(TRACKING_INPUT_SIZE);
+        }
+        roiTracker.reset();
+        ballTracker.reset();
+        framesSinceInference = 0;
+        lastInferenceFoundBall = false;
+        resetMotion();
+
+        labels = FileUtil.loadLabels(context, labelsFile);
+        Log.d(TAG, "Labels geladen: " + labels.size() + " Klassen");
+
+        soccerBallClassId = -1;
+        for (int i = 0; i < labels.size(); i++) {
+            String label = labels.get(i).toLowerCase();
+            if (label.contains("soccer") || label.contains("sports ball") || label.equals("ball")) {
+                soccerBallClassId = i;
+                Log.d(TAG, "Ball-Klasse gefunden: '" + labels.get(i) + "' mit Index " + i);
                 break;
+            }
+        }
 
-            default:
-                result.notImplemented();
-                break;
+        if (soccerBallClassId == -1) {
+            Log.w(TAG, "Keine Ball-Klasse in Labels gefunden!");
         }
     }
 
-    private List<Map<String, Object>> detectBall(Bitmap bitmap) {
-        return detectBall(bitmap, false);
+    /**
+     * Gibt die Interpreter eines Ladevorgangs frei, der durch dispose oder detach überholt
+     * wurde. Läuft bereits ein neuerer Ladevorgang, gibt dessen loadModel sie selbst frei.
+     */
+    private synchronized void discardLoad() {
+        if (!modelLoader.isLoading()) {
+            dispose(true);
+        }
     }
 
     /**
-     * Erkennt einen Ball im Bild mit dem YOLOv8-Modell
-     * 
-     * @param bitmap        Das zu analysierende Bild
-     * @param isFrontCamera Gibt an, ob das Bild von der Frontkamera stammt
-     * @return Liste von erkannten Bällen mit Position und Konfidenz
+     * Eine Inferenz auf der frisch angelegten (schwarzen) Eingabe, damit Delegate und Speicher
+     * vor dem ersten Bild initialisiert sind
      */
-    private List<Map<String, Object>> detectBall(Bitmap bitmap, boolean isFrontCamera) {
-        if (yoloInterpreter == null) {
-            Log.e(TAG, "YOLO Interpreter ist null");
-            return new ArrayList<>();
+    private synchronized void warmUp() {
+        fullInterpreter.run();
+    }
+
+    /**
+     * Liefert den Interpreter für eine Eingabegröße. Beim ersten Aufruf je Größe wird ein
+     * weiterer Interpreter aus der InterpreterRegistry ausgeliehen, einmalig per resizeInput
+     * umgestellt und aufgewärmt, danach wird er nur noch ausgetauscht. Kann das Modell nicht
+     * umskaliert werden (z.B. mit GPU-Delegate), werden Tracking-Modus und Größenregelung des
+     * LatencyGovernor abgeschaltet und der Interpreter in voller Größe geliefert.
+     *
+     * @param size Quadratische Eingabegröße
+     */
+    private SizedInterpreter interpreterForSize(int size) {
+        SizedInterpreter interpreter = sizedInterpreters.get(size);
+        if (interpreter != null) {
+            return interpreter;
         }
 
-        try {
+        if (resizeSupported) {
+            try {
+                long start = System.nanoTime();
+                interpreter = SizedInterpreter.resized(interpreterRegistry,
+                        interpreterRegistry.acquire(modelFile, useGpu, false), 1, size);
+                interpreter.run();
+                sizedInterpreters.put(size, interpreter);
+                Log.d(TAG, "Interpreter für Eingabegröße " + size + " angelegt ("
+                        + (System.nanoTime() - start) / 1_000_000 + "ms)");
+                return interpreter;
+            } catch (Exception e) {
+                Log.w(TAG, "Eingabegröße " + size + " nicht möglich, Tracking-Modus deaktiviert: " + e.getMessage());
+                resizeSupported = false;
+            }
+        }
 
-            int[] inputShape = yoloInterpreter.getInputTensor(0).shape();
-            int modelHeight = inputShape[1];
-            int modelWidth = inputShape[2];
-            int channels = inputShape[3];
+        roiTrackingEnabled = false;
+        roiTracker.reset();
+        governor.disableResize();
+        return fullInterpreter;
+    }
 
-            float ballThreshold = 0.10f;
+    /**
+     * Startet den Batch-Modus für die Offline-Analyse aufgezeichneter Einheiten. Die Bilder
+     * werden beim Hinzufügen direkt in ihren Platz im Eingabe-Tensor geschrieben und pro Batch
+     * mit einem einzigen Interpreter-Aufruf ausgewertet, das verteilt den Aufruf-Overhead auf
+     * alle Bilder des Batches. Tracking, Vorhersage und LatencyGovernor werden nicht verwendet.
+     *
+     * Der Batch läuft auf einem eigenen Interpreter mit eigenen Puffern, die Live-Erkennung
+     * kann parallel weiterlaufen. Es ist immer nur ein Batch gleichzeitig aktiv.
+     *
+     * @param requestedSize Gewünschte Anzahl Bilder pro Inferenz
+     * @return Tatsächliche Batch-Größe, 1 wenn das Modell keine Batch-Dimension erlaubt
+     */
+    synchronized int startBatch(int requestedSize) {
+        if (fullInterpreter == null) {
+            throw new IllegalStateException("YOLOv8-Modell nicht geladen");
+        }
+        if (batchSize != 0) {
+            throw new IllegalStateException("Batch-Modus läuft bereits");
+        }
 
-            Log.d(TAG, "Verarbeite Bild: " + bitmap.getWidth() + "x" + bitmap.getHeight() + ", Frontkamera: "
-                    + isFrontCamera);
+        int size = Math.max(1, requestedSize);
+        batchInterpreter = leaseBatchInterpreter(size);
+        if (batchInterpreter == null && size > 1) {
+            size = 1;
+            batchInterpreter = leaseBatchInterpreter(size);
+        }
+        if (batchInterpreter == null) {
+            throw new IllegalStateException("Kein Interpreter für den Batch-Modus verfügbar");
+        }
 
-            Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, modelWidth, modelHeight, true);
+        batchSize = size;
+        batchCount = 0;
+        batchIndices = new int[size];
+        batchTimestamps = new long[size];
+        Log.d(TAG, "Batch-Modus gestartet, Batch-Größe: " + size);
+        return size;
+    }
 
-            boolean isQuantized = yoloInterpreter.getInputTensor(0).dataType() == org.tensorflow.lite.DataType.UINT8 ||
-                    yoloInterpreter.getInputTensor(0).dataType() == org.tensorflow.lite.DataType.INT8;
+    /**
+     * Schreibt ein Bild in den nächsten freien Platz des Batches. Ist der Batch voll, wird er
+     * ausgewertet.
+     *
+     * @param frame          Das Kamerabild, wird nach dem Aufruf nicht mehr gelesen
+     * @param index          Index des Bildes in der Aufnahme
+     * @param timestampNanos Zeitstempel des Bildes
+     * @return Ergebnisse des ausgewerteten Batches (siehe flushBatch), sonst eine leere Liste
+     */
+    synchronized List<Map<String, Object>> addBatchFrame(CameraFrame frame, int index, long timestampNanos,
+            float confThreshold, float iouThreshold) {
+        if (batchSize == 0) {
+            throw new IllegalStateException("Batch-Modus nicht gestartet");
+        }
+        SizedInterpreter model = batchInterpreter;
 
-            ByteBuffer imgData;
-            if (isQuantized) {
+        long preprocessStart = System.nanoTime();
 
-                imgData = ByteBuffer.allocateDirect(modelWidth * modelHeight * channels);
-                imgData.order(ByteOrder.nativeOrder());
+        int frameBytes = model.inputSpec.numBytes() / batchSize;
+        model.inputBuffer.clear();
+        model.inputBuffer.position(batchCount * frameBytes);
+        preprocessor.preprocess(frame, fullInputSize, fullInputSize, frame.isFrontCamera, model.inputQuantizer,
+                model.inputBuffer);
 
-                int[] pixels = new int[modelWidth * modelHeight];
-                scaledBitmap.getPixels(pixels, 0, modelWidth, 0, 0, modelWidth, modelHeight);
+        metrics.record(PipelineMetrics.STAGE_PREPROCESS, System.nanoTime() - preprocessStart);
 
-                for (int pixel : pixels) {
-                    imgData.put((byte) ((pixel >> 16) & 0xFF));
-                    imgData.put((byte) ((pixel >> 8) & 0xFF));
-                    imgData.put((byte) (pixel & 0xFF));
-                }
-            } else {
+        batchIndices[batchCount] = index;
+        batchTimestamps[batchCount] = timestampNanos;
+        batchCount++;
+
+        if (batchCount == batchSize) {
+            return flushBatch(confThreshold, iouThreshold);
+        }
+        return new ArrayList<>();
+    }
 
-                imgData = ByteBuffer.allocateDirect(4 * modelWidth * modelHeight * channels);
-                imgData.order(ByteOrder.nativeOrder());
+    /**
+     * Wertet die bisher hinzugefügten Bilder aus, auch wenn der Batch noch nicht voll ist. Die
+     * übrigen Plätze enthalten dann alte Bilder, ihre Ergebnisse werden verworfen.
+     *
+     * @return Pro Bild eine Map mit "frameIndex", "timestampNanos" und "detections"
+     */
+    synchronized List<Map<String, Object>> flushBatch(float confThreshold, float iouThreshold) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        if (batchCount == 0) {
+            return results;
+        }
 
-                int[] pixels = new int[modelWidth * modelHeight];
-                scaledBitmap.getPixels(pixels, 0, modelWidth, 0, 0, modelWidth, modelHeight);
+        SizedInterpreter model = batchInterpreter;
 
-                for (int pixel : pixels) {
-                    imgData.putFloat(((pixel >> 16) & 0xFF) / 255.0f);
-                    imgData.putFloat(((pixel >> 8) & 0xFF) / 255.0f);
-                    imgData.putFloat((pixel & 0xFF) / 255.0f);
-                }
+        long inferenceStart = System.nanoTime();
+        model.run();
+
+        long decodeStart = System.nanoTime();
+        long inferenceTime = decodeStart - inferenceStart;
+        metrics.record(PipelineMetrics.STAGE_INFERENCE, inferenceTime);
+        FrameTrace.record(FrameTrace.BALL_INFERENCE, inferenceTime / 1e6f, 0f, 0f, 0f);
+
+        int[] frameShape = model.outputSpec.shape.clone();
+        frameShape[0] = 1;
+        int frameElements = model.outputSpec.numElements() / batchSize;
+
+        for (int slot = 0; slot < batchCount; slot++) {
+            int count;
+            if (model.outputSpec.isQuantized()) {
+                ByteBuffer slotOutput = model.outputBuffer.duplicate();
+                slotOutput.position(slot * frameElements);
+                count = decodeOutput(decoder, slotOutput.slice(), null, frameShape, confThreshold, iouThreshold);
+            } else {
+                FloatBuffer slotOutput = model.outputFloats.duplicate();
+                slotOutput.position(slot * frameElements);
+                count = decodeOutput(decoder, null, slotOutput.slice(), frameShape, confThreshold, iouThreshold);
             }
 
-            scaledBitmap.recycle();
+            List<Map<String, Object>> detections = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Map<String, Object> detection = new HashMap<>();
+                detection.put("tag", "soccer_ball");
+                detection.put("confidence", decoder.getScore(i));
+                detection.put("box", decoder.getBox(i));
+                detections.add(detection);
+            }
 
-            imgData.rewind();
+            Map<String, Object> frameResult = new HashMap<>();
+            frameResult.put("frameIndex", batchIndices[slot]);
+            frameResult.put("timestampNanos", batchTimestamps[slot]);
+            frameResult.put("detections", detections);
+            results.add(frameResult);
+        }
+        metrics.record(PipelineMetrics.STAGE_OUTPUT_DECODE, System.nanoTime() - decodeStart);
 
-            Log.d(TAG, "YOLOv8 Eingabe-Buffer: " + imgData.capacity() + " Bytes");
+        batchCount = 0;
+        return results;
+    }
 
-            int[] outputShape = yoloInterpreter.getOutputTensor(0).shape();
-            Log.d(TAG, "YOLOv8 Ausgabe-Form: " + Arrays.toString(outputShape));
+    /**
+     * Leiht einen weiteren Interpreter mit der Form [batch, volle Größe, volle Größe] aus
+     *
+     * @return null, wenn das Modell oder der Delegate diese Batch-Größe nicht erlaubt
+     */
+    private SizedInterpreter leaseBatchInterpreter(int batch) {
+        try {
+            return SizedInterpreter.resized(interpreterRegistry,
+                    interpreterRegistry.acquire(modelFile, useGpu, false), batch, fullInputSize);
+        } catch (Exception e) {
+            Log.w(TAG, "Batch-Größe " + batch + " nicht möglich: " + e.getMessage());
+            return null;
+        }
+    }
 
-            float[][][] output = new float[outputShape[0]][outputShape[1]][outputShape[2]];
+    private void releaseBatchInterpreter() {
+        if (batchInterpreter != null) {
+            batchInterpreter.release(interpreterRegistry, true);
+            batchInterpreter = null;
+        }
+    }
 
-            Map<Integer, Object> outputMap = new HashMap<>();
-            outputMap.put(0, output);
+    /**
+     * Wertet einen Ausgabe-Tensor des geladenen Modells aus
+     *
+     * @param decoder Decoder, der die Ergebnisse aufnimmt
+     * @param output  Ausgabe bei quantisiertem Modell
+     * @param floats  Ausgabe bei FLOAT32-Modell
+     * @param shape   Form der Ausgabe eines Bildes
+     * @return Anzahl der Ergebnisse im Decoder
+     */
+    int decodeOutput(YoloDecoder decoder, ByteBuffer output, FloatBuffer floats, int[] shape, float confThreshold,
+            float iouThreshold) {
+        TensorSpec outputSpec = fullInterpreter.outputSpec;
+        if (outputSpec.isQuantized()) {
+            return decoder.decodeQuantized(output, outputSpec.dataType == DataType.INT8, outputSpec.scale,
+                    outputSpec.zeroPoint, shape, soccerBallClassId, confThreshold, iouThreshold, MAX_DETECTIONS);
+        }
+        return decoder.decode(floats, shape, soccerBallClassId, confThreshold, iouThreshold, MAX_DETECTIONS);
+    }
 
-            long inferenceStartTime = System.currentTimeMillis();
+    /**
+     * @return Form und Datentyp der Eingabe bei voller Größe, für eigene Puffer der Offline-Analyse
+     */
+    synchronized TensorSpec getFullInputSpec() {
+        return fullInterpreter.inputSpec;
+    }
 
-            try {
-                yoloInterpreter.runForMultipleInputsOutputs(new Object[] { imgData }, outputMap);
+    /**
+     * @return Form und Datentyp der Ausgabe bei voller Eingabegröße
+     */
+    synchronized TensorSpec getFullOutputSpec() {
+        return fullInterpreter.outputSpec;
+    }
 
-                long inferenceTime = System.currentTimeMillis() - inferenceStartTime;
-                Log.d(TAG, "YOLOv8 Inferenzzeit: " + inferenceTime + "ms");
+    /**
+     * Schreibt das ganze Bild in voller Eingabegröße in einen eigenen Eingabepuffer. Nutzt einen
+     * eigenen YuvPreprocessor und kann daher parallel zur Inferenz laufen (Offline-Analyse).
+     */
+    void preprocessFullFrame(YuvPreprocessor framePreprocessor, CameraFrame frame, ByteBuffer input) {
+        input.clear();
+        framePreprocessor.preprocess(frame, fullInputSize, fullInputSize, frame.isFrontCamera,
+                fullInterpreter.inputQuantizer, input);
+        input.rewind();
+    }
 
-                frameCount++;
-                totalInferenceTime += inferenceTime;
-                movingAvgInferenceTime = totalInferenceTime / frameCount;
-            } catch (Exception e) {
-                Log.e(TAG, "Fehler bei der Inferenz: " + e.getMessage());
-                e.printStackTrace();
-                return new ArrayList<>();
+    /**
+     * Führt YOLO auf eigenen Ein- und Ausgabepuffern in voller Eingabegröße aus (Offline-Analyse)
+     */
+    synchronized void runModel(ByteBuffer input, ByteBuffer output) {
+        if (fullInterpreter == null) {
+            throw new IllegalStateException("YOLOv8-Modell nicht bereit");
+        }
+
+        long inferenceStart = System.nanoTime();
+        fullInterpreter.run(input, output);
+        metrics.record(PipelineMetrics.STAGE_INFERENCE, System.nanoTime() - inferenceStart);
+    }
+
+    /**
+     * Beendet den Batch-Modus und gibt den Interpreter des Batches an die Registry zurück. Nicht
+     * ausgewertete Bilder werden verworfen, vorher ggf. flushBatch aufrufen.
+     */
+    synchronized void endBatch() {
+        batchSize = 0;
+        batchCount = 0;
+        releaseBatchInterpreter();
+    }
+
+    /**
+     * Liefert die Ballerkennung für ein Bild. Bei inferenceStride > 1 läuft YOLO nur auf jedem
+     * k-ten Bild, für die Bilder dazwischen wird die Box aus dem Kalman-Filter vorhergesagt
+     * und mit "predicted" markiert. Vorhergesagt wird nur, solange die letzte Inferenz einen
+     * Ball gefunden hat. Mit targetLatencyMs kann der LatencyGovernor die Schrittweite erhöhen.
+     *
+     * Mit motionGating wird vorher die Y-Plane mit dem Bild der letzten Inferenz verglichen.
+     * Hat sich nichts bewegt, wird das letzte Ergebnis übernommen (höchstens
+     * MOTION_MAX_IDLE_FRAMES Bilder in Folge), sonst beginnt die Suche in der Bewegungs-Box.
+     *
+     * @param frame  Das Kamerabild
+     * @param config Schwellen, Inferenz-Schrittweite, Ziel-Laufzeit und Bewegungserkennung
+     * @return Liste von erkannten oder vorhergesagten Bällen
+     */
+    synchronized List<Map<String, Object>> trackBall(CameraFrame frame, BallDetectionConfig config) {
+        long start = System.nanoTime();
+        long timestamp = frame.timestampNanos;
+
+        governor.setTargetMs(config.targetLatencyMs);
+        int stride = Math.max(config.inferenceStride, governor.getBallStride());
+
+        lastFrameIdle = false;
+        boolean motion = true;
+        if (config.motionGating) {
+            motion = motionDetector.detect(frame);
+            metrics.record(PipelineMetrics.STAGE_MOTION, System.nanoTime() - start);
+
+            float[] motionBox = motionDetector.getMotionBox();
+            FrameTrace.record(FrameTrace.MOTION, motionDetector.getMovingBlocks(), motionBox[0], motionBox[1],
+                    motionBox[2], motionBox[3]);
+
+            if (!motion && lastBallDetections != null && idleFrames + 1 < MOTION_MAX_IDLE_FRAMES) {
+                idleFrames++;
+                lastFrameIdle = true;
+
+                List<Map<String, Object>> ballDetections = new ArrayList<>();
+                for (Map<String, Object> last : lastBallDetections) {
+                    Map<String, Object> detection = new HashMap<>(last);
+                    detection.put("predicted", true);
+                    ballDetections.add(detection);
+                }
+                metrics.record(PipelineMetrics.STAGE_TOTAL, System.nanoTime() - start);
+                return ballDetections;
             }
+        } else if (lastBallDetections != null) {
+            resetMotion();
+        }
+        idleFrames = 0;
 
-            List<Map<String, Object>> ballDetections = new ArrayList<>();
+        if (framesSinceInference + 1 < stride && lastInferenceFoundBall
+                && ballTracker.predict(timestamp, predictedBox)) {
+            framesSinceInference++;
 
-            int numClasses = outputShape[1] - 4;
+            Map<String, Object> detection = new HashMap<>();
+            detection.put("tag", "soccer_ball");
+            detection.put("confidence", ballTracker.getConfidence());
+            detection.put("box", predictedBox.clone());
+            detection.put("predicted", true);
 
-            try {
+            List<Map<String, Object>> ballDetections = new ArrayList<>();
+            ballDetections.add(detection);
+            metrics.record(PipelineMetrics.STAGE_TOTAL, System.nanoTime() - start);
+            return ballDetections;
+        }
 
-                for (int i = 0; i < outputShape[2]; i++) {
+        framesSinceInference = 0;
 
-                    if (soccerBallClassId >= 0 && soccerBallClassId < numClasses) {
-                        float score = output[0][soccerBallClassId + 4][i];
+        motionCropPending = config.motionGating && motion && isMotionCropAllowed();
+        List<Map<String, Object>> ballDetections = detectBall(frame, config.confThreshold, config.iouThreshold);
+        lastInferenceFoundBall = !ballDetections.isEmpty();
 
-                        if (score > ballThreshold) {
+        if (config.motionGating) {
+            motionDetector.commit();
+            lastBallDetections = ballDetections;
+        }
 
-                            float x = output[0][0][i];
-                            float y = output[0][1][i];
-                            float w = output[0][2][i];
-                            float h = output[0][3][i];
+        if (lastInferenceFoundBall) {
+            Map<String, Object> best = ballDetections.get(0);
+            ballTracker.update((float[]) best.get("box"), (float) best.get("confidence"), timestamp);
+        }
 
-                            float x1 = x - w / 2;
-                            float y1 = y - h / 2;
-                            float x2 = x + w / 2;
-                            float y2 = y + h / 2;
+        metrics.record(PipelineMetrics.STAGE_TOTAL, System.nanoTime() - start);
+        return ballDetections;
+    }
 
-                            if (isFrontCamera) {
-                                float temp = 1.0f - x1;
-                                x1 = 1.0f - x2;
-                                x2 = temp;
-                            }
+    private void resetMotion() {
+        motionDetector.reset();
+        lastBallDetections = null;
+        idleFrames = 0;
+        lastFrameIdle = false;
+        motionCropPending = false;
+        motionCropBackoff = 0;
+    }
 
-                            x1 = Math.max(0, Math.min(1, x1));
-                            y1 = Math.max(0, Math.min(1, y1));
-                            x2 = Math.max(0, Math.min(1, x2));
-                            y2 = Math.max(0, Math.min(1, y2));
+    /**
+     * Hysterese der Suche in der Bewegungs-Box: Nach einem Fehlschlag wird erst wieder dort
+     * gesucht, wenn auch MOTION_CROP_RETRY_MISSES Suchen im ganzen Bild nichts fanden oder sich
+     * die Bewegung deutlich verschoben hat. Sonst würde bei jedem zweiten Bild vergeblich in
+     * derselben Box gesucht.
+     */
+    private boolean isMotionCropAllowed() {
+        if (motionCropBackoff == 0) {
+            return true;
+        }
+        if (motionDetector.hasMotion()) {
+            float[] box = motionDetector.getMotionBox();
+            float dx = (box[0] + box[2]) / 2 - missedMotionX;
+            float dy = (box[1] + box[3]) / 2 - missedMotionY;
+            if (dx * dx + dy * dy > MOTION_CROP_RETRY_DISTANCE * MOTION_CROP_RETRY_DISTANCE) {
+                motionCropBackoff = 0;
+                return true;
+            }
+        }
+        return false;
+    }
 
-                            Map<String, Object> detection = new HashMap<>();
-                            detection.put("tag", "soccer_ball");
-                            detection.put("confidence", score);
-                            detection.put("box", new float[] { x1, y1, x2, y2 });
+    /**
+     * Merkt sich das Ergebnis einer Suche ohne Tracking für die Hysterese der Bewegungs-Box
+     */
+    private void updateMotionCropBackoff(boolean motionCrop, boolean roi, boolean found) {
+        if (found) {
+            motionCropBackoff = 0;
+        } else if (motionCrop) {
+            float[] box = motionDetector.getMotionBox();
+            missedMotionX = (box[0] + box[2]) / 2;
+            missedMotionY = (box[1] + box[3]) / 2;
+            motionCropBackoff = MOTION_CROP_RETRY_MISSES;
+        } else if (!roi && motionCropBackoff > 0) {
+            motionCropBackoff--;
+        }
+    }
 
-                            Log.d(TAG, String.format(Locale.US,
-                                    "⚽ Ball erkannt: Konfidenz=%.2f, Box=[%.2f, %.2f, %.2f, %.2f]",
-                                    score, x1, y1, x2, y2));
+    /**
+     * Berechnet einen quadratischen Ausschnitt um die Bewegungs-Box, in dem die Ballsuche ohne
+     * Tracking beginnt
+     *
+     * @return false, wenn die Bewegung zu groß oder über das ganze Bild verteilt ist
+     */
+    private boolean computeMotionCrop(int rotatedWidth, int rotatedHeight) {
+        if (!motionDetector.hasMotion() || motionDetector.isGlobalMotion()) {
+            return false;
+        }
 
-                            ballDetections.add(detection);
+        float[] box = motionDetector.getMotionBox();
+        float boxWidth = (box[2] - box[0]) * rotatedWidth;
+        float boxHeight = (box[3] - box[1]) * rotatedHeight;
+        int maxSide = Math.min(rotatedWidth, rotatedHeight);
 
-                            break;
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Fehler bei der Verarbeitung der Detektionen: " + e.getMessage());
-                e.printStackTrace();
-            }
+        int side = (int) (Math.max(boxWidth, boxHeight) * (1 + 2 * MOTION_CROP_MARGIN));
+        side = Math.max(side, Math.min(TRACKING_INPUT_SIZE, maxSide));
+        if (side > maxSide * MOTION_CROP_MAX_FRACTION) {
+            return false;
+        }
 
-            return ballDetections;
+        int x = Math.round((box[0] + box[2]) / 2 * rotatedWidth - side / 2f);
+        int y = Math.round((box[1] + box[3]) / 2 * rotatedHeight - side / 2f);
+        crop[0] = Math.max(0, Math.min(rotatedWidth - side, x));
+        crop[1] = Math.max(0, Math.min(rotatedHeight - side, y));
+        crop[2] = side;
+        crop[3] = side;
+        return true;
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Fehler bei YOLOv8-Inferenz", e);
-            e.printStackTrace();
+    /**
+     * Erkennt einen Ball im Bild mit dem YOLOv8-Modell. Das Kamerabild wird direkt aus den
+     * YUV-Planes in den Eingabe-Tensor geschrieben (gedreht, skaliert und bei der Frontkamera
+     * gespiegelt), die Boxen liegen daher bereits in Anzeige-Koordinaten. Im Tracking-Modus
+     * wird nur ein Ausschnitt um die vorhergesagte Ballposition mit 320x320 ausgewertet und
+     * die Boxen werden auf das ganze Bild zurückgerechnet. Ohne Tracking wird mit motionGating
+     * ebenso zuerst der Ausschnitt um die Bewegungs-Box durchsucht. Sonst bestimmt der
+     * LatencyGovernor die Eingabegröße (640, 480 oder 320).
+     * 
+     * @param frame         Das Kamerabild
+     * @param confThreshold Minimale Konfidenz
+     * @param iouThreshold  IoU-Schwelle der Non-Maximum-Suppression
+     * @return Liste von erkannten Bällen, absteigend nach Konfidenz sortiert
+     */
+    synchronized List<Map<String, Object>> detectBall(CameraFrame frame, float confThreshold, float iouThreshold) {
+        if (fullInterpreter == null) {
+            Log.e(TAG, "YOLO Interpreter ist null");
             return new ArrayList<>();
         }
-    }
 
-    public void dispose() {
         try {
-            if (yoloInterpreter != null) {
-                yoloInterpreter.close();
-                yoloInterpreter = null;
+
+            boolean transposed = frame.rotation == 90 || frame.rotation == 270;
+            int rotatedWidth = transposed ? frame.height : frame.width;
+            int rotatedHeight = transposed ? frame.width : frame.height;
+
+            boolean roi = roiTrackingEnabled
+                    && roiTracker.computeCrop(rotatedWidth, rotatedHeight, TRACKING_INPUT_SIZE, crop);
+            boolean motionCrop = false;
+            if (!roi && motionCropPending && roiTrackingEnabled) {
+                motionCrop = computeMotionCrop(rotatedWidth, rotatedHeight);
+                roi = motionCrop;
+            }
+            motionCropPending = false;
+            SizedInterpreter model = null;
+            if (roi) {
+                model = interpreterForSize(TRACKING_INPUT_SIZE);
+                if (model.getInputSize() != TRACKING_INPUT_SIZE) {
+                    roi = false;
+                    motionCrop = false;
+                }
             }
+            if (!roi) {
+                model = interpreterForSize(governor.getInputSize(fullInputSize));
+            }
+
+            int modelHeight = model.inputSpec.shape[1];
+            int modelWidth = model.inputSpec.shape[2];
 
-            if (gpuDelegate != null) {
-                gpuDelegate.close();
-                gpuDelegate = null;
+            FrameTrace.record(FrameTrace.BALL_FRAME, frame.width, frame.height, frame.rotation,
+                    frame.isFrontCamera ? 1f : 0f, roi ? 1f : 0f);
+            if (roi) {
+                FrameTrace.record(FrameTrace.BALL_CROP, crop[0], crop[1], crop[2], crop[3]);
             }
 
-            Log.d(TAG, "BallDetectionHelper erfolgreich freigegeben");
-        } catch (Exception e) {
-            Log.e(TAG, "Fehler beim Freigeben von Ressourcen", e);
-        }
-    }
+            long preprocessStart = System.nanoTime();
 
-    private Bitmap yuvPlanesToBitmap(byte[] yPlane, byte[] uPlane, byte[] vPlane,
-            int width, int height, int uvRowStride, int uvPixelStride) {
-        try {
+            ByteBuffer imgData = model.inputBuffer;
+            imgData.clear();
+
+            if (roi) {
+                preprocessor.preprocess(frame, crop[0], crop[1], crop[2], crop[3], modelWidth, modelHeight,
+                        frame.isFrontCamera, model.inputQuantizer, imgData);
+            } else {
+                preprocessor.preprocess(frame, modelWidth, modelHeight, frame.isFrontCamera, model.inputQuantizer,
+                        imgData);
+            }
+
+            imgData.rewind();
 
-            int[] argb = new int[width * height];
+            long inferenceStartTime = System.nanoTime();
+            metrics.record(PipelineMetrics.STAGE_PREPROCESS, inferenceStartTime - preprocessStart);
 
-            for (int y = 0; y < height; y++) {
-                int yRowOffset = y * width;
-                int uvRowIndex = (y >> 1);
-                int uvRowOffset = uvRowIndex * uvRowStride;
+            try {
+                model.run();
 
-                for (int x = 0; x < width; x++) {
-                    int yIndex = yRowOffset + x;
-                    int yValue = yPlane[yIndex] & 0xFF;
+                long inferenceTime = System.nanoTime() - inferenceStartTime;
+                metrics.record(PipelineMetrics.STAGE_INFERENCE, inferenceTime);
+                FrameTrace.record(FrameTrace.BALL_INFERENCE, inferenceTime / 1e6f, 0f, 0f, 0f);
+            } catch (Exception e) {
+                Log.e(TAG, "Fehler bei der Inferenz: " + e.getMessage());
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
 
-                    int uvColIndex = x >> 1;
-                    int uIndex = uvRowOffset + (uvColIndex * uvPixelStride);
-                    int vIndex = uvRowOffset + (uvColIndex * uvPixelStride);
+            List<Map<String, Object>> ballDetections = new ArrayList<>();
 
-                    if (uIndex >= uPlane.length || vIndex >= vPlane.length) {
-                        uIndex = Math.min(uIndex, uPlane.length - 1);
-                        vIndex = Math.min(vIndex, vPlane.length - 1);
+            try {
+                long decodeStart = System.nanoTime();
+                int count = decodeOutput(decoder, model.outputBuffer, model.outputFloats, model.outputSpec.shape,
+                        confThreshold, iouThreshold);
+                long encodeStart = System.nanoTime();
+                metrics.record(PipelineMetrics.STAGE_OUTPUT_DECODE, encodeStart - decodeStart);
+
+                for (int i = 0; i < count; i++) {
+                    float score = decoder.getScore(i);
+                    float[] box = decoder.getBox(i);
+
+                    if (roi) {
+                        box[0] = (crop[0] + box[0] * crop[2]) / rotatedWidth;
+                        box[1] = (crop[1] + box[1] * crop[3]) / rotatedHeight;
+                        box[2] = (crop[0] + box[2] * crop[2]) / rotatedWidth;
+                        box[3] = (crop[1] + box[3] * crop[3]) / rotatedHeight;
                     }
 
-                    int uValue = (uPlane[uIndex] & 0xFF) - 128;
-                    int vValue = (vPlane[vIndex] & 0xFF) - 128;
+                    if (i == 0) {
+                        roiTracker.update(box, score);
+                    }
+
+                    Map<String, Object> detection = new HashMap<>();
+                    detection.put("tag", "soccer_ball");
+                    detection.put("confidence", score);
+                    detection.put("box", box);
 
-                    int y1192 = 1192 * (yValue - 16);
-                    int r = (y1192 + 1634 * vValue);
-                    int g = (y1192 - 833 * vValue - 400 * uValue);
-                    int b = (y1192 + 2066 * uValue);
+                    FrameTrace.record(FrameTrace.BALL_DETECTION, score, box[0], box[1], box[2], box[3]);
 
-                    r = r < 0 ? 0 : (r > 262143 ? 255 : r >> 10);
-                    g = g < 0 ? 0 : (g > 262143 ? 255 : g >> 10);
-                    b = b < 0 ? 0 : (b > 262143 ? 255 : b >> 10);
+                    ballDetections.add(detection);
+                }
 
-                    argb[yIndex] = 0xff000000 | (r << 16) | (g << 8) | b;
+                if (count == 0) {
+                    roiTracker.miss();
                 }
+                updateMotionCropBackoff(motionCrop, roi, count > 0);
+                metrics.record(PipelineMetrics.STAGE_RESULT_ENCODE, System.nanoTime() - encodeStart);
+            } catch (Exception e) {
+                Log.e(TAG, "Fehler bei der Verarbeitung der Detektionen: " + e.getMessage());
+                e.printStackTrace();
             }
 
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            bitmap.setPixels(argb, 0, width, 0, 0, width, height);
-            return bitmap;
+            return ballDetections;
+
         } catch (Exception e) {
-            Log.e(TAG, "Fehler bei der YUV zu Bitmap Konvertierung", e);
-            return null;
+            Log.e(TAG, "Fehler bei YOLOv8-Inferenz", e);
+            e.printStackTrace();
+            return new ArrayList<>();
         }
     }
 
     /**
-     * (Fallback)
+     * Wird aufgerufen, wenn die FlutterEngine abgebaut wird. Der Interpreter bleibt warm in der
+     * InterpreterRegistry und wird von der nächsten Engine übernommen.
      */
-    private Bitmap yuvToBitmap(byte[] yPlane, int width, int height) {
-        try {
-
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            int[] pixels = new int[width * height];
-
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    int y = yPlane[i * width + j] & 0xff;
+    public void detach() {
+        inferenceExecutor.shutdown();
+        dispose(true);
+        modelLoader.reset();
+        preprocessor.shutdown();
+    }
 
-                    pixels[i * width + j] = 0xff000000 | (y << 16) | (y << 8) | y;
-                }
+    /**
+     * @param keepWarm Interpreter im Pool der Registry halten statt ihn zu schließen
+     */
+    public synchronized void dispose(boolean keepWarm) {
+        try {
+            // Alle Interpreter gehen mit der Eingabeform des Modells zurück in den Pool
+            releaseBatchInterpreter();
+            for (SizedInterpreter interpreter : sizedInterpreters.values()) {
+                interpreter.release(interpreterRegistry, keepWarm);
             }
+            sizedInterpreters.clear();
+            fullInterpreter = null;
+            batchSize = 0;
+            batchCount = 0;
+            roiTracker.reset();
 
-            bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
-            return bitmap;
+            Log.d(TAG, "BallDetectionHelper erfolgreich freigegeben");
         } catch (Exception e) {
-            Log.e(TAG, "Fehler bei der Erstellung der Grayscale-Bitmap", e);
-            e.printStackTrace();
-            return null;
+            Log.e(TAG, "Fehler beim Freigeben von Ressourcen", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei implementiert einen Kalman-Filter für die Ballposition. Pro Achse werden
+ * Position, Geschwindigkeit und Beschleunigung geschätzt, für die vertikale Achse startet die
+ * Beschleunigung mit der Schwerkraft. Zwischen zwei YOLO-Inferenzen wird die Ballbox aus dem
+ * Zustand vorhergesagt, damit die Flugbahn mit voller Kamerarate weiterläuft.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.Arrays;
+
+public final class BallTracker {
+
+    /** Anfangsschätzung der Schwerkraft in Bildhöhen pro Sekunde² (Ball fällt nach unten) */
+    private static final double GRAVITY_PRIOR = 3.0;
+
+    /** Rauschen der Beschleunigungsänderung (Jerk) und der gemessenen Position */
+    private static final double PROCESS_NOISE = 50.0;
+    private static final double MEASUREMENT_NOISE = 0.0004;
+
+    /** Glättung der Boxgröße zwischen zwei Messungen */
+    private static final float SIZE_SMOOTHING = 0.5f;
+
+    private final double maxPredictionSeconds;
+
+    private final AxisFilter xFilter = new AxisFilter(0.0);
+    private final AxisFilter yFilter = new AxisFilter(GRAVITY_PRIOR);
+
+    private boolean initialized = false;
+    private long stateTimeNanos;
+    private long lastMeasurementNanos;
+    private float boxWidth;
+    private float boxHeight;
+    private float confidence;
+
+    /**
+     * @param maxPredictionSeconds Wie lange nach der letzten Messung noch vorhergesagt wird
+     */
+    public BallTracker(double maxPredictionSeconds) {
+        this.maxPredictionSeconds = maxPredictionSeconds;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Übernimmt eine Messung aus der YOLO-Erkennung
+     *
+     * @param box            Box als normierte Koordinaten x1, y1, x2, y2
+     * @param score          Konfidenz der Erkennung
+     * @param timestampNanos Zeitpunkt des Kamerabildes (System.nanoTime)
+     */
+    public void update(float[] box, float score, long timestampNanos) {
+        double centerX = (box[0] + box[2]) / 2.0;
+        double centerY = (box[1] + box[3]) / 2.0;
+        float width = box[2] - box[0];
+        float height = box[3] - box[1];
+
+        if (!initialized) {
+            xFilter.reset(centerX);
+            yFilter.reset(centerY);
+            boxWidth = width;
+            boxHeight = height;
+            initialized = true;
+        } else {
+            double dt = seconds(timestampNanos - stateTimeNanos);
+            xFilter.predict(dt);
+            yFilter.predict(dt);
+            xFilter.correct(centerX);
+            yFilter.correct(centerY);
+            boxWidth += (width - boxWidth) * SIZE_SMOOTHING;
+            boxHeight += (height - boxHeight) * SIZE_SMOOTHING;
+        }
+
+        confidence = score;
+        stateTimeNanos = timestampNanos;
+        lastMeasurementNanos = timestampNanos;
+    }
+
+    /**
+     * Sagt die Ballbox für einen Zeitpunkt voraus, ohne den Zustand zu verändern
+     *
+     * @param timestampNanos Zeitpunkt des Kamerabildes (System.nanoTime)
+     * @param boxOut         Ausgabe: x1, y1, x2, y2 normiert
+     * @return false, wenn keine Schätzung vorliegt oder die letzte Messung zu alt ist
+     */
+    public boolean predict(long timestampNanos, float[] boxOut) {
+        if (!initialized || seconds(timestampNanos - lastMeasurementNanos) > maxPredictionSeconds) {
+            return false;
+        }
+
+        double dt = seconds(timestampNanos - stateTimeNanos);
+        float centerX = (float) xFilter.extrapolate(dt);
+        float centerY = (float) yFilter.extrapolate(dt);
+
+        boxOut[0] = clamp(centerX - boxWidth / 2);
+        boxOut[1] = clamp(centerY - boxHeight / 2);
+        boxOut[2] = clamp(centerX + boxWidth / 2);
+        boxOut[3] = clamp(centerY + boxHeight / 2);
+        return true;
+    }
+
+    public void reset() {
+        initialized = false;
+        confidence = 0;
+    }
+
+    private static double seconds(long nanos) {
+        return Math.max(0, nanos) / 1e9;
+    }
+
+    private static float clamp(float value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    /**
+     * Kalman-Filter für eine Achse mit Zustand (Position, Geschwindigkeit, Beschleunigung)
+     * und konstantem Beschleunigungsmodell. Gemessen wird nur die Position.
+     */
+    private static final class AxisFilter {
+        private final double accelerationPrior;
+
+        private double position;
+        private double velocity;
+        private double acceleration;
+
+        /** Kovarianzmatrix, zeilenweise 3x3 */
+        private final double[] p = new double[9];
+        private final double[] f = new double[9];
+        private final double[] tmp = new double[9];
+
+        AxisFilter(double accelerationPrior) {
+            this.accelerationPrior = accelerationPrior;
+        }
+
+        void reset(double measuredPosition) {
+            position = measuredPosition;
+            velocity = 0;
+            acceleration = accelerationPrior;
+
+            Arrays.fill(p, 0);
+            p[0] = MEASUREMENT_NOISE;
+            p[4] = 4.0;
+            p[8] = 25.0;
+        }
+
+        double extrapolate(double dt) {
+            return position + velocity * dt + 0.5 * acceleration * dt * dt;
+        }
+
+        void predict(double dt) {
+            if (dt <= 0) {
+                return;
+            }
+
+            position = extrapolate(dt);
+            velocity += acceleration * dt;
+
+            // P = F P F^T + Q mit F = [[1, dt, dt²/2], [0, 1, dt], [0, 0, 1]]
+            f[0] = 1;
+            f[1] = dt;
+            f[2] = 0.5 * dt * dt;
+            f[4] = 1;
+            f[5] = dt;
+            f[8] = 1;
+
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    double sum = 0;
+                    for (int k = 0; k < 3; k++) {
+                        sum += f[r * 3 + k] * p[k * 3 + c];
+                    }
+                    tmp[r * 3 + c] = sum;
+                }
+            }
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    double sum = 0;
+                    for (int k = 0; k < 3; k++) {
+                        sum += tmp[r * 3 + k] * f[c * 3 + k];
+                    }
+                    p[r * 3 + c] = sum;
+                }
+            }
+
+            // Weißes Jerk-Rauschen
+            double dt2 = dt * dt;
+            double dt3 = dt2 * dt;
+            double dt4 = dt3 * dt;
+            double dt5 = dt4 * dt;
+            p[0] += PROCESS_NOISE * dt5 / 20;
+            p[1] += PROCESS_NOISE * dt4 / 8;
+            p[2] += PROCESS_NOISE * dt3 / 6;
+            p[3] += PROCESS_NOISE * dt4 / 8;
+            p[4] += PROCESS_NOISE * dt3 / 3;
+            p[5] += PROCESS_NOISE * dt2 / 2;
+            p[6] += PROCESS_NOISE * dt3 / 6;
+            p[7] += PROCESS_NOISE * dt2 / 2;
+            p[8] += PROCESS_NOISE * dt;
+        }
+
+        void correct(double measuredPosition) {
+            double s = p[0] + MEASUREMENT_NOISE;
+            double k0 = p[0] / s;
+            double k1 = p[3] / s;
+            double k2 = p[6] / s;
+
+            double innovation = measuredPosition - position;
+            position += k0 * innovation;
+            velocity += k1 * innovation;
+            acceleration += k2 * innovation;
+
+            // P = (I - K H) P, H = [1, 0, 0]
+            double p0 = p[0];
+            double p1 = p[1];
+            double p2 = p[2];
+            for (int c = 0; c < 3; c++) {
+                double firstRow = c == 0 ? p0 : (c == 1 ? p1 : p2);
+                p[c] -= k0 * firstRow;
+                p[3 + c] -= k1 * firstRow;
+                p[6 + c] -= k2 * firstRow;
+            }
+        }
+    }
+}
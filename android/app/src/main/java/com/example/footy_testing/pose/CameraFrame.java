@@ -0,0 +1,86 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei beschreibt ein einzelnes Kamerabild, wie es vom Flutter-Framework über den
+ * MethodChannel übergeben wird (Y/U/V-Planes, Strides, Rotation und Kamerarichtung). Zeilen der
+ * Y-Plane können breiter als das Bild sein (bytesPerRow), daher wird immer über yRowStride indiziert.
+ * Die Argumente werden einmal ausgelesen und von allen Erkennungs-Helpern gemeinsam genutzt.
+ * timestampNanos ist der Aufnahmezeitpunkt, an dem Zählung und Filter ihre Zeit messen, damit eine
+ * abgespielte Aufnahme dieselben Abstände sieht wie live.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.Map;
+
+public final class CameraFrame {
+    public final byte[] yPlane;
+    public final byte[] uPlane;
+    public final byte[] vPlane;
+
+    public final int width;
+    public final int height;
+
+    /** Bytes pro Zeile der Y-Plane, mindestens width */
+    public final int yRowStride;
+    public final int uvRowStride;
+    public final int uvPixelStride;
+
+    public final int rotation;
+    public final boolean isFrontCamera;
+
+    /** Aufnahmezeitpunkt (System.nanoTime), bei Aufnahmen der aufgezeichnete Zeitstempel */
+    public final long timestampNanos;
+
+    public CameraFrame(byte[] yPlane, byte[] uPlane, byte[] vPlane, int width, int height, int yRowStride,
+            int uvRowStride, int uvPixelStride, int rotation, boolean isFrontCamera) {
+        this(yPlane, uPlane, vPlane, width, height, yRowStride, uvRowStride, uvPixelStride, rotation,
+                isFrontCamera, System.nanoTime());
+    }
+
+    public CameraFrame(byte[] yPlane, byte[] uPlane, byte[] vPlane, int width, int height, int yRowStride,
+            int uvRowStride, int uvPixelStride, int rotation, boolean isFrontCamera, long timestampNanos) {
+        this.yPlane = yPlane;
+        this.uPlane = uPlane;
+        this.vPlane = vPlane;
+        this.width = width;
+        this.height = height;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.rotation = rotation;
+        this.isFrontCamera = isFrontCamera;
+        this.timestampNanos = timestampNanos;
+    }
+
+    /**
+     * Liest ein Kamerabild aus den Argumenten eines MethodChannel-Aufrufs
+     *
+     * @param args Argumente von detectObjects, detectBall oder detectAll
+     * @return Das ausgelesene Kamerabild mit dem jetzigen Zeitpunkt als Aufnahmezeitpunkt
+     */
+    public static CameraFrame fromArguments(Map<String, Object> args) {
+        long timestampNanos = System.nanoTime();
+        byte[] yPlane = (byte[]) args.get("imageBytes");
+        byte[] uPlane = args.containsKey("uPlane") ? (byte[]) args.get("uPlane") : null;
+        byte[] vPlane = args.containsKey("vPlane") ? (byte[]) args.get("vPlane") : null;
+
+        int width = (int) args.get("width");
+        int height = (int) args.get("height");
+
+        int yRowStride = args.containsKey("yRowStride") ? (int) args.get("yRowStride") : width;
+        int uvRowStride = args.containsKey("uvRowStride") ? (int) args.get("uvRowStride") : width;
+        int uvPixelStride = args.containsKey("uvPixelStride") ? (int) args.get("uvPixelStride") : 1;
+
+        int rotation = args.containsKey("rotation") ? (int) args.get("rotation") : 0;
+        boolean isFrontCamera = args.containsKey("isFrontCamera") ? (boolean) args.get("isFrontCamera")
+                : false;
+
+        return new CameraFrame(yPlane, uPlane, vPlane, width, height, yRowStride, uvRowStride, uvPixelStride,
+                rotation, isFrontCamera, timestampNanos);
+    }
+
+    public boolean hasChromaPlanes() {
+        return uPlane != null && vPlane != null;
+    }
+}
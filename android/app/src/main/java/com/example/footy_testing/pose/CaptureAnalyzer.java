@@ -0,0 +1,190 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei analysiert eine Aufnahme von FrameRecorder offline mit einer OfflinePipeline.
+ * Lesen, Vorverarbeitung, Inferenz (MoveNet und YOLOv8), Auswertung und Zählung laufen als
+ * eigene Stufen auf eigenen Threads, sodass z.B. das nächste Bild vorverarbeitet wird, während
+ * das aktuelle im Interpreter ist. Jedes Element der Pipeline hält eigene Planes sowie Ein- und
+ * Ausgabepuffer beider Modelle, die für alle Bilder wiederverwendet werden.
+ *
+ * MoveNet wertet dabei immer das ganze Bild aus und die Keypoints werden nicht geglättet, da
+ * Ausschnitt und Glättung vom Ergebnis des vorherigen Bildes abhängen und die Stufen sonst
+ * nicht überlappen könnten.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.util.Log;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class CaptureAnalyzer {
+    private static final String TAG = "CaptureAnalyzer";
+
+    /** Bilder gleichzeitig in der Pipeline, eines je Stufe und eines in Reserve */
+    private static final int SLOT_COUNT = 6;
+
+    /**
+     * Ein Bild mit allen Puffern, die es auf dem Weg durch die Pipeline braucht
+     */
+    private static final class Slot {
+        int index;
+        long timestampNanos;
+        CameraFrame frame;
+
+        ByteBuffer poseInput;
+        float[][][][] poseOutput;
+        boolean poseValid;
+
+        ByteBuffer ballInput;
+        ByteBuffer ballOutput;
+        FloatBuffer ballOutputFloats;
+        final float[] ballBox = new float[4];
+        float ballScore;
+        boolean ballValid;
+    }
+
+    private final MoveNetHelper poseHelper;
+    private final BallDetectionHelper ballHelper;
+
+    /**
+     * @param poseHelper Kopie aus MoveNetHelper.createOfflineCopy, damit die Inferenz-Stufe
+     *                   nicht auf den Interpretern der Live-Erkennung läuft
+     * @param ballHelper Zugehörige Kopie der Ballerkennung oder null
+     */
+    CaptureAnalyzer(MoveNetHelper poseHelper, BallDetectionHelper ballHelper) {
+        this.poseHelper = poseHelper;
+        this.ballHelper = ballHelper;
+    }
+
+    /**
+     * Analysiert alle Bilder der Aufnahme. Der Jonglier-Zähler ist ein eigener, die Live-Zählung
+     * bleibt unverändert. Gezählt wird mit den aufgezeichneten Zeitstempeln.
+     *
+     * @param file            Aufnahme von FrameRecorder
+     * @param ballConfig      Schwellen der Ballerkennung
+     * @param referenceHeight Vorschauhöhe für die Schwellen der Jonglier-Zählung
+     * @return "frames", "totalMs", "fps", "juggleCount", "juggleEvents" (Zeit relativ zum ersten
+     *         Bild) und je Stufe Bilder, Arbeitszeit und Auslastung unter "stages"
+     */
+    Map<String, Object> analyze(File file, BallDetectionConfig ballConfig, float referenceHeight) throws Exception {
+        if (!poseHelper.isModelLoaded()) {
+            throw new IllegalStateException("MoveNet-Modell nicht geladen");
+        }
+        boolean withBall = ballHelper != null && ballHelper.isModelLoaded();
+
+        FrameReplayer replayer = new FrameReplayer(file);
+        int frameCount = replayer.getFrameCount();
+        long firstTimestampNanos = frameCount > 0 ? replayer.getTimestampNanos(0) : 0;
+
+        TensorSpec ballOutputSpec = withBall ? ballHelper.getFullOutputSpec() : null;
+        TensorSpec ballInputSpec = withBall ? ballHelper.getFullInputSpec() : null;
+
+        List<Slot> slots = new ArrayList<>();
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            Slot slot = new Slot();
+            slot.poseInput = poseHelper.allocateInput();
+            slot.poseOutput = poseHelper.allocateOutput();
+            if (withBall) {
+                slot.ballInput = ballInputSpec.allocateBuffer();
+                slot.ballOutput = ballOutputSpec.allocateBuffer();
+                slot.ballOutputFloats = ballOutputSpec.isFloat() ? slot.ballOutput.asFloatBuffer() : null;
+            }
+            slots.add(slot);
+        }
+
+        // Eigene Vorverarbeitung je Stufe, damit sich die Stufen nicht gegenseitig blockieren
+        YuvPreprocessor posePreprocessor = new YuvPreprocessor();
+        YuvPreprocessor ballPreprocessor = new YuvPreprocessor();
+        YoloDecoder decoder = new YoloDecoder(100);
+        JuggleCounter juggleCounter = new JuggleCounter(referenceHeight);
+        List<Map<String, Object>> juggleEvents = new ArrayList<>();
+
+        int[] nextIndex = { 0 };
+        OfflinePipeline<Slot> pipeline = new OfflinePipeline<>(slots);
+
+        pipeline.addStage("preprocess", slot -> {
+            poseHelper.preprocessFullFrame(posePreprocessor, slot.frame, slot.poseInput);
+            if (withBall) {
+                ballHelper.preprocessFullFrame(ballPreprocessor, slot.frame, slot.ballInput);
+            }
+        });
+
+        pipeline.addStage("inference", slot -> {
+            poseHelper.runModel(slot.poseInput, slot.poseOutput);
+            if (withBall) {
+                ballHelper.runModel(slot.ballInput, slot.ballOutput);
+            }
+        });
+
+        pipeline.addStage("decode", slot -> {
+            slot.poseValid = PackedResult.hasValidKeypoints(slot.poseOutput[0][0]);
+
+            slot.ballValid = false;
+            if (withBall) {
+                int count = ballHelper.decodeOutput(decoder, slot.ballOutput, slot.ballOutputFloats,
+                        ballOutputSpec.shape, ballConfig.confThreshold, ballConfig.iouThreshold);
+                if (count > 0) {
+                    System.arraycopy(decoder.getBox(0), 0, slot.ballBox, 0, 4);
+                    slot.ballScore = decoder.getScore(0);
+                    slot.ballValid = true;
+                }
+            }
+        });
+
+        pipeline.addStage("count", slot -> {
+            if (slot.poseValid) {
+                juggleCounter.updatePose(slot.poseOutput[0][0]);
+            }
+            if (slot.ballValid) {
+                juggleCounter.updateBall((slot.ballBox[1] + slot.ballBox[3]) / 2, slot.ballScore,
+                        slot.timestampNanos / 1_000_000);
+            }
+
+            for (JuggleCounter.JuggleEvent event : juggleCounter.drainEvents()) {
+                Map<String, Object> eventMap = new HashMap<>();
+                eventMap.put("timestampMs", event.timestampMs - firstTimestampNanos / 1_000_000);
+                eventMap.put("frameIndex", slot.index);
+                eventMap.put("method", event.method);
+                eventMap.put("confidence", event.confidence);
+                eventMap.put("count", event.count);
+                juggleEvents.add(eventMap);
+            }
+        });
+
+        Map<String, Object> pipelineStats;
+        try {
+            pipelineStats = pipeline.run("read", slot -> {
+                if (nextIndex[0] >= frameCount) {
+                    return false;
+                }
+                slot.index = nextIndex[0]++;
+                slot.timestampNanos = replayer.getTimestampNanos(slot.index);
+                slot.frame = replayer.getFrame(slot.index, slot.frame);
+                return true;
+            });
+        } finally {
+            posePreprocessor.shutdown();
+            ballPreprocessor.shutdown();
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("frames", pipelineStats.get("items"));
+        stats.put("totalMs", pipelineStats.get("totalMs"));
+        stats.put("fps", pipelineStats.get("itemsPerSecond"));
+        stats.put("stages", pipelineStats.get("stages"));
+        stats.put("ballDetection", withBall);
+        stats.put("juggleCount", juggleCounter.getCount());
+        stats.put("juggleEvents", juggleEvents);
+
+        Log.d(TAG, "Aufnahme analysiert: " + frameCount + " Bilder, " + pipelineStats.get("itemsPerSecond")
+                + " Bilder/s, " + juggleCounter.getCount() + " Juggles");
+        return stats;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei stellt den EventChannel für den Streaming-Modus bereit. Erkennungsergebnisse
+ * werden nicht als Antwort auf einen MethodChannel-Aufruf, sondern als Ereignis mit der
+ * Bild-ID veröffentlicht, sobald die Inferenz abgeschlossen ist. Dadurch muss Flutter nicht
+ * auf jedes Ergebnis warten, bevor das nächste Bild gesendet wird.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+import io.flutter.plugin.common.MethodChannel;
+
+public final class DetectionEventStream implements EventChannel.StreamHandler {
+    private static final String TAG = "DetectionEventStream";
+
+    /** Wird nur auf dem Plattform-Thread gelesen und geschrieben */
+    private EventChannel.EventSink eventSink;
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        eventSink = events;
+        Log.d(TAG, "Ereignis-Stream geöffnet");
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        eventSink = null;
+        Log.d(TAG, "Ereignis-Stream geschlossen");
+    }
+
+    public boolean hasListener() {
+        return eventSink != null;
+    }
+
+    /**
+     * Liefert ein Result, das das Ergebnis eines Bildes mit seiner ID auf dem Stream
+     * veröffentlicht. Kann direkt an InferenceExecutor.submit übergeben werden, die Aufrufe
+     * kommen dort bereits auf dem Plattform-Thread an.
+     *
+     * @param frameId ID des Bildes aus submitFrame
+     */
+    public MethodChannel.Result resultFor(long frameId) {
+        return new MethodChannel.Result() {
+            @Override
+            public void success(Object value) {
+                EventChannel.EventSink sink = eventSink;
+                if (sink == null) {
+                    return;
+                }
+
+                if (value instanceof float[]) {
+                    float[] packed = (float[]) value;
+                    packed[PackedResult.FRAME_ID] = frameId;
+                    sink.success(packed);
+                    return;
+                }
+
+                Map<String, Object> event = new HashMap<>();
+                if (value instanceof Map) {
+                    event.putAll((Map<String, Object>) value);
+                }
+                event.put("frameId", frameId);
+                sink.success(event);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                EventChannel.EventSink sink = eventSink;
+                if (sink == null) {
+                    return;
+                }
+
+                Map<String, Object> event = new HashMap<>();
+                event.put("frameId", frameId);
+                event.put("error", errorMessage);
+                event.put("errorCode", errorCode);
+                sink.success(event);
+            }
+
+            @Override
+            public void notImplemented() {
+                error("NOT_IMPLEMENTED", null, null);
+            }
+        };
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei schreibt die Kamerabilder, die die Helper über den MethodChannel erhalten,
+ * unverändert in eine Aufnahmedatei (Y/U/V-Planes, Strides, Rotation, Kamerarichtung und
+ * Zeitstempel). Die Datei wird nur angehängt; ein abgebrochener letzter Eintrag wird beim
+ * Abspielen ignoriert. Geschrieben wird auf einem eigenen Thread, damit der Plattform-Thread
+ * nicht auf die Festplatte wartet. Abgespielt wird mit FrameReplayer.
+ *
+ * Format (Little Endian):
+ *   Dateikopf:  int MAGIC, int VERSION
+ *   Eintrag:    int Länge des Rests, long Zeitstempel in ns, int width, height, yRowStride,
+ *               uvRowStride, uvPixelStride, rotation, flags, int Länge Y, U, V (-1 = fehlt),
+ *               danach die Bytes
+ *
+ * Version 1 enthielt noch kein yRowStride (Zeilen der Y-Plane immer width Bytes lang).
+ */
+
+package com.example.footy_testing.pose;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public final class FrameRecorder {
+    public static final int MAGIC = 0x43595446; // "FTYC"
+    public static final int VERSION = 2;
+    public static final int FILE_HEADER_SIZE = 8;
+    public static final int RECORD_HEADER_SIZE = 52;
+    /** Eintragskopf der Version 1 ohne yRowStride */
+    public static final int RECORD_HEADER_SIZE_V1 = 48;
+    public static final int FLAG_FRONT_CAMERA = 1;
+
+    /** Bilder, die höchstens auf das Schreiben warten, bevor verworfen wird */
+    private static final int QUEUE_CAPACITY = 16;
+
+    private static final class Pending {
+        final CameraFrame frame;
+        final long timestampNanos;
+
+        Pending(CameraFrame frame, long timestampNanos) {
+            this.frame = frame;
+            this.timestampNanos = timestampNanos;
+        }
+    }
+
+    /** Markiert das Ende der Aufnahme in der Warteschlange */
+    private static final Pending END = new Pending(null, 0);
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+
+    private volatile boolean closed = false;
+    private volatile IOException writeError;
+    private volatile int recordedFrames = 0;
+    private volatile int droppedFrames = 0;
+
+    /**
+     * Öffnet die Aufnahmedatei zum Anhängen und legt den Dateikopf an, falls sie neu ist
+     */
+    public FrameRecorder(File file) throws IOException {
+        this.file = file;
+        this.channel = new FileOutputStream(file, true).getChannel();
+
+        if (channel.size() == 0) {
+            ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            fileHeader.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(fileHeader);
+        }
+
+        writer = new Thread(this::writeLoop, "FrameRecorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getRecordedFrames() {
+        return recordedFrames;
+    }
+
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Reiht ein Bild zum Schreiben ein. Die Planes werden nicht kopiert und dürfen danach nicht
+     * mehr verändert werden (die Arrays vom MethodChannel werden ohnehin nicht wiederverwendet).
+     *
+     * @param timestampNanos Empfangszeitpunkt (System.nanoTime)
+     * @return false, wenn das Bild verworfen wurde, weil das Schreiben nicht hinterherkommt
+     */
+    public boolean record(CameraFrame frame, long timestampNanos) {
+        if (closed) {
+            return false;
+        }
+        if (!queue.offer(new Pending(frame, timestampNanos))) {
+            droppedFrames++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Schreibt die restlichen Bilder und schließt die Datei
+     *
+     * @throws IOException den ersten Schreibfehler der Aufnahme
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Pending pending = queue.take();
+                if (pending == END) {
+                    return;
+                }
+                if (writeError == null) {
+                    try {
+                        write(pending.frame, pending.timestampNanos);
+                        recordedFrames++;
+                    } catch (IOException e) {
+                        writeError = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(CameraFrame frame, long timestampNanos) throws IOException {
+        int yLength = length(frame.yPlane);
+        int uLength = length(frame.uPlane);
+        int vLength = length(frame.vPlane);
+        int payload = RECORD_HEADER_SIZE - 4 + Math.max(0, yLength) + Math.max(0, uLength) + Math.max(0, vLength);
+
+        header.clear();
+        header.putInt(payload)
+                .putLong(timestampNanos)
+                .putInt(frame.width)
+                .putInt(frame.height)
+                .putInt(frame.yRowStride)
+                .putInt(frame.uvRowStride)
+                .putInt(frame.uvPixelStride)
+                .putInt(frame.rotation)
+                .putInt(frame.isFrontCamera ? FLAG_FRONT_CAMERA : 0)
+                .putInt(yLength)
+                .putInt(uLength)
+                .putInt(vLength);
+        header.flip();
+
+        writeFully(header);
+        if (yLength > 0) {
+            writeFully(ByteBuffer.wrap(frame.yPlane));
+        }
+        if (uLength > 0) {
+            writeFully(ByteBuffer.wrap(frame.uPlane));
+        }
+        if (vLength > 0) {
+            writeFully(ByteBuffer.wrap(frame.vPlane));
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int length(byte[] plane) {
+        return plane != null ? plane.length : -1;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei spielt eine Aufnahme von FrameRecorder ab. Die Datei wird read-only in den
+ * Speicher gemappt (in Segmenten bis 1 GB, da ein MappedByteBuffer höchstens 2 GB fasst),
+ * beim Öffnen wird nur ein Index der Einträge aufgebaut. Abgespielt wird mit voller
+ * Geschwindigkeit oder im Takt der aufgezeichneten Zeitstempel. Aufnahmen der Version 1 (ohne
+ * yRowStride) werden weiterhin gelesen.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class FrameReplayer {
+
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * Empfänger der abgespielten Bilder
+     */
+    public interface Listener {
+        /**
+         * @param index          Index des Bildes in der Aufnahme
+         * @param frame          Das Bild; die Planes werden für das nächste Bild wiederverwendet
+         * @param timestampNanos Aufgezeichneter Zeitstempel
+         */
+        void onFrame(int index, CameraFrame frame, long timestampNanos) throws Exception;
+    }
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    /** Pro Eintrag: Segment und Position des Eintragskopfs im Segment */
+    private int[] recordSegment;
+    private int[] recordOffset;
+    private int frameCount;
+    private int version;
+
+    /** Wiederverwendete Planes für replay */
+    private byte[] yBuffer;
+    private byte[] uBuffer;
+    private byte[] vBuffer;
+
+    /**
+     * Mappt die Aufnahme und baut den Index auf
+     *
+     * @throws IOException wenn die Datei keine Aufnahme ist
+     */
+    public FrameReplayer(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+
+            ByteBuffer fileHeader = ByteBuffer.allocate(FrameRecorder.FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (size < FrameRecorder.FILE_HEADER_SIZE || channel.read(fileHeader, 0) < FrameRecorder.FILE_HEADER_SIZE
+                    || fileHeader.getInt(0) != FrameRecorder.MAGIC) {
+                throw new IOException("Keine Aufnahmedatei: " + file);
+            }
+            version = fileHeader.getInt(4);
+            if (version != FrameRecorder.VERSION && version != 1) {
+                throw new IOException("Nicht unterstützte Aufnahme-Version " + version);
+            }
+            int recordHeaderSize = version == 1 ? FrameRecorder.RECORD_HEADER_SIZE_V1
+                    : FrameRecorder.RECORD_HEADER_SIZE;
+
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            long position = FrameRecorder.FILE_HEADER_SIZE;
+            long segmentStart = position;
+            List<long[]> records = new ArrayList<>();
+
+            while (position + 4 <= size) {
+                lengthBuffer.clear();
+                channel.read(lengthBuffer, position);
+                long recordSize = 4L + lengthBuffer.getInt(0);
+                if (recordSize < recordHeaderSize || position + recordSize > size) {
+                    // Abgebrochener letzter Eintrag
+                    break;
+                }
+
+                if (position + recordSize - segmentStart > MAX_SEGMENT_SIZE) {
+                    segments.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, position - segmentStart));
+                    segmentStart = position;
+                }
+
+                records.add(new long[] { segments.size(), position - segmentStart });
+                position += recordSize;
+            }
+
+            if (position > segmentStart) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, position - segmentStart));
+            }
+
+            frameCount = records.size();
+            recordSegment = new int[frameCount];
+            recordOffset = new int[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                recordSegment[i] = (int) records.get(i)[0];
+                recordOffset[i] = (int) records.get(i)[1];
+            }
+        }
+
+        for (MappedByteBuffer segment : segments) {
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public long getTimestampNanos(int index) {
+        return segments.get(recordSegment[index]).getLong(recordOffset[index] + 4);
+    }
+
+    /**
+     * Liest ein Bild mit eigenen Planes
+     */
+    public CameraFrame getFrame(int index) {
+        return readFrame(index, null, null, null);
+    }
+
+    /**
+     * Liest ein Bild und verwendet dabei die Planes eines früheren Bildes wieder, wenn ihre
+     * Länge passt. So hält z.B. jedes Element einer OfflinePipeline seine eigenen Planes.
+     *
+     * @param reuse Früher gelesenes Bild oder null
+     */
+    public CameraFrame getFrame(int index, CameraFrame reuse) {
+        if (reuse == null) {
+            return readFrame(index, null, null, null);
+        }
+        return readFrame(index, reuse.yPlane, reuse.uPlane, reuse.vPlane);
+    }
+
+    /**
+     * Spielt alle Bilder der Reihe nach ab
+     *
+     * @param realTime true: im Takt der Zeitstempel, false: so schnell wie möglich
+     */
+    public void replay(Listener listener, boolean realTime) throws Exception {
+        if (frameCount == 0) {
+            return;
+        }
+
+        long firstTimestamp = getTimestampNanos(0);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < frameCount; i++) {
+            long timestamp = getTimestampNanos(i);
+            if (realTime) {
+                long waitNanos = (timestamp - firstTimestamp) - (System.nanoTime() - start);
+                if (waitNanos > 0) {
+                    Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                }
+            }
+            CameraFrame frame = readFrame(i, yBuffer, uBuffer, vBuffer);
+            yBuffer = frame.yPlane != null ? frame.yPlane : yBuffer;
+            uBuffer = frame.uPlane != null ? frame.uPlane : uBuffer;
+            vBuffer = frame.vPlane != null ? frame.vPlane : vBuffer;
+            listener.onFrame(i, frame, timestamp);
+        }
+    }
+
+    /**
+     * Liest ein Bild, die übergebenen Arrays werden bei passender Länge für die Planes
+     * wiederverwendet (null legt neue an)
+     */
+    private CameraFrame readFrame(int index, byte[] reuseY, byte[] reuseU, byte[] reuseV) {
+        ByteBuffer record = segments.get(recordSegment[index]).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        record.position(recordOffset[index] + 12);
+
+        int width = record.getInt();
+        int height = record.getInt();
+        int yRowStride = version == 1 ? width : record.getInt();
+        int uvRowStride = record.getInt();
+        int uvPixelStride = record.getInt();
+        int rotation = record.getInt();
+        int flags = record.getInt();
+        int yLength = record.getInt();
+        int uLength = record.getInt();
+        int vLength = record.getInt();
+
+        byte[] yPlane = readPlane(record, yLength, reuseY);
+        byte[] uPlane = readPlane(record, uLength, reuseU);
+        byte[] vPlane = readPlane(record, vLength, reuseV);
+
+        return new CameraFrame(yPlane, uPlane, vPlane, width, height, yRowStride, uvRowStride, uvPixelStride,
+                rotation, (flags & FrameRecorder.FLAG_FRONT_CAMERA) != 0, getTimestampNanos(index));
+    }
+
+    /**
+     * @param reuse Array, das bei passender Länge wiederverwendet wird
+     */
+    private static byte[] readPlane(ByteBuffer record, int length, byte[] reuse) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] plane = reuse != null && reuse.length == length ? reuse : new byte[length];
+        record.get(plane);
+        return plane;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei enthält den Trace der Bildverarbeitung. Statt pro Bild Log-Zeilen zu bauen,
+ * werden Ereignisse fester Größe (Typ, Zeitstempel, bis zu fünf float-Werte) in einen
+ * vorab angelegten Ringpuffer geschrieben. Ist der Trace aus, kostet ein Aufruf nur eine
+ * Abfrage auf null; es werden weder Strings gebaut noch Objekte angelegt. Ausgelesen wird auf
+ * Anfrage über den Channel-Aufruf dumpTrace.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class FrameTrace {
+    private static final String TAG = "FrameTrace";
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final int ARG_COUNT = 5;
+
+    /** Eingang eines Bildes in MoveNet: width, height, rotation, frontCamera */
+    public static final int POSE_FRAME = 0;
+    /** MoveNet: preprocessMs, inferenceMs */
+    public static final int POSE_INFERENCE = 1;
+    /** Ein Keypoint: index, x, y, score */
+    public static final int POSE_KEYPOINT = 2;
+    /** Box der Person: minX, minY, maxX, maxY, validKeypoints */
+    public static final int POSE_BOX = 3;
+    /** Ende der Pose-Erkennung: totalMs, inferenceMs, persons */
+    public static final int POSE_DONE = 4;
+    /** Eingang eines Bildes in YOLOv8: width, height, rotation, frontCamera, roi */
+    public static final int BALL_FRAME = 5;
+    /** Ausschnitt im Tracking-Modus: x, y, width, height */
+    public static final int BALL_CROP = 6;
+    /** YOLOv8: inferenceMs */
+    public static final int BALL_INFERENCE = 7;
+    /** Ein erkannter Ball: confidence, x1, y1, x2, y2 */
+    public static final int BALL_DETECTION = 8;
+    /** Ende der kombinierten Erkennung: totalMs, ballMs, poseInferenceMs */
+    public static final int ALL_DONE = 9;
+    /** Gezählter Juggle: count, method, confidence */
+    public static final int JUGGLE = 10;
+    /** Bewegungserkennung: movingBlocks, x1, y1, x2, y2 der Bewegungs-Box */
+    public static final int MOTION = 11;
+
+    private static final String[] EVENT_NAMES = {
+            "poseFrame", "poseInference", "poseKeypoint", "poseBox", "poseDone",
+            "ballFrame", "ballCrop", "ballInference", "ballDetection", "allDone", "juggle", "motion"
+    };
+
+    private static final String[][] ARG_NAMES = {
+            { "width", "height", "rotation", "frontCamera" },
+            { "preprocessMs", "inferenceMs" },
+            { "index", "x", "y", "score" },
+            { "minX", "minY", "maxX", "maxY", "validKeypoints" },
+            { "totalMs", "inferenceMs", "persons" },
+            { "width", "height", "rotation", "frontCamera", "roi" },
+            { "x", "y", "width", "height" },
+            { "inferenceMs" },
+            { "confidence", "x1", "y1", "x2", "y2" },
+            { "totalMs", "ballMs", "poseInferenceMs" },
+            { "count", "method", "confidence" },
+            { "movingBlocks", "x1", "y1", "x2", "y2" }
+    };
+
+    /**
+     * Vorab angelegter Ringpuffer. Mehrere Inferenz-Threads schreiben gleichzeitig, jeder
+     * reserviert seinen Platz über den gemeinsamen Zähler.
+     */
+    private static final class Ring {
+        final int mask;
+        final long[] timestamps;
+        final int[] types;
+        final float[] args;
+        final AtomicLong next = new AtomicLong();
+
+        Ring(int capacity) {
+            mask = capacity - 1;
+            timestamps = new long[capacity];
+            types = new int[capacity];
+            args = new float[capacity * ARG_COUNT];
+        }
+    }
+
+    /** null, wenn der Trace aus ist */
+    private static volatile Ring ring;
+
+    private FrameTrace() {
+    }
+
+    public static boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * Schaltet den Trace ein und verwirft bisherige Ereignisse
+     *
+     * @param capacity Anzahl der Ereignisse, wird auf die nächste Zweierpotenz aufgerundet
+     */
+    public static synchronized void enable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        ring = new Ring(size);
+        Log.d(TAG, "Trace eingeschaltet, Kapazität: " + size);
+    }
+
+    public static synchronized void disable() {
+        ring = null;
+        Log.d(TAG, "Trace ausgeschaltet");
+    }
+
+    public static void record(int type, float a, float b, float c, float d) {
+        record(type, a, b, c, d, 0f);
+    }
+
+    /**
+     * Schreibt ein Ereignis in den Ringpuffer, bei vollem Puffer wird das älteste überschrieben
+     *
+     * @param type Einer der Ereignistypen, die Bedeutung der Werte steht an der Konstante
+     */
+    public static void record(int type, float a, float b, float c, float d, float e) {
+        Ring r = ring;
+        if (r == null) {
+            return;
+        }
+
+        int slot = (int) (r.next.getAndIncrement() & r.mask);
+        int offset = slot * ARG_COUNT;
+        r.args[offset] = a;
+        r.args[offset + 1] = b;
+        r.args[offset + 2] = c;
+        r.args[offset + 3] = d;
+        r.args[offset + 4] = e;
+        r.types[slot] = type;
+        r.timestamps[slot] = System.nanoTime();
+    }
+
+    /**
+     * Liest die Ereignisse in zeitlicher Reihenfolge aus. Während des Auslesens geschriebene
+     * Ereignisse können fehlen oder unvollständig sein.
+     *
+     * @param clear Ereignisse danach verwerfen
+     * @param log   Ereignisse zusätzlich nach Logcat schreiben
+     * @return Ereignisse als Maps mit "event", "timestampNanos" und den benannten Werten
+     */
+    public static synchronized List<Map<String, Object>> dump(boolean clear, boolean log) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        Ring r = ring;
+        if (r == null) {
+            return events;
+        }
+
+        long end = r.next.get();
+        long start = Math.max(0, end - r.mask - 1);
+
+        for (long i = start; i < end; i++) {
+            int slot = (int) (i & r.mask);
+            int type = r.types[slot];
+            String[] argNames = ARG_NAMES[type];
+
+            Map<String, Object> event = new HashMap<>();
+            event.put("event", EVENT_NAMES[type]);
+            event.put("timestampNanos", r.timestamps[slot]);
+            for (int a = 0; a < argNames.length; a++) {
+                event.put(argNames[a], r.args[slot * ARG_COUNT + a]);
+            }
+            events.add(event);
+
+            if (log) {
+                Log.d(TAG, event.toString());
+            }
+        }
+
+        if (clear) {
+            ring = new Ring(r.mask + 1);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei bündelt die Bitmap-basierte Bildkonvertierung (YUV420 zu ARGB-Bitmap), die vorher
+ * in MoveNetHelper und BallDetectionHelper doppelt implementiert war. Im Erkennungspfad wird
+ * inzwischen YuvPreprocessor verwendet; die Bitmap-Variante bleibt als Referenz für den
+ * Vergleichstest (YuvPreprocessorTest) erhalten.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+public final class ImageUtils {
+    private static final String TAG = "ImageUtils";
+
+    private ImageUtils() {
+    }
+
+    /**
+     * Konvertiert ein Kamerabild in eine Bitmap (ohne Rotation)
+     *
+     * @param frame Das Kamerabild
+     * @return ARGB-Bitmap in Sensor-Ausrichtung oder null bei Fehlern
+     */
+    public static Bitmap toBitmap(CameraFrame frame) {
+        if (frame.hasChromaPlanes()) {
+            return yuvPlanesToBitmap(frame.yPlane, frame.uPlane, frame.vPlane,
+                    frame.width, frame.height, frame.uvRowStride, frame.uvPixelStride);
+        }
+        return yuvToBitmap(frame.yPlane, frame.width, frame.height);
+    }
+
+    public static Bitmap yuvPlanesToBitmap(byte[] yPlane, byte[] uPlane, byte[] vPlane,
+            int width, int height, int uvRowStride, int uvPixelStride) {
+        try {
+
+            int[] argb = new int[width * height];
+            YuvConverter.yuv420ToArgb(yPlane, uPlane, vPlane, width, height, uvRowStride, uvPixelStride, argb);
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.setPixels(argb, 0, width, 0, 0, width, height);
+            return bitmap;
+        } catch (Exception e) {
+            Log.e(TAG, "Fehler bei YUV zu Bitmap Konvertierung", e);
+            e.printStackTrace();
+            return yuvToBitmap(yPlane, width, height);
+        }
+    }
+
+    /**
+     * (Fallback)
+     */
+    public static Bitmap yuvToBitmap(byte[] yPlane, int width, int height) {
+        try {
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            int[] pixels = new int[width * height];
+            YuvConverter.grayToArgb(yPlane, width, height, pixels);
+
+            bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+            return bitmap;
+        } catch (Exception e) {
+            Log.e(TAG, "Fehler bei der Erstellung der Grayscale-Bitmap", e);
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei implementiert einen eigenen Inferenz-Thread mit einem Postfach für genau ein
+ * wartendes Bild. Ein neues Bild ersetzt ein noch nicht gestartetes Bild ("latest frame wins"),
+ * verworfene Bilder werden sofort mit einem Zähler beantwortet. Dadurch bleibt der
+ * Plattform-Thread frei und die Latenz ist auf etwa eine Inferenzzeit begrenzt.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+public final class InferenceExecutor {
+    private static final String TAG = "InferenceExecutor";
+
+    /**
+     * Arbeit, die auf dem Inferenz-Thread ausgeführt wird und das Ergebnis für Flutter liefert
+     */
+    public interface FrameTask {
+        Object run();
+    }
+
+    private final String name;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+
+    private FrameTask pendingTask;
+    private MethodChannel.Result pendingResult;
+    private Thread thread;
+
+    private long submittedFrames = 0;
+    private long droppedFrames = 0;
+
+    public InferenceExecutor(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Übergibt ein Bild an den Inferenz-Thread. Ein noch wartendes Bild wird verworfen.
+     *
+     * @param task   Die auszuführende Erkennung
+     * @param result Antwort an Flutter, wird auf dem Plattform-Thread aufgerufen
+     */
+    public void submit(FrameTask task, MethodChannel.Result result) {
+        MethodChannel.Result droppedResult = null;
+        long dropped;
+
+        synchronized (lock) {
+            ensureStarted();
+
+            submittedFrames++;
+            if (pendingResult != null) {
+                droppedResult = pendingResult;
+                droppedFrames++;
+            }
+            dropped = droppedFrames;
+
+            pendingTask = task;
+            pendingResult = result;
+            lock.notifyAll();
+        }
+
+        if (droppedResult != null) {
+            reply(droppedResult, droppedResultMap(dropped));
+        }
+    }
+
+    public long getDroppedFrames() {
+        synchronized (lock) {
+            return droppedFrames;
+        }
+    }
+
+    public long getSubmittedFrames() {
+        synchronized (lock) {
+            return submittedFrames;
+        }
+    }
+
+    /**
+     * Beendet den Inferenz-Thread. Ein wartendes Bild wird als verworfen beantwortet.
+     */
+    public void shutdown() {
+        MethodChannel.Result droppedResult;
+        long dropped;
+
+        synchronized (lock) {
+            droppedResult = pendingResult;
+            if (droppedResult != null) {
+                droppedFrames++;
+            }
+            dropped = droppedFrames;
+            pendingTask = null;
+            pendingResult = null;
+            thread = null;
+            lock.notifyAll();
+        }
+
+        if (droppedResult != null) {
+            reply(droppedResult, droppedResultMap(dropped));
+        }
+    }
+
+    private void ensureStarted() {
+        if (thread != null) {
+            return;
+        }
+
+        thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.start();
+        Log.d(TAG, "Inferenz-Thread gestartet: " + name);
+    }
+
+    private void loop() {
+        while (true) {
+            FrameTask task;
+            MethodChannel.Result result;
+
+            synchronized (lock) {
+                while (thread == Thread.currentThread() && pendingTask == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+
+                if (thread != Thread.currentThread()) {
+                    return;
+                }
+
+                task = pendingTask;
+                result = pendingResult;
+                pendingTask = null;
+                pendingResult = null;
+            }
+
+            try {
+                reply(result, task.run());
+            } catch (Throwable t) {
+                Log.e(TAG, "Fehler auf dem Inferenz-Thread " + name, t);
+                mainHandler.post(() -> result.error("INFERENCE_FAIL", t.getMessage(), null));
+            }
+        }
+    }
+
+    private void reply(MethodChannel.Result result, Object value) {
+        mainHandler.post(() -> result.success(value));
+    }
+
+    private static Map<String, Object> droppedResultMap(long droppedFrames) {
+        Map<String, Object> resultMap = new HashMap<>();
+        resultMap.put("detections", new ArrayList<>());
+        resultMap.put("processingTimeMs", 0);
+        resultMap.put("dropped", true);
+        resultMap.put("droppedFrames", droppedFrames);
+        return resultMap;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei enthält die Umrechnung von 8-Bit-Pixelwerten in quantisierte Eingabewerte
+ * (UINT8/INT8) eines Modells. Skalierung und Nullpunkt des Eingabe-Tensors werden einmalig
+ * in eine Tabelle mit 256 Einträgen je Kanal übersetzt, die Vorverarbeitung schlägt pro
+ * Pixel nur noch nach und rechnet ohne Fließkomma.
+ */
+
+package com.example.footy_testing.pose;
+
+public final class InputQuantizer {
+
+    /** Rohe Pixelwerte 0..255, z.B. für MoveNet mit UINT8-Eingang ohne Quantisierungsparameter */
+    public static final InputQuantizer UINT8 = of(false, 0f, 0);
+
+    private final byte[][] tables = new byte[3][256];
+
+    private InputQuantizer() {
+    }
+
+    /**
+     * Erzeugt die Tabellen für einen quantisierten Eingang. Der reale Wert eines Pixels ist
+     * v / 255 (Modelle mit normierter Eingabe wie YOLOv8) bzw. v, wenn der quantisierte
+     * Bereich deutlich über 0..1 hinausreicht. Ohne Skalierung (scale 0) werden die
+     * Pixelwerte unverändert bzw. bei INT8 um 128 verschoben übernommen.
+     *
+     * @param signed    true für INT8, false für UINT8
+     * @param scale     Skalierung des Eingabe-Tensors
+     * @param zeroPoint Nullpunkt des Eingabe-Tensors
+     */
+    public static InputQuantizer of(boolean signed, float scale, int zeroPoint) {
+        InputQuantizer quantizer = new InputQuantizer();
+        int min = signed ? -128 : 0;
+        int max = signed ? 127 : 255;
+        boolean normalized = scale * 255f <= 2f;
+
+        for (int v = 0; v < 256; v++) {
+            int q;
+            if (scale <= 0f) {
+                q = signed ? v - 128 : v;
+            } else {
+                float real = normalized ? v / 255f : v;
+                q = Math.round(real / scale) + zeroPoint;
+            }
+            byte value = (byte) Math.max(min, Math.min(max, q));
+
+            for (byte[] table : quantizer.tables) {
+                table[v] = value;
+            }
+        }
+        return quantizer;
+    }
+
+    /**
+     * @param channel 0 = R, 1 = G, 2 = B
+     * @return Quantisierter Wert je Pixelwert 0..255
+     */
+    byte[] table(int channel) {
+        return tables[channel];
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei verwaltet die TFLite-Interpreter prozessweit. Die gemappten Modelldateien werden
+ * pro Modellpfad mit Referenzzählung gehalten, freigegebene Interpreter bleiben aufgewärmt in
+ * einem Pool. Wird die FlutterEngine neu erzeugt (z.B. nach einem Neustart der Activity),
+ * übernehmen die neuen Helfer die warmen Interpreter, statt die Modelle neu zu laden. Bei
+ * Speicherdruck (onTrimMemory) wird der Pool geleert.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.util.Log;
+
+import org.tensorflow.lite.support.common.FileUtil;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public final class InterpreterRegistry {
+    private static final String TAG = "InterpreterRegistry";
+
+    private static InterpreterRegistry instance;
+
+    /**
+     * Ein ausgeliehener Interpreter. Er gehört bis zu release exklusiv dem Ausleiher.
+     */
+    public static final class Lease {
+        private final String key;
+        public final BackendSelector.Selection selection;
+
+        /** true, wenn der Interpreter aus dem Pool kommt und schon aufgewärmt ist */
+        public final boolean reused;
+
+        Lease(String key, BackendSelector.Selection selection, boolean reused) {
+            this.key = key;
+            this.selection = selection;
+            this.reused = reused;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = selection.toMap();
+            map.put("reused", reused);
+            return map;
+        }
+    }
+
+    /**
+     * Gemapptes Modell mit Referenzzählung und Pool freier Interpreter
+     */
+    private static final class Entry {
+        final String modelPath;
+        final MappedByteBuffer model;
+        final List<BackendSelector.Selection> idle = new ArrayList<>();
+        int leases = 0;
+
+        Entry(String modelPath, MappedByteBuffer model) {
+            this.modelPath = modelPath;
+            this.model = model;
+        }
+    }
+
+    private final Context context;
+    private final BackendSelector backendSelector;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private InterpreterRegistry(Context context) {
+        this.context = context;
+        this.backendSelector = new BackendSelector(context);
+    }
+
+    public static synchronized InterpreterRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new InterpreterRegistry(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Leiht einen Interpreter für das Modell aus. Ein freier Interpreter aus dem Pool wird
+     * wiederverwendet, sonst wird auf dem gemessenen bzw. gespeicherten Backend ein neuer erzeugt.
+     * Unter dem Lock der Registry werden nur Eintrag und Ausleihe reserviert; Messung und
+     * Erzeugung des Interpreters laufen außerhalb, sodass MoveNet und YOLO parallel laden.
+     *
+     * @param modelPath Pfad der Modelldatei in den Assets
+     * @param allowGpu  GPU-Delegate zulassen
+     * @param reprobe   Backend neu messen, freie Interpreter des Modells werden dabei verworfen
+     */
+    public Lease acquire(String modelPath, boolean allowGpu, boolean reprobe) throws IOException {
+        String key = modelPath + (allowGpu ? "|gpu" : "|cpu");
+
+        Entry entry;
+        BackendSelector.Selection selection = null;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(modelPath, FileUtil.loadMappedFile(context, modelPath));
+                entries.put(key, entry);
+            }
+
+            if (reprobe) {
+                closeIdle(entry);
+            } else if (!entry.idle.isEmpty()) {
+                selection = entry.idle.remove(entry.idle.size() - 1);
+            }
+
+            // Die Ausleihe zählt ab hier, damit release und trimMemory den Eintrag nicht entfernen
+            entry.leases++;
+        }
+
+        boolean reused = selection != null;
+        if (!reused) {
+            try {
+                selection = backendSelector.select(modelPath, entry.model, allowGpu, reprobe);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    entry.leases--;
+                    removeIfUnused(key, entry);
+                }
+                throw e;
+            }
+        }
+
+        Log.d(TAG, modelPath + ": ausgeliehen (" + (reused ? "aus Pool" : "neu") + ")");
+        return new Lease(key, selection, reused);
+    }
+
+    /**
+     * Gibt einen Interpreter zurück
+     *
+     * @param keepWarm true: Interpreter für die nächste Engine im Pool halten, false: sofort
+     *                 schließen. Nach der letzten Rückgabe ohne Pool wird auch das Modell freigegeben.
+     */
+    public synchronized void release(Lease lease, boolean keepWarm) {
+        Entry entry = entries.get(lease.key);
+        if (entry == null) {
+            close(lease.selection);
+            return;
+        }
+
+        entry.leases--;
+        if (keepWarm) {
+            entry.idle.add(lease.selection);
+        } else {
+            close(lease.selection);
+        }
+
+        removeIfUnused(lease.key, entry);
+        Log.d(TAG, entry.modelPath + ": zurückgegeben (" + (keepWarm ? "Pool" : "geschlossen") + "), aktiv: "
+                + entry.leases);
+    }
+
+    /**
+     * Leert den Pool bei Speicherdruck. Ausgeliehene Interpreter bleiben unverändert.
+     *
+     * @param level Stufe aus ComponentCallbacks2.onTrimMemory
+     */
+    public synchronized void trimMemory(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return;
+        }
+
+        int closed = 0;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            closed += entry.idle.size();
+            closeIdle(entry);
+            if (entry.leases <= 0) {
+                iterator.remove();
+            }
+        }
+        Log.d(TAG, "onTrimMemory(" + level + "): " + closed + " freie Interpreter geschlossen");
+    }
+
+    private void removeIfUnused(String key, Entry entry) {
+        if (entry.leases <= 0 && entry.idle.isEmpty()) {
+            entries.remove(key);
+        }
+    }
+
+    private static void closeIdle(Entry entry) {
+        for (BackendSelector.Selection selection : entry.idle) {
+            close(selection);
+        }
+        entry.idle.clear();
+    }
+
+    private static void close(BackendSelector.Selection selection) {
+        selection.interpreter.close();
+        if (selection.gpuDelegate != null) {
+            selection.gpuDelegate.close();
+        }
+    }
+}
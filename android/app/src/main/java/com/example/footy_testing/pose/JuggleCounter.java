@@ -0,0 +1,289 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei implementiert die Jonglier-Zählung direkt neben der Inferenz. Die vier Heuristiken
+ * (Richtungswechsel, Beschleunigungsanalyse, Richtungswechsel-Muster, Schienbein-Interaktion)
+ * entsprechen der bisherigen Dart-Implementierung in enhanced_juggle_counter_page.dart.
+ * Der Verlauf wird in Ringpuffern aus primitiven Arrays gehalten, nach außen gehen nur
+ * Juggle-Ereignisse und der aktuelle Zählerstand.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class JuggleCounter {
+
+    public static final int METHOD_DIRECTION_CHANGE = 1;
+    public static final int METHOD_ACCELERATION = 2;
+    public static final int METHOD_DIRECTION_PATTERN = 3;
+    public static final int METHOD_SHIN_INTERACTION = 4;
+
+    /** Gewichtung der Methoden für die Konfidenz eines Ereignisses (Index = Methode) */
+    private static final float[] METHOD_WEIGHTS = { 0f, 1.0f, 0.8f, 0.7f, 0.9f };
+
+    private static final int MAX_BALL_HISTORY = 15;
+    private static final int MAX_SHIN_HISTORY = 5;
+    private static final long MIN_JUGGLE_INTERVAL_MS = 50;
+    private static final float MIN_KEYPOINT_SCORE = 0.3f;
+
+    // MoveNet-Indizes
+    private static final int LEFT_KNEE = 13;
+    private static final int RIGHT_KNEE = 14;
+    private static final int LEFT_ANKLE = 15;
+    private static final int RIGHT_ANKLE = 16;
+
+    /**
+     * Ein erkannter Juggle
+     */
+    public static final class JuggleEvent {
+        public final long timestampMs;
+        public final int method;
+        public final float confidence;
+        public final int count;
+
+        JuggleEvent(long timestampMs, int method, float confidence, int count) {
+            this.timestampMs = timestampMs;
+            this.method = method;
+            this.confidence = confidence;
+            this.count = count;
+        }
+    }
+
+    /** Höhe in Pixeln, auf die normierte Koordinaten skaliert werden (Schwellen sind in Pixeln) */
+    private float referenceHeight;
+
+    private final float[] ballHeights = new float[MAX_BALL_HISTORY];
+    private int ballHead = 0;
+    private int ballSize = 0;
+
+    private final float[] shinHeights = new float[MAX_SHIN_HISTORY];
+    private int shinHead = 0;
+    private int shinSize = 0;
+    private float kneeLineY = Float.NaN;
+
+    private float lastBallCenterY = Float.NaN;
+    private boolean isMovingDown = false;
+    private long lastJuggleTimeMs = -1;
+    private int count = 0;
+
+    private final List<JuggleEvent> pendingEvents = new ArrayList<>();
+    private final boolean[] directions = new boolean[MAX_BALL_HISTORY];
+
+    /**
+     * @param referenceHeight Höhe der Vorschau in Pixeln, auf die sich die Schwellen beziehen
+     */
+    public JuggleCounter(float referenceHeight) {
+        this.referenceHeight = referenceHeight;
+    }
+
+    public synchronized void setReferenceHeight(float referenceHeight) {
+        this.referenceHeight = referenceHeight;
+    }
+
+    public synchronized float getReferenceHeight() {
+        return referenceHeight;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized void reset() {
+        ballHead = 0;
+        ballSize = 0;
+        shinHead = 0;
+        shinSize = 0;
+        kneeLineY = Float.NaN;
+        lastBallCenterY = Float.NaN;
+        isMovingDown = false;
+        lastJuggleTimeMs = -1;
+        count = 0;
+        pendingEvents.clear();
+    }
+
+    /**
+     * Aktualisiert die Schienbein-Linie aus den MoveNet-Keypoints
+     *
+     * @param keypoints 17 Keypoints als [y, x, score], normiert
+     */
+    public synchronized void updatePose(float[][] keypoints) {
+        float shinY = 0;
+        int sides = 0;
+
+        if (keypoints[LEFT_KNEE][2] > MIN_KEYPOINT_SCORE && keypoints[LEFT_ANKLE][2] > MIN_KEYPOINT_SCORE) {
+            shinY += (keypoints[LEFT_KNEE][0] + keypoints[LEFT_ANKLE][0]) / 2 * referenceHeight;
+            sides++;
+        }
+        if (keypoints[RIGHT_KNEE][2] > MIN_KEYPOINT_SCORE && keypoints[RIGHT_ANKLE][2] > MIN_KEYPOINT_SCORE) {
+            shinY += (keypoints[RIGHT_KNEE][0] + keypoints[RIGHT_ANKLE][0]) / 2 * referenceHeight;
+            sides++;
+        }
+
+        if (sides == 0) {
+            return;
+        }
+
+        shinHeights[shinHead] = shinY / sides;
+        shinHead = (shinHead + 1) % MAX_SHIN_HISTORY;
+        shinSize = Math.min(shinSize + 1, MAX_SHIN_HISTORY);
+
+        // Gewichteter Mittelwert, neuere Werte zählen mehr
+        float weightedSum = 0;
+        float totalWeight = 0;
+        for (int i = 0; i < shinSize; i++) {
+            float weight = i + 1;
+            weightedSum += shinAt(i) * weight;
+            totalWeight += weight;
+        }
+        kneeLineY = weightedSum / totalWeight;
+    }
+
+    /**
+     * Wertet die neue Ballposition aus
+     *
+     * @param centerYNormalized Vertikale Ballmitte, normiert
+     * @param ballConfidence    Konfidenz der Ballerkennung
+     * @param timestampMs       Aufnahmezeitpunkt des Bildes in ms (CameraFrame.timestampNanos)
+     * @return Das erkannte Ereignis oder null
+     */
+    public synchronized JuggleEvent updateBall(float centerYNormalized, float ballConfidence, long timestampMs) {
+        float ballCenterY = centerYNormalized * referenceHeight;
+
+        if (Float.isNaN(lastBallCenterY)) {
+            lastBallCenterY = ballCenterY;
+            return null;
+        }
+
+        boolean enoughTimePassed = lastJuggleTimeMs < 0 || timestampMs - lastJuggleTimeMs > MIN_JUGGLE_INTERVAL_MS;
+
+        boolean isNowMovingDown = ballCenterY > lastBallCenterY;
+        boolean directionChanged = isNowMovingDown != isMovingDown;
+
+        addBallHeight(ballCenterY);
+
+        int method = 0;
+
+        // Methode 1: Richtungswechsel von abwärts nach aufwärts mit ausreichendem Bewegungsbereich
+        if (isMovingDown && !isNowMovingDown && enoughTimePassed && ballSize >= 3) {
+            if (ballMax() - ballMin() > 15) {
+                method = METHOD_DIRECTION_CHANGE;
+            }
+        }
+
+        // Methode 2: Beschleunigungsanalyse der letzten vier Positionen
+        if (method == 0 && ballSize >= 4 && enoughTimePassed) {
+            float y0 = ballAt(ballSize - 4);
+            float y1 = ballAt(ballSize - 3);
+            float y2 = ballAt(ballSize - 2);
+            float y3 = ballAt(ballSize - 1);
+
+            float v01 = y1 - y0;
+            float v12 = y2 - y1;
+            float v23 = y3 - y2;
+
+            float acc1 = v12 - v01;
+            float acc2 = v23 - v12;
+
+            if ((acc1 > 1 && acc2 < -8 && v23 < 0) || (acc1 > 0 && acc2 < -12)) {
+                method = METHOD_ACCELERATION;
+            }
+        }
+
+        // Methode 3: Muster aus Richtungswechseln im Verlauf
+        if (method == 0 && ballSize >= 5 && enoughTimePassed) {
+            int directionCount = ballSize - 1;
+            for (int i = 0; i < directionCount; i++) {
+                directions[i] = ballAt(i) < ballAt(i + 1);
+            }
+
+            boolean hasChange = false;
+            for (int i = 0; i < directionCount - 1; i++) {
+                if (directions[i] != directions[i + 1]) {
+                    hasChange = true;
+                    break;
+                }
+            }
+
+            float totalRange = ballMax() - ballMin();
+            if (hasChange && totalRange > 10) {
+                boolean lastMovementUp = !directions[directionCount - 1];
+                if (lastMovementUp || totalRange > 25) {
+                    method = METHOD_DIRECTION_PATTERN;
+                }
+            }
+        }
+
+        // Methode 4: Aufwärtsbewegung nahe der Schienbein-Linie
+        if (method == 0 && !Float.isNaN(kneeLineY) && ballSize >= 3 && enoughTimePassed) {
+            boolean isNearKneeLine = Math.abs(kneeLineY - ballCenterY) < 50;
+            boolean hasUpwardMovement = ballAt(ballSize - 1) - ballAt(ballSize - 3) < -5;
+
+            if (isNearKneeLine && hasUpwardMovement && directionChanged && !isNowMovingDown) {
+                method = METHOD_SHIN_INTERACTION;
+            }
+        }
+
+        isMovingDown = isNowMovingDown;
+        lastBallCenterY = ballCenterY;
+
+        if (method == 0) {
+            return null;
+        }
+
+        count++;
+        lastJuggleTimeMs = timestampMs;
+        ballHead = 0;
+        ballSize = 0;
+
+        JuggleEvent event = new JuggleEvent(timestampMs, method, ballConfidence * METHOD_WEIGHTS[method], count);
+        pendingEvents.add(event);
+        return event;
+    }
+
+    /**
+     * Liefert alle seit dem letzten Aufruf erkannten Ereignisse und leert die Liste
+     */
+    public synchronized List<JuggleEvent> drainEvents() {
+        if (pendingEvents.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        List<JuggleEvent> events = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+        return events;
+    }
+
+    private void addBallHeight(float y) {
+        ballHeights[ballHead] = y;
+        ballHead = (ballHead + 1) % MAX_BALL_HISTORY;
+        ballSize = Math.min(ballSize + 1, MAX_BALL_HISTORY);
+    }
+
+    /** i-ter Wert des Ballverlaufs, 0 ist der älteste */
+    private float ballAt(int i) {
+        int start = (ballHead - ballSize + MAX_BALL_HISTORY) % MAX_BALL_HISTORY;
+        return ballHeights[(start + i) % MAX_BALL_HISTORY];
+    }
+
+    private float shinAt(int i) {
+        int start = (shinHead - shinSize + MAX_SHIN_HISTORY) % MAX_SHIN_HISTORY;
+        return shinHeights[(start + i) % MAX_SHIN_HISTORY];
+    }
+
+    private float ballMin() {
+        float min = Float.MAX_VALUE;
+        for (int i = 0; i < ballSize; i++) {
+            min = Math.min(min, ballAt(i));
+        }
+        return min;
+    }
+
+    private float ballMax() {
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < ballSize; i++) {
+            max = Math.max(max, ballAt(i));
+        }
+        return max;
+    }
+}
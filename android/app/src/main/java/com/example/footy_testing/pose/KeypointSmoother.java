@@ -0,0 +1,124 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei glättet die MoveNet-Keypoints über mehrere Bilder mit einem One-Euro-Filter.
+ * Bei langsamer Bewegung wird stark geglättet (kein Zittern an Knie und Knöchel), bei
+ * schneller Bewegung steigt die Grenzfrequenz, damit die Keypoints nicht hinterherhängen.
+ * Der Zustand liegt in primitiven Arrays, pro Bild wird nichts angelegt.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.Map;
+
+public final class KeypointSmoother {
+    public static final float DEFAULT_MIN_CUTOFF = 1.0f;
+    public static final float DEFAULT_BETA = 10.0f;
+    public static final float DEFAULT_DERIVATE_CUTOFF = 1.0f;
+
+    /** Nach einer längeren Pause wird neu begonnen statt über die Lücke zu glätten */
+    private static final double MAX_GAP_SECONDS = 0.5;
+
+    private final float minCutoff;
+    private final float beta;
+    private final float derivateCutoff;
+
+    /** Gefilterte Werte und Ableitungen, je Keypoint y und x hintereinander */
+    private final float[] values;
+    private final float[] derivates;
+
+    private boolean initialized = false;
+    private long lastTimestampNanos;
+
+    /**
+     * @param keypointCount  Anzahl der Keypoints
+     * @param minCutoff      Grenzfrequenz in Hz bei Stillstand, kleiner = glatter
+     * @param beta           Anstieg der Grenzfrequenz mit der Geschwindigkeit, größer = weniger Verzögerung
+     * @param derivateCutoff Grenzfrequenz in Hz für die Geschwindigkeitsschätzung
+     */
+    public KeypointSmoother(int keypointCount, float minCutoff, float beta, float derivateCutoff) {
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivateCutoff = derivateCutoff;
+        this.values = new float[keypointCount * 2];
+        this.derivates = new float[keypointCount * 2];
+    }
+
+    /**
+     * Liest die Filterparameter aus den Argumenten von loadModels
+     *
+     * @return Der Filter oder null, wenn die Glättung nicht aktiviert ist
+     */
+    public static KeypointSmoother fromArguments(Map<String, Object> args, int keypointCount) {
+        if (!(args.get("smoothing") instanceof Boolean) || !(Boolean) args.get("smoothing")) {
+            return null;
+        }
+
+        Object minCutoff = args.get("smoothingMinCutoff");
+        Object beta = args.get("smoothingBeta");
+        Object derivateCutoff = args.get("smoothingDerivateCutoff");
+
+        return new KeypointSmoother(keypointCount,
+                minCutoff instanceof Number ? ((Number) minCutoff).floatValue() : DEFAULT_MIN_CUTOFF,
+                beta instanceof Number ? ((Number) beta).floatValue() : DEFAULT_BETA,
+                derivateCutoff instanceof Number ? ((Number) derivateCutoff).floatValue() : DEFAULT_DERIVATE_CUTOFF);
+    }
+
+    /**
+     * @return Neuer Filter mit denselben Parametern, ohne den Zustand dieses Filters
+     */
+    public KeypointSmoother copy() {
+        return new KeypointSmoother(values.length / 2, minCutoff, beta, derivateCutoff);
+    }
+
+    public void reset() {
+        initialized = false;
+    }
+
+    /**
+     * Glättet die Koordinaten in-place, die Konfidenzen bleiben unverändert
+     *
+     * @param keypoints      Keypoints als [y, x, score], normiert
+     * @param timestampNanos Zeitpunkt des Bildes (System.nanoTime)
+     */
+    public void apply(float[][] keypoints, long timestampNanos) {
+        double dt = (timestampNanos - lastTimestampNanos) / 1e9;
+        lastTimestampNanos = timestampNanos;
+
+        if (!initialized || dt <= 0 || dt > MAX_GAP_SECONDS) {
+            for (int i = 0; i < keypoints.length; i++) {
+                values[i * 2] = keypoints[i][0];
+                values[i * 2 + 1] = keypoints[i][1];
+                derivates[i * 2] = 0;
+                derivates[i * 2 + 1] = 0;
+            }
+            initialized = true;
+            return;
+        }
+
+        float derivateAlpha = alpha(derivateCutoff, dt);
+        for (int i = 0; i < keypoints.length; i++) {
+            keypoints[i][0] = filter(i * 2, keypoints[i][0], dt, derivateAlpha);
+            keypoints[i][1] = filter(i * 2 + 1, keypoints[i][1], dt, derivateAlpha);
+        }
+    }
+
+    private float filter(int index, float value, double dt, float derivateAlpha) {
+        float previous = values[index];
+
+        float derivate = (float) ((value - previous) / dt);
+        derivates[index] += derivateAlpha * (derivate - derivates[index]);
+
+        float cutoff = minCutoff + beta * Math.abs(derivates[index]);
+        float filtered = previous + alpha(cutoff, dt) * (value - previous);
+
+        values[index] = filtered;
+        return filtered;
+    }
+
+    /** Glättungsfaktor eines Tiefpasses erster Ordnung mit Grenzfrequenz cutoff */
+    private static float alpha(float cutoff, double dt) {
+        double tau = 1.0 / (2 * Math.PI * cutoff);
+        return (float) (1.0 / (1.0 + tau / dt));
+    }
+}
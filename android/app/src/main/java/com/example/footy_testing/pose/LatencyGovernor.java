@@ -0,0 +1,165 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei regelt den Aufwand der Erkennung anhand der gemessenen Bildlaufzeit. Liegt der
+ * geglättete Wert über dem Ziel, wird eine günstigere Stufe gewählt (kleinere YOLO-Eingabe,
+ * dann größere Inferenz-Schrittweiten für Ball und Pose), liegt er deutlich darunter, wird
+ * wieder eine teurere gewählt. Unterschiedliche Schwellen für beide Richtungen, eine Mindest-
+ * dauer und eine Beruhigungsphase nach jedem Wechsel verhindern ein Hin- und Herspringen.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class LatencyGovernor {
+
+    /** Stufen von teuer nach günstig: YOLO-Eingabegröße, Ball-Schrittweite, Pose-Schrittweite */
+    private static final int[][] LEVELS = {
+            { 640, 1, 1 },
+            { 480, 1, 1 },
+            { 320, 1, 1 },
+            { 320, 2, 1 },
+            { 320, 2, 2 },
+            { 320, 3, 2 }
+    };
+
+    private static final double EWMA_ALPHA = 0.1;
+
+    /** Günstigere Stufe, wenn der Mittelwert länger als DOWNGRADE_FRAMES über Ziel * 1,1 liegt */
+    private static final double DOWNGRADE_FACTOR = 1.1;
+    private static final int DOWNGRADE_FRAMES = 5;
+
+    /** Teurere Stufe erst, wenn der Mittelwert UPGRADE_FRAMES lang unter Ziel * 0,7 liegt */
+    private static final double UPGRADE_FACTOR = 0.7;
+    private static final int UPGRADE_FRAMES = 30;
+
+    /** Bilder nach einem Wechsel, die nur in den Mittelwert eingehen */
+    private static final int SETTLE_FRAMES = 10;
+
+    private float targetMs = 0f;
+    private int level = 0;
+    private double averageMs = 0;
+    private boolean hasAverage = false;
+    private int framesOver = 0;
+    private int framesUnder = 0;
+    private int settleFrames = 0;
+    private int levelChanges = 0;
+
+    /** false, wenn der Interpreter nicht umskaliert werden kann (z.B. GPU-Delegate) */
+    private boolean resizable = true;
+
+    /**
+     * @param targetMs Ziel-Laufzeit pro Bild, 0 schaltet die Regelung ab und setzt die Stufe zurück
+     */
+    public synchronized void setTargetMs(float targetMs) {
+        if (targetMs == this.targetMs) {
+            return;
+        }
+        this.targetMs = Math.max(0f, targetMs);
+        if (this.targetMs == 0f) {
+            level = 0;
+        }
+        resetWindow();
+    }
+
+    public synchronized boolean isEnabled() {
+        return targetMs > 0f;
+    }
+
+    /**
+     * Meldet die Laufzeit eines verarbeiteten Bildes und wechselt ggf. die Stufe
+     *
+     * @param nanos Laufzeit des Bildes auf dem Inferenz-Thread
+     */
+    public synchronized void onFrame(long nanos) {
+        if (targetMs <= 0f) {
+            return;
+        }
+
+        double ms = nanos / 1e6;
+        averageMs = hasAverage ? averageMs + EWMA_ALPHA * (ms - averageMs) : ms;
+        hasAverage = true;
+
+        if (settleFrames > 0) {
+            settleFrames--;
+            return;
+        }
+
+        if (averageMs > targetMs * DOWNGRADE_FACTOR) {
+            framesUnder = 0;
+            if (++framesOver >= DOWNGRADE_FRAMES && level < LEVELS.length - 1) {
+                changeLevel(level + 1);
+            }
+        } else if (averageMs < targetMs * UPGRADE_FACTOR) {
+            framesOver = 0;
+            if (++framesUnder >= UPGRADE_FRAMES && level > 0) {
+                changeLevel(level - 1);
+            }
+        } else {
+            framesOver = 0;
+            framesUnder = 0;
+        }
+    }
+
+    /**
+     * @param fullSize Eingabegröße des Modells
+     * @return YOLO-Eingabegröße der aktuellen Stufe, höchstens fullSize
+     */
+    public synchronized int getInputSize(int fullSize) {
+        if (targetMs <= 0f || !resizable) {
+            return fullSize;
+        }
+        return Math.min(fullSize, LEVELS[level][0]);
+    }
+
+    public synchronized int getBallStride() {
+        return targetMs > 0f ? LEVELS[level][1] : 1;
+    }
+
+    public synchronized int getPoseStride() {
+        return targetMs > 0f ? LEVELS[level][2] : 1;
+    }
+
+    public synchronized int getLevel() {
+        return targetMs > 0f ? level : 0;
+    }
+
+    /**
+     * Die Eingabegröße bleibt danach unverändert, geregelt werden nur noch die Schrittweiten
+     */
+    public synchronized void disableResize() {
+        resizable = false;
+    }
+
+    /**
+     * @param fullSize Eingabegröße des Modells
+     * @return Aktuelle Stufe mit Eingabegröße, Schrittweiten, Ziel und geglätteter Laufzeit
+     */
+    public synchronized Map<String, Object> toMap(int fullSize) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("enabled", targetMs > 0f);
+        map.put("level", getLevel());
+        map.put("inputSize", getInputSize(fullSize));
+        map.put("ballStride", getBallStride());
+        map.put("poseStride", getPoseStride());
+        map.put("targetMs", (double) targetMs);
+        map.put("averageMs", averageMs);
+        map.put("levelChanges", levelChanges);
+        return map;
+    }
+
+    private void changeLevel(int newLevel) {
+        level = newLevel;
+        levelChanges++;
+        resetWindow();
+        settleFrames = SETTLE_FRAMES;
+    }
+
+    private void resetWindow() {
+        framesOver = 0;
+        framesUnder = 0;
+        settleFrames = 0;
+    }
+}
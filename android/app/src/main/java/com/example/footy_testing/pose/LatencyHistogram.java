@@ -0,0 +1,133 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei enthält ein Latenz-Histogramm mit festen Buckets, in das der Inferenz-Thread
+ * ohne Sperren schreiben kann, während der Plattform-Thread Perzentile ausliest. Die Buckets
+ * sind log-linear (8 Unterteilungen je Zweierpotenz ab 16 µs, darunter 1 µs breit), der
+ * Fehler der Perzentile liegt damit unter 12,5 %.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT_MICROS = 2 * SUB_BUCKETS;
+    private static final int LINEAR_LIMIT_BITS = 4;
+
+    /** Obergrenze 2^30 µs (knapp 18 Minuten), größere Werte landen im letzten Bucket */
+    private static final int MAX_EXPONENT = 30;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT_MICROS + (MAX_EXPONENT - LINEAR_LIMIT_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos Dauer in Nanosekunden (System.nanoTime-Differenz)
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        buckets.incrementAndGet(bucketIndex(nanos / 1000));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // Erneut versuchen, ein anderer Thread hat gerade ein neues Maximum geschrieben
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @param quantile Zwischen 0 und 1, z.B. 0.99
+     * @return Obergrenze des Buckets, in dem das Quantil liegt, höchstens das Maximum; 0 ohne Werte
+     */
+    public long getPercentileNanos(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBoundMicros(i) * 1000, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long total = count.get();
+        return total > 0 ? (double) sumNanos.get() / total : 0;
+    }
+
+    /**
+     * Setzt alle Werte zurück. Gleichzeitig geschriebene Werte können dabei teilweise erhalten
+     * bleiben, was für das Zurücksetzen zwischen Messungen genügt.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sumNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return Anzahl sowie Mittelwert, p50, p90, p99 und Maximum in ms
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("count", getCount());
+        map.put("meanMs", getMeanNanos() / 1e6);
+        map.put("p50Ms", getPercentileNanos(0.50) / 1e6);
+        map.put("p90Ms", getPercentileNanos(0.90) / 1e6);
+        map.put("p99Ms", getPercentileNanos(0.99) / 1e6);
+        map.put("maxMs", getMaxNanos() / 1e6);
+        return map;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < LINEAR_LIMIT_MICROS) {
+            return (int) micros;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT_MICROS + (exponent - LINEAR_LIMIT_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBoundMicros(int index) {
+        if (index < LINEAR_LIMIT_MICROS) {
+            return index + 1;
+        }
+
+        int exponent = (index - LINEAR_LIMIT_MICROS) / SUB_BUCKETS + LINEAR_LIMIT_BITS;
+        int subBucket = (index - LINEAR_LIMIT_MICROS) % SUB_BUCKETS;
+        return (1L << exponent) + ((long) (subBucket + 1) << (exponent - SUB_BUCKET_BITS));
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei lädt ein Modell auf einem eigenen Hintergrund-Thread und führt danach eine
+ * Aufwärm-Inferenz mit synthetischer Eingabe aus. Da MoveNet und YOLO jeweils einen eigenen
+ * Loader haben, laden beide Modelle gleichzeitig, und das erste echte Bild bezahlt weder
+ * Delegate-Initialisierung noch erste Speicherreservierung. Zustand und Zeiten werden für
+ * getModelStatus bereitgehalten.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+public final class ModelLoader {
+    private static final String TAG = "ModelLoader";
+
+    public static final String STATE_IDLE = "idle";
+    public static final String STATE_LOADING = "loading";
+    public static final String STATE_READY = "ready";
+    public static final String STATE_FAILED = "failed";
+
+    /**
+     * Ein Ladeschritt, läuft auf dem Loader-Thread
+     */
+    public interface Step {
+        void run() throws Exception;
+    }
+
+    private final String name;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private String state = STATE_IDLE;
+    private long loadTimeMs;
+    private long warmupTimeMs;
+    private String error;
+    private Map<String, Object> backendInfo = new HashMap<>();
+
+    /** Wird bei jedem start und reset erhöht, ältere Ladevorgänge sind damit überholt */
+    private long generation = 0;
+
+    /**
+     * @param name Name des Modells, auch für den Thread-Namen
+     */
+    public ModelLoader(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Startet Laden und Aufwärmen im Hintergrund. Das Ergebnis (true oder LOAD_FAIL) wird auf
+     * dem Plattform-Thread an result gemeldet. Wird der Loader während des Ladens mit reset
+     * zurückgesetzt oder erneut gestartet, meldet der alte Ladevorgang LOAD_CANCELLED, wird
+     * nicht mehr ready und gibt über discard frei, was er bereits angelegt hat.
+     *
+     * @param load    Erzeugt Interpreter und Puffer
+     * @param warmUp  Führt eine Inferenz mit synthetischer Eingabe aus
+     * @param discard Gibt das Ergebnis eines überholten Ladevorgangs frei
+     */
+    public void start(Step load, Step warmUp, Step discard, MethodChannel.Result result) {
+        long loadGeneration;
+        synchronized (this) {
+            state = STATE_LOADING;
+            error = null;
+            loadGeneration = ++generation;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                long loadStart = System.currentTimeMillis();
+                load.run();
+                if (isStale(loadGeneration)) {
+                    cancel(discard, result);
+                    return;
+                }
+
+                long warmupStart = System.currentTimeMillis();
+                warmUp.run();
+                long end = System.currentTimeMillis();
+
+                boolean current;
+                synchronized (this) {
+                    current = generation == loadGeneration;
+                    if (current) {
+                        state = STATE_READY;
+                        loadTimeMs = warmupStart - loadStart;
+                        warmupTimeMs = end - warmupStart;
+                    }
+                }
+                if (!current) {
+                    cancel(discard, result);
+                    return;
+                }
+                Log.d(TAG, name + " bereit - Laden: " + (warmupStart - loadStart) + "ms, Aufwärmen: "
+                        + (end - warmupStart) + "ms");
+                mainHandler.post(() -> result.success(true));
+            } catch (Throwable t) {
+                synchronized (this) {
+                    if (generation == loadGeneration) {
+                        state = STATE_FAILED;
+                        error = t.getMessage();
+                    }
+                }
+                Log.e(TAG, "Fehler beim Laden von " + name, t);
+                mainHandler.post(() -> result.error("LOAD_FAIL", t.getMessage(), null));
+            }
+        }, name + "Loader");
+        thread.start();
+    }
+
+    private synchronized boolean isStale(long loadGeneration) {
+        return generation != loadGeneration;
+    }
+
+    /**
+     * Gibt das Ergebnis eines überholten Ladevorgangs frei und meldet den Abbruch
+     */
+    private void cancel(Step discard, MethodChannel.Result result) {
+        Log.d(TAG, name + ": Laden abgebrochen, Loader wurde zurückgesetzt");
+        try {
+            discard.run();
+        } catch (Throwable t) {
+            Log.e(TAG, "Fehler beim Verwerfen von " + name, t);
+        }
+        mainHandler.post(() -> result.error("LOAD_CANCELLED", name + " wurde während des Ladens freigegeben", null));
+    }
+
+    public synchronized boolean isReady() {
+        return STATE_READY.equals(state);
+    }
+
+    /**
+     * @return true, solange ein Ladevorgang läuft
+     */
+    public synchronized boolean isLoading() {
+        return STATE_LOADING.equals(state);
+    }
+
+    public synchronized void setBackendInfo(Map<String, Object> backendInfo) {
+        this.backendInfo = backendInfo;
+    }
+
+    public synchronized Map<String, Object> getBackendInfo() {
+        return backendInfo;
+    }
+
+    /**
+     * Nach dispose muss neu geladen werden. Ein laufender Ladevorgang wird damit überholt.
+     */
+    public synchronized void reset() {
+        state = STATE_IDLE;
+        generation++;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("model", name);
+        map.put("state", state);
+        map.put("loadTimeMs", loadTimeMs);
+        map.put("warmupTimeMs", warmupTimeMs);
+        map.put("backend", backendInfo.get("backend"));
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei erkennt Bewegung im Kamerabild anhand der Y-Plane. Das Bild wird in ein stark
+ * verkleinertes Helligkeitsbild in Anzeige-Ausrichtung (gedreht, bei der Frontkamera gespiegelt)
+ * abgetastet und blockweise mit einem Referenzbild verglichen. Blöcke, deren absolute
+ * Differenz über dem Rauschen liegt, gelten als bewegt und ergeben eine Bewegungs-Box in
+ * denselben normierten Koordinaten wie die Ball-Boxen. Beide Puffer werden wiederverwendet.
+ */
+
+package com.example.footy_testing.pose;
+
+public final class MotionDetector {
+
+    /** Abtastpunkte entlang der kürzeren Bildseite */
+    private static final int SAMPLES_SHORT_SIDE = 48;
+
+    /** Kantenlänge eines Blocks in Abtastpunkten */
+    private static final int BLOCK_SIZE = 4;
+
+    /** Differenzen bis zu diesem Wert gelten als Sensorrauschen */
+    private static final int NOISE_FLOOR = 12;
+
+    /** Summe der Differenzen über dem Rauschen, ab der ein Block als bewegt gilt */
+    private static final int BLOCK_THRESHOLD = 64;
+
+    /** Ab diesem Anteil bewegter Blöcke (Kameraschwenk, Belichtung) gilt das ganze Bild als bewegt */
+    private static final float GLOBAL_MOTION_FRACTION = 0.6f;
+
+    private int[] sampleIndex = new int[0];
+    private byte[] current = new byte[0];
+    private byte[] reference = new byte[0];
+    private boolean hasReference = false;
+
+    private int gridWidth;
+    private int gridHeight;
+    private int cachedWidth = -1;
+    private int cachedHeight = -1;
+    private int cachedRowStride = -1;
+    private int cachedRotation = -1;
+    private boolean cachedMirror;
+
+    private int movingBlocks;
+    private int totalBlocks;
+    private final float[] motionBox = new float[4];
+
+    /**
+     * Tastet das Bild ab und vergleicht es mit dem Referenzbild. Das Referenzbild wird erst mit
+     * {@link #commit()} ersetzt, so bleibt langsame Bewegung über mehrere Bilder sichtbar.
+     *
+     * @param frame Das Kamerabild
+     * @return true, wenn sich mindestens ein Block bewegt hat oder noch kein Referenzbild existiert
+     */
+    public boolean detect(CameraFrame frame) {
+        boolean layoutChanged = updateSampling(frame.width, frame.height, frame.yRowStride, frame.rotation,
+                frame.isFrontCamera);
+        if (layoutChanged) {
+            hasReference = false;
+        }
+
+        byte[] yPlane = frame.yPlane;
+        int[] index = sampleIndex;
+        byte[] samples = current;
+        int count = gridWidth * gridHeight;
+        for (int i = 0; i < count; i++) {
+            samples[i] = yPlane[index[i]];
+        }
+
+        if (!hasReference) {
+            movingBlocks = totalBlocks;
+            setBox(0f, 0f, 1f, 1f);
+            return true;
+        }
+
+        compareBlocks();
+        return movingBlocks > 0;
+    }
+
+    /**
+     * Übernimmt das zuletzt abgetastete Bild als Referenz, z.B. nachdem darauf eine Inferenz lief
+     */
+    public void commit() {
+        byte[] swap = reference;
+        reference = current;
+        current = swap;
+        hasReference = true;
+    }
+
+    public void reset() {
+        hasReference = false;
+        movingBlocks = 0;
+    }
+
+    public boolean hasMotion() {
+        return movingBlocks > 0;
+    }
+
+    /**
+     * @return true, wenn so viele Blöcke bewegt sind, dass die Box keinen Ausschnitt eingrenzt
+     */
+    public boolean isGlobalMotion() {
+        return movingBlocks >= totalBlocks * GLOBAL_MOTION_FRACTION;
+    }
+
+    public int getMovingBlocks() {
+        return movingBlocks;
+    }
+
+    /**
+     * @return Box um alle bewegten Blöcke als normierte x1, y1, x2, y2 im gedrehten Bild, nur
+     *         gültig, solange {@link #hasMotion()} true ist
+     */
+    public float[] getMotionBox() {
+        return motionBox;
+    }
+
+    private void compareBlocks() {
+        int blocksX = (gridWidth + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blocksY = (gridHeight + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        byte[] samples = current;
+        byte[] previous = reference;
+
+        int moving = 0;
+        int minBlockX = blocksX, minBlockY = blocksY, maxBlockX = -1, maxBlockY = -1;
+
+        for (int by = 0; by < blocksY; by++) {
+            int rowStart = by * BLOCK_SIZE;
+            int rowEnd = Math.min(gridHeight, rowStart + BLOCK_SIZE);
+
+            for (int bx = 0; bx < blocksX; bx++) {
+                int columnStart = bx * BLOCK_SIZE;
+                int columnEnd = Math.min(gridWidth, columnStart + BLOCK_SIZE);
+
+                int sum = 0;
+                for (int y = rowStart; y < rowEnd; y++) {
+                    int offset = y * gridWidth;
+                    for (int x = columnStart; x < columnEnd; x++) {
+                        int difference = Math.abs((samples[offset + x] & 0xFF) - (previous[offset + x] & 0xFF));
+                        if (difference > NOISE_FLOOR) {
+                            sum += difference - NOISE_FLOOR;
+                        }
+                    }
+                }
+
+                if (sum >= BLOCK_THRESHOLD) {
+                    moving++;
+                    minBlockX = Math.min(minBlockX, bx);
+                    minBlockY = Math.min(minBlockY, by);
+                    maxBlockX = Math.max(maxBlockX, bx);
+                    maxBlockY = Math.max(maxBlockY, by);
+                }
+            }
+        }
+
+        movingBlocks = moving;
+        if (moving > 0) {
+            setBox((float) (minBlockX * BLOCK_SIZE) / gridWidth,
+                    (float) (minBlockY * BLOCK_SIZE) / gridHeight,
+                    Math.min(1f, (float) ((maxBlockX + 1) * BLOCK_SIZE) / gridWidth),
+                    Math.min(1f, (float) ((maxBlockY + 1) * BLOCK_SIZE) / gridHeight));
+        }
+    }
+
+    private void setBox(float x1, float y1, float x2, float y2) {
+        motionBox[0] = x1;
+        motionBox[1] = y1;
+        motionBox[2] = x2;
+        motionBox[3] = y2;
+    }
+
+    /**
+     * Berechnet für jeden Abtastpunkt in Anzeige-Ausrichtung den Index in der Y-Plane, mit
+     * derselben Drehung und Spiegelung wie YuvPreprocessor
+     *
+     * @param rowStride Bytes pro Zeile der Y-Plane
+     * @return true, wenn sich Bildgröße, Zeilenlänge, Drehung oder Spiegelung geändert haben
+     */
+    private boolean updateSampling(int width, int height, int rowStride, int rotation, boolean mirror) {
+        if (width == cachedWidth && height == cachedHeight && rowStride == cachedRowStride
+                && rotation == cachedRotation && mirror == cachedMirror) {
+            return false;
+        }
+
+        boolean transposed = rotation == 90 || rotation == 270;
+        int rotatedWidth = transposed ? height : width;
+        int rotatedHeight = transposed ? width : height;
+
+        int step = Math.max(1, Math.min(rotatedWidth, rotatedHeight) / SAMPLES_SHORT_SIDE);
+        gridWidth = Math.max(1, rotatedWidth / step);
+        gridHeight = Math.max(1, rotatedHeight / step);
+        totalBlocks = ((gridWidth + BLOCK_SIZE - 1) / BLOCK_SIZE) * ((gridHeight + BLOCK_SIZE - 1) / BLOCK_SIZE);
+
+        int count = gridWidth * gridHeight;
+        if (sampleIndex.length < count) {
+            sampleIndex = new int[count];
+            current = new byte[count];
+            reference = new byte[count];
+        }
+
+        for (int gy = 0; gy < gridHeight; gy++) {
+            int ry = gy * step + step / 2;
+            for (int gx = 0; gx < gridWidth; gx++) {
+                int rx = gx * step + step / 2;
+                if (mirror) {
+                    rx = rotatedWidth - 1 - rx;
+                }
+
+                int sx;
+                int sy;
+                switch (rotation) {
+                    case 90:
+                        sx = ry;
+                        sy = height - 1 - rx;
+                        break;
+                    case 180:
+                        sx = width - 1 - rx;
+                        sy = height - 1 - ry;
+                        break;
+                    case 270:
+                        sx = width - 1 - ry;
+                        sy = rx;
+                        break;
+                    default:
+                        sx = rx;
+                        sy = ry;
+                        break;
+                }
+                sampleIndex[gy * gridWidth + gx] = sy * rowStride + sx;
+            }
+        }
+
+        cachedWidth = width;
+        cachedHeight = height;
+        cachedRowStride = rowStride;
+        cachedRotation = rotation;
+        cachedMirror = mirror;
+        return true;
+    }
+}
@@ -9,30 +9,21 @@
 package com.example.footy_testing.pose;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
-import android.graphics.ImageFormat;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.gpu.GpuDelegate;
-import org.tensorflow.lite.support.common.FileUtil;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.*;
-import java.util.Locale;
 
 import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 
@@ -40,9 +31,17 @@ import io.flutter.plugin.common.MethodChannel;
 public class MoveNetHelper implements MethodChannel.MethodCallHandler {
     private static final String TAG = "MoveNetHelper";
     private static final String CHANNEL = "com.example.footy_testing/detection";
+    private static final String EVENT_CHANNEL = "com.example.footy_testing/detection_events";
 
     private static final int INPUT_SIZE = 192;
 
+    /** Vorschauhöhe in Pixeln, auf die sich die Schwellen der Jonglier-Zählung beziehen */
+    private static final float DEFAULT_REFERENCE_HEIGHT = 720f;
+
+    /** Offline-Analyse einer Aufnahme mit YOLO im Batch-Modus, nur für replayCapture */
+    private static final String REPLAY_MODE_BALL_BATCH = "ballBatch";
+    private static final int DEFAULT_REPLAY_BATCH_SIZE = 8;
+
     private static final String[] KEYPOINT_NAMES = {
             "nose", "left_eye", "right_eye", "left_ear", "right_ear",
             "left_shoulder", "right_shoulder", "left_elbow", "right_elbow",
@@ -51,18 +50,71 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
     };
 
     private final Context context;
+    private final BallDetectionHelper ballDetectionHelper;
     private Interpreter moveNetInterpreter;
-    private GpuDelegate gpuDelegate;
+    private InterpreterRegistry.Lease interpreterLease;
+    /** Modell und Backend aus loadModels, für createOfflineCopy */
+    private String modelPath;
+    private boolean useGpu;
+    /** Eigene Instanz für die Auswertung einer Aufnahme, siehe createOfflineCopy */
+    private boolean offlineCopy = false;
+
+    private final YuvPreprocessor preprocessor = new YuvPreprocessor();
+    private final InferenceExecutor inferenceExecutor = new InferenceExecutor("PoseInference");
+    private final JuggleCounter juggleCounter = new JuggleCounter(DEFAULT_REFERENCE_HEIGHT);
+    private final DetectionEventStream eventStream = new DetectionEventStream();
+    private final PoseCropRegion cropRegion = new PoseCropRegion();
+
+    /** Aktive Aufnahme der eingehenden Kamerabilder, null wenn nicht aufgenommen wird */
+    private volatile FrameRecorder frameRecorder;
+    private final InterpreterRegistry interpreterRegistry;
+
+    /** Lädt im Hintergrund und hält Status, Zeiten und Backend für getModelStatus */
+    private final ModelLoader modelLoader = new ModelLoader("MoveNet");
+
+    /** Laufzeiten je Verarbeitungsschritt, abrufbar über getMetrics */
+    private final PipelineMetrics metrics = new PipelineMetrics();
+
+    /** MoveNet wertet nur den Ausschnitt um die Person aus dem vorherigen Bild aus */
+    private boolean smartCrop = true;
+
+    /** Zeitliche Glättung der Keypoints, null wenn deaktiviert */
+    private KeypointSmoother keypointSmoother;
+
+    /** Einstellungen der laufenden Streaming-Sitzung, null ohne Sitzung */
+    private StreamSession session;
+
+    /** Bilder seit der letzten Pose-Inferenz im kombinierten Modus (Pose-Schrittweite) */
+    private int framesSincePoseInference = 0;
+    /** true, sobald outputTensor die Keypoints einer Inferenz enthält */
+    private boolean hasPoseOutput = false;
+    /** Ergebnis der letzten Pose-Inferenz in detectAll, wird auf übersprungenen Bildern übernommen */
+    private Map<String, Object> lastPoseResult;
+
+    private TensorSpec inputSpec;
+    private TensorSpec outputSpec;
+    /** Umrechnung der Pixel in den Eingabe-Tensor, null bei FLOAT32 */
+    private InputQuantizer inputQuantizer;
+    private ByteBuffer inputBuffer;
+    private float[][][][] outputTensor;
 
    
-    public static void registerWith(FlutterEngine flutterEngine, Context context) {
+    public static MoveNetHelper registerWith(FlutterEngine flutterEngine, Context context,
+            BallDetectionHelper ballDetectionHelper) {
         MethodChannel channel = new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL);
-        MoveNetHelper helper = new MoveNetHelper(context);
+        MoveNetHelper helper = new MoveNetHelper(context, ballDetectionHelper);
         channel.setMethodCallHandler(helper);
+
+        EventChannel eventChannel = new EventChannel(flutterEngine.getDartExecutor().getBinaryMessenger(),
+                EVENT_CHANNEL);
+        eventChannel.setStreamHandler(helper.eventStream);
+        return helper;
     }
 
-    public MoveNetHelper(Context context) {
+    public MoveNetHelper(Context context, BallDetectionHelper ballDetectionHelper) {
         this.context = context;
+        this.interpreterRegistry = InterpreterRegistry.getInstance(context);
+        this.ballDetectionHelper = ballDetectionHelper;
     }
 
     
@@ -74,6 +126,11 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
                     Map<String, Object> args = call.arguments();
                     String modelPath = ((String) args.get("movenetModelPath"));
                     boolean useGpu = args.containsKey("useGpu") ? (boolean) args.get("useGpu") : false;
+                    smartCrop = args.containsKey("smartCrop") ? (boolean) args.get("smartCrop") : true;
+                    keypointSmoother = KeypointSmoother.fromArguments(args, KEYPOINT_NAMES.length);
+                    preprocessor.setThreadCount(args.get("preprocessThreads") instanceof Number
+                            ? ((Number) args.get("preprocessThreads")).intValue()
+                            : YuvPreprocessor.defaultThreadCount());
 
                     if (modelPath == null) {
                         Log.e(TAG, "Model path is null! Arguments: " + args.toString());
@@ -86,58 +143,12 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
 
                     Log.d(TAG, "Lade MoveNet-Modell: " + modelPath);
 
-                    Interpreter.Options options = new Interpreter.Options();
-                    options.setNumThreads(4);
-
-                    try {
-                        options.setUseNNAPI(true);
-                        Log.d(TAG, "NNAPI für MoveNet aktiviert");
-                    } catch (Exception e) {
-                        Log.w(TAG, "NNAPI konnte nicht aktiviert werden: " + e.getMessage());
-                    }
-
-                    if (useGpu) {
-                        try {
-                            gpuDelegate = new GpuDelegate();
-                            options.addDelegate(gpuDelegate);
-
-                            options.setUseNNAPI(false);
-                            Log.d(TAG, "GPU-Delegate aktiviert für MoveNet");
-                        } catch (Exception e) {
-                            Log.w(TAG, "GPU-Delegate nicht verfügbar, verwende CPU: " + e.getMessage());
-
-                            try {
-                                options.setUseNNAPI(true);
-                                Log.d(TAG, "Fallback auf NNAPI");
-                            } catch (Exception nnError) {
-                                Log.w(TAG, "NNAPI auch nicht verfügbar: " + nnError.getMessage());
-                            }
-                        }
-                    }
-
-                    moveNetInterpreter = new Interpreter(FileUtil.loadMappedFile(context, modelPath), options);
-
-                    int[] inputShape = moveNetInterpreter.getInputTensor(0).shape();
-                    int[] outputShape = moveNetInterpreter.getOutputTensor(0).shape();
-
-                    String inputShapeStr = Arrays.toString(inputShape);
-                    String outputShapeStr = Arrays.toString(outputShape);
-
-                    Log.d(TAG, "Modell geladen - Eingabeform: " + inputShapeStr);
-                    Log.d(TAG, "Modell geladen - Ausgabeform: " + outputShapeStr);
-
-                    int inputBytes = 1;
-                    for (int dim : inputShape) {
-                        inputBytes *= dim;
-                    }
-                    inputBytes *= 4;
-
-                    Log.d(TAG, "Erwartete Input-Bytegröße: " + inputBytes);
-
-                    Log.d(TAG, "Input-Tensor Datentyp: " + moveNetInterpreter.getInputTensor(0).dataType());
-                    Log.d(TAG, "Output-Tensor Datentyp: " + moveNetInterpreter.getOutputTensor(0).dataType());
+                    boolean reprobe = args.containsKey("reprobeBackend") ? (boolean) args.get("reprobeBackend") : false;
+                    String path = modelPath;
 
-                    result.success(true);
+                    // Laden und Aufwärmen im Hintergrund, das YOLO-Modell lädt parallel
+                    modelLoader.start(() -> loadModel(path, useGpu, reprobe), this::warmUp,
+                            this::discardLoad, result);
                 } catch (Exception e) {
                     Log.e(TAG, "Fehler beim Laden des Modells", e);
                     e.printStackTrace();
@@ -147,87 +158,232 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
 
             case "detectObjects":
                 try {
+                    long decodeStart = System.nanoTime();
                     Map<String, Object> args = call.arguments();
-                    byte[] yPlane = (byte[]) args.get("imageBytes");
-                    byte[] uPlane = args.containsKey("uPlane") ? (byte[]) args.get("uPlane") : null;
-                    byte[] vPlane = args.containsKey("vPlane") ? (byte[]) args.get("vPlane") : null;
+                    CameraFrame frame = CameraFrame.fromArguments(args);
+                    metrics.record(PipelineMetrics.STAGE_CHANNEL_DECODE, System.nanoTime() - decodeStart);
+                    recordFrame(frame);
+                    inferenceExecutor.submit(() -> processFrame(frame), result);
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler bei der Pose-Erkennung", e);
+                    e.printStackTrace();
+                    result.success(errorResult(e));
+                }
+                break;
 
-                    int width = (int) args.get("width");
-                    int height = (int) args.get("height");
+            case "detectAll":
+                try {
+                    long decodeStart = System.nanoTime();
+                    Map<String, Object> args = call.arguments();
+                    CameraFrame frame = CameraFrame.fromArguments(args);
+                    BallDetectionConfig ballConfig = BallDetectionConfig.fromArguments(args);
+                    boolean includeDetections = args.containsKey("includeDetections")
+                            ? (boolean) args.get("includeDetections")
+                            : true;
+                    boolean packed = args.containsKey("packed") ? (boolean) args.get("packed") : false;
+                    metrics.record(PipelineMetrics.STAGE_CHANNEL_DECODE, System.nanoTime() - decodeStart);
+                    recordFrame(frame);
+                    if (args.get("referenceHeight") instanceof Number) {
+                        juggleCounter.setReferenceHeight(((Number) args.get("referenceHeight")).floatValue());
+                    }
+                    inferenceExecutor.submit(() -> processAllFrame(frame, ballConfig, includeDetections, packed),
+                            result);
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler bei der kombinierten Erkennung", e);
+                    e.printStackTrace();
+                    result.success(errorResult(e));
+                }
+                break;
 
-                    int uvRowStride = args.containsKey("uvRowStride") ? (int) args.get("uvRowStride") : width;
-                    int uvPixelStride = args.containsKey("uvPixelStride") ? (int) args.get("uvPixelStride") : 1;
+            case "startSession":
+                try {
+                    Map<String, Object> args = call.arguments();
+                    session = StreamSession.fromArguments(args != null ? args : new HashMap<>());
+                    if (session.referenceHeight > 0) {
+                        juggleCounter.setReferenceHeight(session.referenceHeight);
+                    }
+                    Log.d(TAG, "Streaming-Sitzung gestartet, Modus: " + session.mode);
+                    result.success(true);
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler beim Starten der Streaming-Sitzung", e);
+                    result.error("SESSION_FAIL", e.getMessage(), null);
+                }
+                break;
 
-                    int rotation = args.containsKey("rotation") ? (int) args.get("rotation") : 0;
-                    boolean isFrontCamera = args.containsKey("isFrontCamera") ? (boolean) args.get("isFrontCamera")
-                            : false;
+            case "submitFrame":
+                try {
+                    StreamSession current = session;
+                    if (current == null) {
+                        result.error("NO_SESSION", "Keine Streaming-Sitzung aktiv", null);
+                        break;
+                    }
 
-                    Log.d(TAG,
-                            "Pose-Erkennung, Bildgröße: " + width + "x" + height + ", Frontkamera: " + isFrontCamera);
+                    long decodeStart = System.nanoTime();
+                    Map<String, Object> args = call.arguments();
+                    CameraFrame frame = CameraFrame.fromArguments(args);
+                    long frameId = ((Number) args.get("frameId")).longValue();
+                    metrics.record(PipelineMetrics.STAGE_CHANNEL_DECODE, System.nanoTime() - decodeStart);
+                    recordFrame(frame);
+                    submitStreamFrame(current, frame, frameId);
+                    result.success(frameId);
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler beim Übergeben eines Bildes", e);
+                    result.error("SUBMIT_FAIL", e.getMessage(), null);
+                }
+                break;
 
-                    long startTime = System.currentTimeMillis();
+            case "stopSession":
+                session = null;
+                Log.d(TAG, "Streaming-Sitzung beendet");
+                result.success(true);
+                break;
 
-                    Bitmap bitmap;
-                    if (uPlane != null && vPlane != null) {
-                        bitmap = yuvPlanesToBitmap(yPlane, uPlane, vPlane, width, height, uvRowStride, uvPixelStride);
-                    } else {
-                        bitmap = yuvToBitmap(yPlane, width, height);
-                    }
+            case "resetJuggleCounter":
+                juggleCounter.reset();
+                result.success(true);
+                break;
 
-                    if (bitmap == null) {
-                        Log.e(TAG, "Fehler bei der Bildkonvertierung");
-                        Map<String, Object> resultMap = new HashMap<>();
-                        resultMap.put("detections", new ArrayList<>());
-                        resultMap.put("processingTimeMs", System.currentTimeMillis() - startTime);
-                        resultMap.put("error", "Fehler bei der Bildkonvertierung");
-                        result.success(resultMap);
-                        return;
-                    }
+            case "startRecording":
+                try {
+                    Map<String, Object> args = call.arguments();
+                    result.success(startRecording(args != null ? (String) args.get("path") : null));
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler beim Starten der Aufnahme", e);
+                    result.error("RECORDING_FAIL", e.getMessage(), null);
+                }
+                break;
 
-                    Map<String, Object> poseResult = detectPose(bitmap, rotation, isFrontCamera);
+            case "stopRecording":
+                try {
+                    result.success(stopRecording());
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler beim Beenden der Aufnahme", e);
+                    result.error("RECORDING_FAIL", e.getMessage(), null);
+                }
+                break;
 
-                    List<Map<String, Object>> detections = new ArrayList<>();
-                    if (poseResult.containsKey("detections")) {
-                        detections = (List<Map<String, Object>>) poseResult.get("detections");
-                    }
+            case "replayCapture":
+                try {
+                    Map<String, Object> args = call.arguments();
+                    File file = new File((String) args.get("path"));
+                    String mode = args.containsKey("mode") ? (String) args.get("mode") : StreamSession.MODE_ALL;
+                    boolean realTime = args.containsKey("realTime") ? (boolean) args.get("realTime") : false;
+                    int expectedCount = args.get("expectedCount") instanceof Number
+                            ? ((Number) args.get("expectedCount")).intValue()
+                            : -1;
+                    int batchSize = args.get("batchSize") instanceof Number
+                            ? ((Number) args.get("batchSize")).intValue()
+                            : DEFAULT_REPLAY_BATCH_SIZE;
+                    BallDetectionConfig ballConfig = BallDetectionConfig.fromArguments(args);
+
+                    // Läuft auf einem eigenen Thread und einer eigenen Instanz, damit Inferenz-Thread,
+                    // Zähler und Tracking-Zustand der Live-Erkennung unberührt bleiben
+                    Handler mainHandler = new Handler(Looper.getMainLooper());
+                    new Thread(() -> {
+                        try {
+                            MoveNetHelper replay = createOfflineCopy();
+                            Map<String, Object> stats;
+                            try {
+                                stats = replay.replayCapture(file, mode, ballConfig, realTime, expectedCount,
+                                        batchSize);
+                            } finally {
+                                replay.releaseOfflineCopy();
+                            }
+                            mainHandler.post(() -> result.success(stats));
+                        } catch (Exception e) {
+                            Log.e(TAG, "Fehler beim Abspielen der Aufnahme", e);
+                            mainHandler.post(() -> result.error("REPLAY_FAIL", e.getMessage(), null));
+                        }
+                    }, "CaptureReplay").start();
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler beim Abspielen der Aufnahme", e);
+                    result.error("REPLAY_FAIL", e.getMessage(), null);
+                }
+                break;
 
-                    long inferenceTime = 0;
-                    if (poseResult.containsKey("inferenceTime")) {
-                        Object timeValue = poseResult.get("inferenceTime");
-                        if (timeValue instanceof Long) {
-                            inferenceTime = (long) timeValue;
-                        } else if (timeValue instanceof Integer) {
-                            inferenceTime = ((Integer) timeValue).longValue();
+            case "analyzeCapture":
+                try {
+                    Map<String, Object> args = call.arguments();
+                    File file = new File((String) args.get("path"));
+                    float referenceHeight = args.get("referenceHeight") instanceof Number
+                            ? ((Number) args.get("referenceHeight")).floatValue()
+                            : DEFAULT_REFERENCE_HEIGHT;
+                    BallDetectionConfig ballConfig = BallDetectionConfig.fromArguments(args);
+
+                    // Eigene Instanzen beider Modelle, die Stufen laufen nicht auf den Live-Interpretern
+                    Handler mainHandler = new Handler(Looper.getMainLooper());
+                    new Thread(() -> {
+                        try {
+                            MoveNetHelper analysis = createOfflineCopy();
+                            Map<String, Object> stats;
+                            try {
+                                stats = new CaptureAnalyzer(analysis, analysis.ballDetectionHelper)
+                                        .analyze(file, ballConfig, referenceHeight);
+                            } finally {
+                                analysis.releaseOfflineCopy();
+                            }
+                            mainHandler.post(() -> result.success(stats));
+                        } catch (Exception e) {
+                            Log.e(TAG, "Fehler bei der Analyse der Aufnahme", e);
+                            mainHandler.post(() -> result.error("ANALYSIS_FAIL", e.getMessage(), null));
                         }
-                    }
+                    }, "CaptureAnalysis").start();
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler bei der Analyse der Aufnahme", e);
+                    result.error("ANALYSIS_FAIL", e.getMessage(), null);
+                }
+                break;
 
-                    bitmap.recycle();
+            case "getBackendInfo":
+                result.success(modelLoader.getBackendInfo());
+                break;
 
-                    long totalTime = System.currentTimeMillis() - startTime;
+            case "getModelStatus":
+                result.success(modelLoader.toMap());
+                break;
 
-                    Map<String, Object> resultMap = new HashMap<>();
-                    resultMap.put("detections", detections);
-                    resultMap.put("processingTimeMs", totalTime);
-                    resultMap.put("inferenceTimeMs", inferenceTime);
+            case "setTraceEnabled":
+                try {
+                    Map<String, Object> args = call.arguments();
+                    boolean enabled = (boolean) args.get("enabled");
+                    if (enabled) {
+                        int capacity = args.get("capacity") instanceof Number
+                                ? ((Number) args.get("capacity")).intValue()
+                                : FrameTrace.DEFAULT_CAPACITY;
+                        FrameTrace.enable(capacity);
+                    } else {
+                        FrameTrace.disable();
+                    }
+                    result.success(true);
+                } catch (Exception e) {
+                    Log.e(TAG, "Fehler beim Umschalten des Trace", e);
+                    result.error("TRACE_FAIL", e.getMessage(), null);
+                }
+                break;
 
-                    Log.d(TAG, "Pose-Erkennung abgeschlossen in " + totalTime + "ms, Inferenz: " +
-                            inferenceTime + "ms, gefunden: " + detections.size() + " Personen");
+            case "dumpTrace": {
+                Map<String, Object> args = call.arguments();
+                boolean clear = args != null && Boolean.TRUE.equals(args.get("clear"));
+                boolean log = args != null && Boolean.TRUE.equals(args.get("log"));
+                result.success(FrameTrace.dump(clear, log));
+                break;
+            }
 
-                    result.success(resultMap);
-                } catch (Exception e) {
-                    Log.e(TAG, "Fehler bei der Pose-Erkennung", e);
-                    e.printStackTrace();
+            case "getMetrics":
+                result.success(metrics.toMap(inferenceExecutor.getDroppedFrames()));
+                break;
 
-                    Map<String, Object> errorResult = new HashMap<>();
-                    errorResult.put("detections", new ArrayList<>());
-                    errorResult.put("processingTimeMs", 0);
-                    errorResult.put("error", e.getMessage());
-                    result.success(errorResult);
-                }
+            case "resetMetrics":
+                metrics.reset();
+                result.success(true);
                 break;
 
             case "dispose":
-                dispose();
+                session = null;
+                inferenceExecutor.shutdown();
+                dispose(false);
+                modelLoader.reset();
+                preprocessor.shutdown();
                 result.success(true);
                 break;
 
@@ -236,172 +392,544 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
         }
     }
 
-    private Map<String, Object> detectPose(Bitmap bitmap, int rotation) {
-        return detectPose(bitmap, rotation, false);
+    /**
+     * Übergibt ein Bild der Streaming-Sitzung an den passenden Inferenz-Thread. Das Ergebnis
+     * wird mit der Bild-ID auf dem EventChannel veröffentlicht.
+     */
+    private void submitStreamFrame(StreamSession current, CameraFrame frame, long frameId) {
+        MethodChannel.Result streamResult = eventStream.resultFor(frameId);
+
+        switch (current.mode) {
+            case StreamSession.MODE_POSE:
+                inferenceExecutor.submit(() -> processFrame(frame), streamResult);
+                break;
+            case StreamSession.MODE_BALL:
+                ballDetectionHelper.submitFrame(frame, current.ballConfig, streamResult);
+                break;
+            default:
+                inferenceExecutor.submit(() -> processAllFrame(frame, current.ballConfig,
+                        current.includeDetections, current.packed), streamResult);
+                break;
+        }
+    }
+
+    private void recordFrame(CameraFrame frame) {
+        FrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            recorder.record(frame, frame.timestampNanos);
+        }
     }
 
     /**
-     * Erkennt Posen im Bild mit dem MoveNet-Modell
-     * 
-     * @param bitmap        Das zu analysierende Bild
-     * @param rotation      Rotation des Bildes in Grad
-     * @param isFrontCamera Gibt an, ob das Bild von der Frontkamera stammt
-     * @return Map mit erkannten Personen und Keypoints
+     * Startet die Aufnahme aller Kamerabilder, die an MoveNetHelper und BallDetectionHelper
+     * übergeben werden
+     *
+     * @param path Zieldatei, ohne Angabe eine neue Datei unter files/captures
+     * @return Pfad der Aufnahmedatei
      */
-    private Map<String, Object> detectPose(Bitmap bitmap, int rotation, boolean isFrontCamera) {
-        if (moveNetInterpreter == null) {
-            Log.e(TAG, "MoveNet Interpreter ist null");
-            return new HashMap<>();
+    private synchronized String startRecording(String path) throws IOException {
+        stopRecording();
+
+        File file;
+        if (path != null) {
+            file = new File(path);
+        } else {
+            File directory = new File(context.getFilesDir(), "captures");
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Verzeichnis " + directory + " kann nicht angelegt werden");
+            }
+            file = new File(directory, "capture_" + System.currentTimeMillis() + ".bin");
         }
 
-        try {
+        frameRecorder = new FrameRecorder(file);
+        ballDetectionHelper.setFrameRecorder(frameRecorder);
+        Log.d(TAG, "Aufnahme gestartet: " + file);
+        return file.getAbsolutePath();
+    }
 
-            int modelWidth = 192;
-            int modelHeight = 192;
+    /**
+     * @return Pfad und Anzahl der aufgenommenen und verworfenen Bilder, leer ohne Aufnahme
+     */
+    private synchronized Map<String, Object> stopRecording() throws IOException {
+        Map<String, Object> stats = new HashMap<>();
+        FrameRecorder recorder = frameRecorder;
+        if (recorder == null) {
+            return stats;
+        }
 
-            Log.d(TAG, "Verarbeite Bild mit Rotation: " + rotation + " Grad, Frontkamera: " + isFrontCamera);
+        frameRecorder = null;
+        ballDetectionHelper.setFrameRecorder(null);
+        recorder.close();
 
-            long preprocessStart = System.currentTimeMillis();
+        stats.put("path", recorder.getFile().getAbsolutePath());
+        stats.put("recordedFrames", recorder.getRecordedFrames());
+        stats.put("droppedFrames", recorder.getDroppedFrames());
+        Log.d(TAG, "Aufnahme beendet: " + stats);
+        return stats;
+    }
 
-            Bitmap scaledBitmap;
+    /**
+     * Legt eine eigene Instanz mit denselben Modellen und Einstellungen an, für das Abspielen
+     * und die Analyse von Aufnahmen. Jonglier-Zähler, Ausschnitt, Glättung, Ball-Tracking und
+     * Interpreter sind getrennt vom Live-Pfad, eine laufende Zählung oder Streaming-Sitzung
+     * bleibt daher unberührt. Nicht geladene Modelle bleiben auch in der Kopie ungeladen.
+     * Nach der Auswertung mit releaseOfflineCopy freigeben.
+     */
+    private MoveNetHelper createOfflineCopy() throws IOException {
+        BallDetectionHelper ballCopy = ballDetectionHelper != null && ballDetectionHelper.isModelLoaded()
+                ? ballDetectionHelper.createOfflineCopy()
+                : null;
+        MoveNetHelper copy = new MoveNetHelper(context, ballCopy);
+        copy.offlineCopy = true;
 
-            if (rotation == 90 || rotation == 270) {
+        try {
+            String copyModelPath = null;
+            boolean copyUseGpu;
+            synchronized (this) {
+                if (isModelLoaded()) {
+                    copyModelPath = modelPath;
+                }
+                copyUseGpu = useGpu;
+                copy.smartCrop = smartCrop;
+                copy.keypointSmoother = keypointSmoother != null ? keypointSmoother.copy() : null;
+            }
+            copy.juggleCounter.setReferenceHeight(juggleCounter.getReferenceHeight());
+            copy.preprocessor.setThreadCount(preprocessor.getThreadCount());
 
-                Matrix rotationMatrix = new Matrix();
-                rotationMatrix.postRotate(rotation);
+            if (copyModelPath != null) {
+                copy.loadModel(copyModelPath, copyUseGpu, false);
+                copy.warmUp();
+            }
+        } catch (IOException | RuntimeException e) {
+            copy.releaseOfflineCopy();
+            throw e;
+        }
+        return copy;
+    }
 
-                try {
-                    Bitmap rotatedBitmap = Bitmap.createBitmap(
-                            bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
-                            rotationMatrix, true);
+    /**
+     * Gibt die Interpreter einer Kopie aus createOfflineCopy an den Pool zurück
+     */
+    private void releaseOfflineCopy() {
+        detach();
+        if (ballDetectionHelper != null) {
+            ballDetectionHelper.detach();
+        }
+    }
 
-                    scaledBitmap = Bitmap.createScaledBitmap(
-                            rotatedBitmap, modelWidth, modelHeight, false);
+    /**
+     * Spielt eine Aufnahme durch die Erkennung. Läuft auf einer Kopie aus createOfflineCopy,
+     * deren Jonglier-Zähler vorher zurückgesetzt wird, sodass der Endstand mit einer gelabelten
+     * Sitzung verglichen werden kann.
+     *
+     * Im Modus ballBatch läuft nur YOLO im Batch-Modus von BallDetectionHelper, die Ergebnisse
+     * aller Bilder werden mit Index und Zeitstempel unter "results" zurückgegeben. Die Latenz
+     * des letzten Bildes eines Batches enthält dann die Inferenz des ganzen Batches.
+     *
+     * Der LatencyGovernor der Kopie bleibt abgeschaltet (Ziel-Laufzeit 0), damit YOLO-Eingabegröße
+     * und Schrittweiten nicht von der gemessenen Laufzeit abhängen und jeder Durchlauf dieselben
+     * Bilder auswertet. Zähler und Filter rechnen mit den aufgezeichneten Zeitstempeln.
+     *
+     * @param mode          all, pose, ball oder ballBatch
+     * @param ballConfig    Schwellen und Bewegungserkennung, targetLatencyMs wird ignoriert
+     * @param realTime      im Takt der Aufnahme statt mit voller Geschwindigkeit
+     * @param expectedCount Erwarteter Zählerstand oder -1
+     * @param batchSize     Bilder pro Inferenz im Modus ballBatch
+     * @return Durchsatz, Latenzen (Mittel, p50, p95, Maximum) und Zählerstand
+     */
+    private Map<String, Object> replayCapture(File file, String mode, BallDetectionConfig ballConfig,
+            boolean realTime, int expectedCount, int batchSize) throws Exception {
+        BallDetectionConfig replayConfig = new BallDetectionConfig(ballConfig.confThreshold,
+                ballConfig.iouThreshold, ballConfig.inferenceStride, 0f, ballConfig.motionGating);
+        FrameReplayer replayer = new FrameReplayer(file);
+        int frameCount = replayer.getFrameCount();
+        long[] latencies = new long[frameCount];
+
+        boolean batch = REPLAY_MODE_BALL_BATCH.equals(mode);
+        if ((batch || StreamSession.MODE_BALL.equals(mode)) && ballDetectionHelper == null) {
+            throw new IllegalStateException("YOLOv8-Modell nicht geladen");
+        }
+        List<Map<String, Object>> batchResults = new ArrayList<>();
+        int actualBatchSize = batch ? ballDetectionHelper.startBatch(batchSize) : 0;
 
-                    if (rotatedBitmap != bitmap) {
-                        rotatedBitmap.recycle();
-                    }
-                } catch (OutOfMemoryError e) {
-                    Log.w(TAG, "Speicherproblem bei der Bildverarbeitung: " + e.getMessage());
+        if (ballDetectionHelper != null) {
+            ballDetectionHelper.getGovernor().setTargetMs(replayConfig.targetLatencyMs);
+        }
+        juggleCounter.reset();
+        long start = System.nanoTime();
 
-                    scaledBitmap = Bitmap.createScaledBitmap(bitmap, modelWidth, modelHeight, false);
+        try {
+            replayer.replay((index, frame, timestampNanos) -> {
+                long frameStart = System.nanoTime();
+                if (batch) {
+                    batchResults.addAll(ballDetectionHelper.addBatchFrame(frame, index, timestampNanos,
+                            replayConfig.confThreshold, replayConfig.iouThreshold));
+                } else if (StreamSession.MODE_POSE.equals(mode)) {
+                    processFrame(frame);
+                } else if (StreamSession.MODE_BALL.equals(mode)) {
+                    ballDetectionHelper.trackBall(frame, replayConfig);
+                } else {
+                    processAllFrame(frame, replayConfig, false, true);
                 }
-            } else if (bitmap.getWidth() == modelWidth && bitmap.getHeight() == modelHeight && rotation == 0) {
+                latencies[index] = System.nanoTime() - frameStart;
+            }, realTime);
 
-                scaledBitmap = bitmap;
-            } else if (rotation != 0) {
+            if (batch) {
+                batchResults.addAll(ballDetectionHelper.flushBatch(replayConfig.confThreshold,
+                        replayConfig.iouThreshold));
+            }
+        } finally {
+            if (batch) {
+                ballDetectionHelper.endBatch();
+            }
+        }
 
-                Matrix rotationMatrix = new Matrix();
-                rotationMatrix.postRotate(rotation);
-                rotationMatrix.postScale((float) modelWidth / bitmap.getWidth(),
-                        (float) modelHeight / bitmap.getHeight());
+        long totalNanos = System.nanoTime() - start;
+        Arrays.sort(latencies);
 
-                try {
-                    scaledBitmap = Bitmap.createBitmap(
-                            bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
-                            rotationMatrix, true);
-                } catch (OutOfMemoryError e) {
-
-                    Log.w(TAG, "Speicheroptimierte Bildverarbeitung wegen OOM");
-                    Matrix onlyRotation = new Matrix();
-                    onlyRotation.postRotate(rotation);
-                    Bitmap rotatedBitmap = Bitmap.createBitmap(
-                            bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
-                            onlyRotation, true);
-                    scaledBitmap = Bitmap.createScaledBitmap(rotatedBitmap, modelWidth, modelHeight, false);
-                    rotatedBitmap.recycle();
-                }
-            } else {
+        long latencySum = 0;
+        for (long latency : latencies) {
+            latencySum += latency;
+        }
 
-                scaledBitmap = Bitmap.createScaledBitmap(bitmap, modelWidth, modelHeight, false);
-            }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("frames", frameCount);
+        stats.put("totalMs", totalNanos / 1e6);
+        stats.put("fps", frameCount > 0 ? frameCount / (totalNanos / 1e9) : 0.0);
+        stats.put("meanLatencyMs", frameCount > 0 ? latencySum / 1e6 / frameCount : 0.0);
+        stats.put("p50LatencyMs", frameCount > 0 ? latencies[frameCount / 2] / 1e6 : 0.0);
+        stats.put("p95LatencyMs", frameCount > 0 ? latencies[Math.min(frameCount - 1, frameCount * 95 / 100)] / 1e6 : 0.0);
+        stats.put("maxLatencyMs", frameCount > 0 ? latencies[frameCount - 1] / 1e6 : 0.0);
+
+        int juggleCount = juggleCounter.getCount();
+        stats.put("juggleCount", juggleCount);
+        if (expectedCount >= 0) {
+            stats.put("expectedCount", expectedCount);
+            stats.put("countMatches", juggleCount == expectedCount);
+        }
+        if (batch) {
+            stats.put("batchSize", actualBatchSize);
+            stats.put("results", batchResults);
+        }
 
-            long preprocessEnd = System.currentTimeMillis();
-            Log.d(TAG, "Bildvorverarbeitung: " + (preprocessEnd - preprocessStart) + "ms");
+        Log.d(TAG, "Aufnahme abgespielt: " + stats);
+        return stats;
+    }
 
-            int[] inputShape = moveNetInterpreter.getInputTensor(0).shape();
-            Log.d(TAG, "Eingangsform des Modells: " + Arrays.toString(inputShape));
+    /**
+     * Führt die Pose-Erkennung für ein Bild auf dem Inferenz-Thread aus
+     *
+     * @param frame Das Kamerabild
+     * @return Ergebnis-Map für Flutter
+     */
+    private Map<String, Object> processFrame(CameraFrame frame) {
+        try {
+            long startTime = System.nanoTime();
 
-            int batchSize = inputShape[0];
-            int inputHeight = inputShape[1];
-            int inputWidth = inputShape[2];
-            int channels = inputShape[3];
+            Map<String, Object> poseResult = detectPose(frame);
 
-            int bufferSizeNeeded = batchSize * inputHeight * inputWidth * channels;
+            List<Map<String, Object>> detections = new ArrayList<>();
+            if (poseResult.containsKey("detections")) {
+                detections = (List<Map<String, Object>>) poseResult.get("detections");
+            }
 
-            int bytesPerChannel = 1;
-            int bufferSize = bufferSizeNeeded * bytesPerChannel;
-            Log.d(TAG, "Korrigierte BufferGröße: " + bufferSize + " Bytes");
+            long inferenceTime = 0;
+            if (poseResult.containsKey("inferenceTime")) {
+                Object timeValue = poseResult.get("inferenceTime");
+                if (timeValue instanceof Long) {
+                    inferenceTime = (long) timeValue;
+                } else if (timeValue instanceof Integer) {
+                    inferenceTime = ((Integer) timeValue).longValue();
+                }
+            }
 
-            ByteBuffer imgData = ByteBuffer.allocateDirect(bufferSize);
-            imgData.order(ByteOrder.nativeOrder());
+            long totalNanos = System.nanoTime() - startTime;
+            metrics.record(PipelineMetrics.STAGE_TOTAL, totalNanos);
+            long totalTime = totalNanos / 1_000_000;
 
-            int[] pixels = new int[inputWidth * inputHeight];
-            scaledBitmap.getPixels(pixels, 0, inputWidth, 0, 0, inputWidth, inputHeight);
+            Map<String, Object> resultMap = new HashMap<>();
+            resultMap.put("detections", detections);
+            resultMap.put("processingTimeMs", totalTime);
+            resultMap.put("inferenceTimeMs", inferenceTime);
+            resultMap.put("droppedFrames", inferenceExecutor.getDroppedFrames());
 
-            int pixel = 0;
+            FrameTrace.record(FrameTrace.POSE_DONE, totalNanos / 1e6f, inferenceTime, detections.size(), 0f);
 
-            for (int i = 0; i < inputHeight; i++) {
-                for (int j = 0; j < inputWidth; j++) {
-                    int pixelValue = pixels[pixel++];
+            return resultMap;
+        } catch (Exception e) {
+            Log.e(TAG, "Fehler bei der Pose-Erkennung", e);
+            e.printStackTrace();
+            return errorResult(e);
+        }
+    }
+
+    /**
+     * Führt die kombinierte Erkennung für ein Bild auf dem Inferenz-Thread aus
+     */
+    private Object processAllFrame(CameraFrame frame, BallDetectionConfig ballConfig,
+            boolean includeDetections, boolean packed) {
+        long startTime = System.nanoTime();
+        if (ballDetectionHelper != null) {
+            ballDetectionHelper.getGovernor().setTargetMs(ballConfig.targetLatencyMs);
+        }
+        try {
+            if (packed) {
+                return detectAllPacked(frame, ballConfig);
+            }
 
-                    int r = (pixelValue >> 16) & 0xFF;
-                    int g = (pixelValue >> 8) & 0xFF;
-                    int b = pixelValue & 0xFF;
+            Map<String, Object> resultMap = detectAll(frame, ballConfig, includeDetections);
+            resultMap.put("droppedFrames", inferenceExecutor.getDroppedFrames());
+            return resultMap;
+        } catch (Exception e) {
+            Log.e(TAG, "Fehler bei der kombinierten Erkennung", e);
+            e.printStackTrace();
 
-                    imgData.put((byte) r);
-                    imgData.put((byte) g);
-                    imgData.put((byte) b);
-                }
+            Map<String, Object> errorResult = errorResult(e);
+            errorResult.put("ballDetections", new ArrayList<>());
+            return errorResult;
+        } finally {
+            long elapsed = System.nanoTime() - startTime;
+            metrics.record(PipelineMetrics.STAGE_TOTAL, elapsed);
+            if (ballDetectionHelper != null) {
+                ballDetectionHelper.getGovernor().onFrame(elapsed);
             }
+        }
+    }
 
-            Log.d(TAG, "ByteBuffer position after filling: " + imgData.position() + " capacity: " + imgData.capacity());
+    /**
+     * Bestimmt im kombinierten Modus, ob MoveNet auf diesem Bild laufen muss. Bei einer
+     * Pose-Schrittweite k > 1 des LatencyGovernor läuft die Inferenz nur auf jedem k-ten Bild,
+     * dazwischen werden die Keypoints des letzten Durchlaufs übernommen. Ebenso, wenn die
+     * Bewegungserkennung der Ballerkennung das Bild als ruhig eingestuft hat.
+     *
+     * @return true, wenn die Pose-Inferenz für dieses Bild entfällt
+     */
+    private synchronized boolean skipPoseInference() {
+        if (hasPoseOutput && isMotionIdle()) {
+            return true;
+        }
+        int stride = ballDetectionHelper != null ? ballDetectionHelper.getGovernor().getPoseStride() : 1;
+        if (hasPoseOutput && framesSincePoseInference + 1 < stride) {
+            framesSincePoseInference++;
+            return true;
+        }
+        framesSincePoseInference = 0;
+        return false;
+    }
 
-            scaledBitmap.recycle();
+    private boolean isMotionIdle() {
+        return ballDetectionHelper != null && ballDetectionHelper.isMotionIdle();
+    }
 
-            imgData.rewind();
+    private static Map<String, Object> errorResult(Exception e) {
+        Map<String, Object> errorResult = new HashMap<>();
+        errorResult.put("detections", new ArrayList<>());
+        errorResult.put("processingTimeMs", 0);
+        errorResult.put("error", e.getMessage());
+        return errorResult;
+    }
 
-            float[][][][] outputTensor = new float[1][1][17][3];
+    /**
+     * Erkennt Pose und Ball in einem einzigen Durchlauf. Beide Modelle tasten das Kamerabild
+     * direkt aus den YUV-Planes in ihrer jeweiligen Eingabegröße ab (640x640 für YOLOv8,
+     * 192x192 für MoveNet), eine Konvertierung des vollen Bildes entfällt.
+     *
+     * Pose und Ball werden anschließend direkt an den JuggleCounter übergeben, die Antwort
+     * enthält den Zählerstand und die neuen Juggle-Ereignisse. Übernommene Posen ("poseReused")
+     * gehen nicht erneut in den JuggleCounter ein.
+     *
+     * @param frame             Das Kamerabild
+     * @param ballConfig        Schwellen, Inferenz-Schrittweite und Ziel-Laufzeit für den Ball
+     * @param includeDetections false, um nur Zählerstand und Ereignisse zu übertragen
+     * @return Map mit Pose-Detektionen ("detections"), Ball-Detektionen ("ballDetections"),
+     *         "juggleCount", "juggleEvents" und der Stufe des LatencyGovernor ("operatingPoint")
+     */
+    private Map<String, Object> detectAll(CameraFrame frame, BallDetectionConfig ballConfig,
+            boolean includeDetections) {
+        long startTime = System.currentTimeMillis();
+
+        Map<String, Object> resultMap = new HashMap<>();
+        List<Map<String, Object>> detections = new ArrayList<>();
+        List<Map<String, Object>> ballDetections = new ArrayList<>();
+
+        long ballInferenceTime = 0;
+        if (ballDetectionHelper != null && ballDetectionHelper.isModelLoaded()) {
+            long ballStart = System.currentTimeMillis();
+            ballDetections = ballDetectionHelper.trackBall(frame, ballConfig);
+            ballInferenceTime = System.currentTimeMillis() - ballStart;
+        }
 
-            long inferenceStartTime = System.currentTimeMillis();
+        boolean poseReused = lastPoseResult != null && skipPoseInference();
+        Map<String, Object> poseResult;
+        if (poseReused) {
+            poseResult = lastPoseResult;
+        } else {
+            poseResult = detectPose(frame);
+            lastPoseResult = poseResult;
+        }
 
-            try {
-                moveNetInterpreter.run(imgData, outputTensor);
-                Log.d(TAG, "MoveNet-Inferenz erfolgreich durchgeführt");
-            } catch (Exception e) {
-                Log.e(TAG, "Fehler bei der MoveNet-Inferenz: " + e.getMessage());
+        if (poseResult.containsKey("detections")) {
+            detections = (List<Map<String, Object>>) poseResult.get("detections");
+        }
 
-                if (e.getMessage() != null && e.getMessage().contains("Cannot copy to a TensorFlowLite tensor")) {
-                    Log.d(TAG, "Versuche alternative Eingabeverarbeitung...");
+        long inferenceTime = 0;
+        if (!poseReused && poseResult.get("inferenceTime") instanceof Long) {
+            inferenceTime = (long) poseResult.get("inferenceTime");
+        }
 
-                    ByteBuffer imgDataFloat = ByteBuffer.allocateDirect(inputWidth * inputHeight * channels * 4);
-                    imgDataFloat.order(ByteOrder.nativeOrder());
+        if (!poseReused && !detections.isEmpty()) {
+            updateJugglePose();
+        }
+        if (!ballDetections.isEmpty()) {
+            Map<String, Object> ball = ballDetections.get(0);
+            float[] box = (float[]) ball.get("box");
+            juggleCounter.updateBall((box[1] + box[3]) / 2, (float) ball.get("confidence"),
+                    frame.timestampNanos / 1_000_000);
+        }
 
-                    pixel = 0;
+        long encodeStart = System.nanoTime();
+        List<Map<String, Object>> juggleEvents = new ArrayList<>();
+        // Ereignisse tragen den Aufnahmezeitpunkt (nanoTime-Basis), Dart erwartet die Uhrzeit
+        long wallClockOffsetMs = System.currentTimeMillis() - System.nanoTime() / 1_000_000;
+        for (JuggleCounter.JuggleEvent event : juggleCounter.drainEvents()) {
+            Map<String, Object> eventMap = new HashMap<>();
+            eventMap.put("timestampMs", event.timestampMs + wallClockOffsetMs);
+            eventMap.put("method", event.method);
+            eventMap.put("confidence", event.confidence);
+            eventMap.put("count", event.count);
+            juggleEvents.add(eventMap);
+
+            FrameTrace.record(FrameTrace.JUGGLE, event.count, event.method, event.confidence, 0f);
+            Log.d(TAG, "Juggle #" + event.count + " erkannt (Methode " + event.method + ")");
+        }
 
-                    for (int i = 0; i < inputHeight; i++) {
-                        for (int j = 0; j < inputWidth; j++) {
-                            int pixelValue = pixels[pixel++];
+        long totalTime = System.currentTimeMillis() - startTime;
 
-                            float r = ((pixelValue >> 16) & 0xFF) / 255.0f;
-                            float g = ((pixelValue >> 8) & 0xFF) / 255.0f;
-                            float b = (pixelValue & 0xFF) / 255.0f;
+        if (includeDetections) {
+            resultMap.put("detections", detections);
+            resultMap.put("ballDetections", ballDetections);
+        }
+        resultMap.put("juggleCount", juggleCounter.getCount());
+        resultMap.put("juggleEvents", juggleEvents);
+        resultMap.put("processingTimeMs", totalTime);
+        resultMap.put("inferenceTimeMs", inferenceTime);
+        resultMap.put("ballProcessingTimeMs", ballInferenceTime);
+        resultMap.put("poseReused", poseReused);
+        resultMap.put("motionIdle", isMotionIdle());
+        if (ballDetectionHelper != null) {
+            resultMap.put("operatingPoint", ballDetectionHelper.getOperatingPoint());
+        }
+        metrics.record(PipelineMetrics.STAGE_RESULT_ENCODE, System.nanoTime() - encodeStart);
 
-                            imgDataFloat.putFloat(r);
-                            imgDataFloat.putFloat(g);
-                            imgDataFloat.putFloat(b);
-                        }
-                    }
+        FrameTrace.record(FrameTrace.ALL_DONE, totalTime, ballInferenceTime, inferenceTime, 0f);
 
-                    imgDataFloat.rewind();
-                    moveNetInterpreter.run(imgDataFloat, outputTensor);
-                    Log.d(TAG, "Alternative MoveNet-Inferenz erfolgreich durchgeführt");
-                } else {
-                    throw e;
+        return resultMap;
+    }
+
+    /**
+     * Wie detectAll, liefert das Ergebnis aber im kompakten Format von PackedResult. Für die
+     * Pose werden keine Maps angelegt, die Keypoints werden direkt aus dem Ausgabe-Tensor
+     * übernommen.
+     *
+     * @param frame      Das Kamerabild
+     * @param ballConfig Schwellen und Inferenz-Schrittweite für den Ball
+     * @return Ergebnis als float[] (Schema siehe PackedResult)
+     */
+    private float[] detectAllPacked(CameraFrame frame, BallDetectionConfig ballConfig) {
+        long startTime = System.currentTimeMillis();
+
+        List<Map<String, Object>> ballDetections = null;
+        long ballInferenceTime = 0;
+        if (ballDetectionHelper != null && ballDetectionHelper.isModelLoaded()) {
+            long ballStart = System.currentTimeMillis();
+            ballDetections = ballDetectionHelper.trackBall(frame, ballConfig);
+            ballInferenceTime = System.currentTimeMillis() - ballStart;
+        }
+
+        long inferenceTime = 0;
+        boolean poseValid = false;
+        boolean poseReused = false;
+        synchronized (this) {
+            if (moveNetInterpreter != null) {
+                poseReused = skipPoseInference();
+                if (!poseReused) {
+                    inferenceTime = runPoseInference(frame);
+                }
+                poseValid = PackedResult.hasValidKeypoints(outputTensor[0][0]);
+                if (poseValid && !poseReused) {
+                    juggleCounter.updatePose(outputTensor[0][0]);
                 }
             }
+        }
+
+        Map<String, Object> ball = ballDetections != null && !ballDetections.isEmpty() ? ballDetections.get(0)
+                : null;
+        if (ball != null) {
+            float[] box = (float[]) ball.get("box");
+            juggleCounter.updateBall((box[1] + box[3]) / 2, (float) ball.get("confidence"),
+                    frame.timestampNanos / 1_000_000);
+        }
+
+        List<JuggleCounter.JuggleEvent> events = juggleCounter.drainEvents();
+        long encodeStart = System.nanoTime();
+        float[] packed = PackedResult.allocate(events.size());
+
+        synchronized (this) {
+            if (poseValid && outputTensor != null) {
+                PackedResult.writePose(packed, outputTensor[0][0]);
+                if (poseReused) {
+                    packed[PackedResult.FLAGS] = (int) packed[PackedResult.FLAGS] | PackedResult.FLAG_POSE_REUSED;
+                }
+            }
+        }
+        if (isMotionIdle()) {
+            packed[PackedResult.FLAGS] = (int) packed[PackedResult.FLAGS] | PackedResult.FLAG_MOTION_IDLE;
+        }
+        if (ball != null) {
+            PackedResult.writeBall(packed, (float[]) ball.get("box"), (float) ball.get("confidence"),
+                    Boolean.TRUE.equals(ball.get("predicted")));
+        }
+
+        long now = System.currentTimeMillis();
+        PackedResult.writeEvents(packed, events, System.nanoTime() / 1_000_000);
+        if (ballDetectionHelper != null) {
+            PackedResult.writeOperatingPoint(packed, ballDetectionHelper.getGovernor(),
+                    ballDetectionHelper.getInputSize());
+        }
+        PackedResult.writeTimings(packed, now - startTime, inferenceTime, ballInferenceTime,
+                juggleCounter.getCount());
+        metrics.record(PipelineMetrics.STAGE_RESULT_ENCODE, System.nanoTime() - encodeStart);
+
+        return packed;
+    }
+
+    /**
+     * Übergibt die Keypoints der letzten Pose-Inferenz an den JuggleCounter
+     */
+    private synchronized void updateJugglePose() {
+        if (outputTensor != null) {
+            juggleCounter.updatePose(outputTensor[0][0]);
+        }
+    }
 
-            long inferenceTime = System.currentTimeMillis() - inferenceStartTime;
+    /**
+     * Erkennt Posen im Bild mit dem MoveNet-Modell. Das Kamerabild wird direkt aus den
+     * YUV-Planes in den Eingabe-Tensor geschrieben (gedreht, skaliert und bei der Frontkamera
+     * gespiegelt), die Keypoints liegen daher bereits in Anzeige-Koordinaten.
+     * 
+     * @param frame Das Kamerabild
+     * @return Map mit erkannten Personen und Keypoints
+     */
+    private synchronized Map<String, Object> detectPose(CameraFrame frame) {
+        if (moveNetInterpreter == null) {
+            Log.e(TAG, "MoveNet Interpreter ist null");
+            return new HashMap<>();
+        }
+
+        try {
+
+            long inferenceTime = runPoseInference(frame);
+            long encodeStart = System.nanoTime();
 
             List<Map<String, Object>> personDetections = new ArrayList<>();
             float[][][] personData = outputTensor[0];
@@ -413,6 +941,7 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
             List<Map<String, Object>> keypointsList = new ArrayList<>();
             float minX = 1.0f, minY = 1.0f, maxX = 0.0f, maxY = 0.0f;
             boolean hasValidKeypoints = false;
+            int validKeypoints = 0;
 
             float minScoreThresh = 0.2f;
 
@@ -420,10 +949,6 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
                 float y = personData[0][i][0];
                 float x = personData[0][i][1];
 
-                if (isFrontCamera) {
-                    x = 1.0f - x;
-                }
-
                 float score = personData[0][i][2];
 
                 Map<String, Object> keypoint = new HashMap<>();
@@ -434,7 +959,7 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
 
                 keypointsList.add(keypoint);
 
-                Log.d(TAG, "Keypoint " + KEYPOINT_NAMES[i] + ": x=" + x + ", y=" + y + ", score=" + score);
+                FrameTrace.record(FrameTrace.POSE_KEYPOINT, i, x, y, score);
 
                 if (score > minScoreThresh) {
                     minX = Math.min(minX, x);
@@ -442,6 +967,7 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
                     maxX = Math.max(maxX, x);
                     maxY = Math.max(maxY, y);
                     hasValidKeypoints = true;
+                    validKeypoints++;
                 }
             }
 
@@ -459,13 +985,13 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
                 personDetection.put("box", box);
                 personDetections.add(personDetection);
 
-                Log.d(TAG, "Person-Box: [" + minX + ", " + minY + ", " + maxX + ", " + maxY + "]");
-                Log.d(TAG, "Anzahl Keypoints mit Konfidenz > " + minScoreThresh + ": " + keypointsList.size());
+                FrameTrace.record(FrameTrace.POSE_BOX, minX, minY, maxX, maxY, validKeypoints);
             }
 
             Map<String, Object> result = new HashMap<>();
             result.put("detections", personDetections);
             result.put("inferenceTime", inferenceTime);
+            metrics.record(PipelineMetrics.STAGE_RESULT_ENCODE, System.nanoTime() - encodeStart);
 
             return result;
         } catch (Exception e) {
@@ -475,92 +1001,239 @@ public class MoveNetHelper implements MethodChannel.MethodCallHandler {
         }
     }
 
+    boolean isModelLoaded() {
+        if (offlineCopy) {
+            synchronized (this) {
+                return moveNetInterpreter != null;
+            }
+        }
+        return modelLoader.isReady();
+    }
+
     /**
-     * (Fallback)
+     * @return Eigener Eingabepuffer für die Offline-Analyse
      */
-    private Bitmap yuvToBitmap(byte[] yPlane, int width, int height) {
-        try {
-
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            int[] pixels = new int[width * height];
+    synchronized ByteBuffer allocateInput() {
+        return inputSpec.allocateBuffer();
+    }
 
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    int y = yPlane[i * width + j] & 0xff;
+    /**
+     * @return Eigener Ausgabe-Tensor für die Offline-Analyse
+     */
+    synchronized float[][][][] allocateOutput() {
+        int[] shape = outputSpec.shape;
+        return new float[shape[0]][shape[1]][shape[2]][shape[3]];
+    }
 
-                    pixels[i * width + j] = 0xff000000 | (y << 16) | (y << 8) | y;
-                }
-            }
+    /**
+     * Schreibt das ganze Bild (ohne Ausschnitt um die Person) in einen eigenen Eingabepuffer.
+     * Nutzt einen eigenen YuvPreprocessor und kann daher parallel zur Inferenz laufen.
+     */
+    void preprocessFullFrame(YuvPreprocessor framePreprocessor, CameraFrame frame, ByteBuffer input) {
+        input.clear();
+        framePreprocessor.preprocess(frame, inputSpec.shape[2], inputSpec.shape[1], frame.isFrontCamera,
+                inputQuantizer, input);
+        input.rewind();
+    }
 
-            bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
-            return bitmap;
-        } catch (Exception e) {
-            Log.e(TAG, "Fehler bei der Erstellung der Grayscale-Bitmap", e);
-            e.printStackTrace();
-            return null;
+    /**
+     * Führt MoveNet auf eigenen Puffern aus, ohne Ausschnitt und Glättung (Offline-Analyse)
+     */
+    synchronized void runModel(ByteBuffer input, float[][][][] output) {
+        if (moveNetInterpreter == null) {
+            throw new IllegalStateException("MoveNet-Modell nicht geladen");
         }
-    }
 
-    
-    private Bitmap yuvPlanesToBitmap(byte[] yPlane, byte[] uPlane, byte[] vPlane,
-            int width, int height, int uvRowStride, int uvPixelStride) {
-        try {
+        input.rewind();
+        long inferenceStart = System.nanoTime();
+        moveNetInterpreter.run(input, output);
+        metrics.record(PipelineMetrics.STAGE_INFERENCE, System.nanoTime() - inferenceStart);
+    }
 
-            int[] argb = new int[width * height];
+    /**
+     * Schreibt das Kamerabild in den Eingabe-Tensor und führt MoveNet aus. Das Ergebnis
+     * steht danach in outputTensor, auch im Ausschnitt-Modus in Koordinaten des ganzen Bildes
+     * und bei aktivierter Glättung bereits gefiltert.
+     *
+     * @return Inferenzzeit in ms
+     */
+    private synchronized long runPoseInference(CameraFrame frame) {
+        FrameTrace.record(FrameTrace.POSE_FRAME, frame.width, frame.height, frame.rotation,
+                frame.isFrontCamera ? 1f : 0f);
+
+        long frameTimestampNanos = frame.timestampNanos;
+        int inputHeight = inputSpec.shape[1];
+        int inputWidth = inputSpec.shape[2];
+
+        long preprocessStart = System.nanoTime();
+
+        ByteBuffer imgData = inputBuffer;
+        imgData.clear();
+
+        if (smartCrop) {
+            boolean transposed = frame.rotation == 90 || frame.rotation == 270;
+            int[] crop = cropRegion.getCrop(transposed ? frame.height : frame.width,
+                    transposed ? frame.width : frame.height);
+            preprocessor.preprocess(frame, crop[0], crop[1], crop[2], crop[3], inputWidth, inputHeight,
+                    frame.isFrontCamera, inputQuantizer, imgData);
+        } else {
+            preprocessor.preprocess(frame, inputWidth, inputHeight, frame.isFrontCamera, inputQuantizer,
+                    imgData);
+        }
 
-            for (int y = 0; y < height; y++) {
-                int yRowOffset = y * width;
-                int uvRowIndex = (y >> 1);
-                int uvRowOffset = uvRowIndex * uvRowStride;
+        imgData.rewind();
 
-                for (int x = 0; x < width; x++) {
-                    int yIndex = yRowOffset + x;
-                    int yValue = yPlane[yIndex] & 0xFF;
+        long inferenceStartTime = System.nanoTime();
+        metrics.record(PipelineMetrics.STAGE_PREPROCESS, inferenceStartTime - preprocessStart);
 
-                    int uvColIndex = x >> 1;
-                    int uIndex = uvRowOffset + (uvColIndex * uvPixelStride);
-                    int vIndex = uvRowOffset + (uvColIndex * uvPixelStride);
+        moveNetInterpreter.run(imgData, outputTensor);
 
-                    if (uIndex >= uPlane.length || vIndex >= vPlane.length) {
-                        uIndex = Math.min(uIndex, uPlane.length - 1);
-                        vIndex = Math.min(vIndex, vPlane.length - 1);
-                    }
+        long decodeStart = System.nanoTime();
+        long inferenceNanos = decodeStart - inferenceStartTime;
+        metrics.record(PipelineMetrics.STAGE_INFERENCE, inferenceNanos);
+        hasPoseOutput = true;
+        FrameTrace.record(FrameTrace.POSE_INFERENCE, (inferenceStartTime - preprocessStart) / 1e6f,
+                inferenceNanos / 1e6f, 0f, 0f);
 
-                    int uValue = (uPlane[uIndex] & 0xFF) - 128;
-                    int vValue = (vPlane[vIndex] & 0xFF) - 128;
+        if (smartCrop) {
+            // Keypoints auf das ganze Bild zurückrechnen und den Ausschnitt für das nächste Bild bestimmen
+            float[][] keypoints = outputTensor[0][0];
+            cropRegion.mapToFrame(keypoints);
+            cropRegion.update(keypoints);
+        }
 
-                    int y1192 = 1192 * (yValue - 16);
-                    int r = (y1192 + 1634 * vValue);
-                    int g = (y1192 - 833 * vValue - 400 * uValue);
-                    int b = (y1192 + 2066 * uValue);
+        if (keypointSmoother != null) {
+            keypointSmoother.apply(outputTensor[0][0], frameTimestampNanos);
+        }
+        metrics.record(PipelineMetrics.STAGE_OUTPUT_DECODE, System.nanoTime() - decodeStart);
 
-                    r = r < 0 ? 0 : (r > 262143 ? 255 : r >> 10);
-                    g = g < 0 ? 0 : (g > 262143 ? 255 : g >> 10);
-                    b = b < 0 ? 0 : (b > 262143 ? 255 : b >> 10);
+        return inferenceNanos / 1_000_000;
+    }
 
-                    argb[yIndex] = 0xff000000 | (r << 16) | (g << 8) | b;
-                }
-            }
+    /**
+     * Leiht den Interpreter aus der InterpreterRegistry aus, nach einem Neustart der Engine
+     * bereits aufgewärmt. Läuft auf dem Loader-Thread.
+     */
+    private synchronized void loadModel(String modelPath, boolean useGpu, boolean reprobe) throws IOException {
+        // Vorheriges Modell in den Pool zurückgeben, falls loadModels erneut aufgerufen wird
+        dispose(true);
+
+        interpreterLease = interpreterRegistry.acquire(modelPath, useGpu, reprobe);
+        this.modelPath = modelPath;
+        this.useGpu = useGpu;
+        moveNetInterpreter = interpreterLease.selection.interpreter;
+        modelLoader.setBackendInfo(interpreterLease.toMap());
+        Log.d(TAG, "MoveNet-Backend: " + interpreterLease.selection.backend);
+
+        prepareBuffers();
+    }
 
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            bitmap.setPixels(argb, 0, width, 0, 0, width, height);
-            return bitmap;
-        } catch (Exception e) {
-            Log.e(TAG, "Fehler bei YUV zu Bitmap Konvertierung", e);
-            e.printStackTrace();
-            return yuvToBitmap(yPlane, width, height);
+    /**
+     * Gibt die Interpreter eines Ladevorgangs frei, der durch dispose oder detach überholt
+     * wurde. Läuft bereits ein neuerer Ladevorgang, gibt dessen loadModel sie selbst frei.
+     */
+    private synchronized void discardLoad() {
+        if (!modelLoader.isLoading()) {
+            dispose(true);
         }
     }
 
-   
-    private void dispose() {
-        if (moveNetInterpreter != null) {
-            moveNetInterpreter.close();
+    /**
+     * Eine Inferenz auf der frisch angelegten (schwarzen) Eingabe, damit Delegate und Speicher
+     * vor dem ersten Bild initialisiert sind
+     */
+    private synchronized void warmUp() {
+        inputBuffer.rewind();
+        moveNetInterpreter.run(inputBuffer, outputTensor);
+    }
+
+    /**
+     * Liest Formen, Datentypen und Quantisierungsparameter einmalig aus und legt die
+     * Ein- und Ausgabepuffer an, die danach für jedes Bild wiederverwendet werden.
+     */
+    private void prepareBuffers() {
+        inputSpec = TensorSpec.of(moveNetInterpreter.getInputTensor(0));
+        outputSpec = TensorSpec.of(moveNetInterpreter.getOutputTensor(0));
+
+        inputBuffer = inputSpec.allocateBuffer();
+        inputQuantizer = inputSpec.inputQuantizer();
+        cropRegion.reset();
+        hasPoseOutput = false;
+        lastPoseResult = null;
+
+        int[] outputShape = outputSpec.shape;
+        outputTensor = new float[outputShape[0]][outputShape[1]][outputShape[2]][outputShape[3]];
+
+        Log.d(TAG, "Modell geladen - Eingabe: " + inputSpec);
+        Log.d(TAG, "Modell geladen - Ausgabe: " + outputSpec);
+        Log.d(TAG, "Erwartete Input-Bytegröße: " + inputSpec.numBytes());
+    }
+
+    /**
+     * Wird aufgerufen, wenn die FlutterEngine abgebaut wird. Der Interpreter bleibt warm in der
+     * InterpreterRegistry und wird von der nächsten Engine übernommen.
+     */
+    public void detach() {
+        session = null;
+        inferenceExecutor.shutdown();
+        dispose(true);
+        modelLoader.reset();
+        preprocessor.shutdown();
+    }
+
+    /**
+     * @param keepWarm Interpreter im Pool der Registry halten statt ihn zu schließen
+     */
+    private synchronized void dispose(boolean keepWarm) {
+        if (interpreterLease != null) {
+            interpreterRegistry.release(interpreterLease, keepWarm);
+            interpreterLease = null;
             moveNetInterpreter = null;
         }
-        if (gpuDelegate != null) {
-            gpuDelegate.close();
-            gpuDelegate = null;
+        inputBuffer = null;
+        outputTensor = null;
+        hasPoseOutput = false;
+        lastPoseResult = null;
+        cropRegion.reset();
+        if (keypointSmoother != null) {
+            keypointSmoother.reset();
+        }
+    }
+
+    /**
+     * Einstellungen einer Streaming-Sitzung, einmalig bei startSession übergeben
+     */
+    private static final class StreamSession {
+        static final String MODE_ALL = "all";
+        static final String MODE_POSE = "pose";
+        static final String MODE_BALL = "ball";
+
+        final String mode;
+        final BallDetectionConfig ballConfig;
+        final boolean includeDetections;
+        final boolean packed;
+        final float referenceHeight;
+
+        StreamSession(String mode, BallDetectionConfig ballConfig, boolean includeDetections, boolean packed,
+                float referenceHeight) {
+            this.mode = mode;
+            this.ballConfig = ballConfig;
+            this.includeDetections = includeDetections;
+            this.packed = packed;
+            this.referenceHeight = referenceHeight;
+        }
+
+        static StreamSession fromArguments(Map<String, Object> args) {
+            String mode = args.containsKey("mode") ? (String) args.get("mode") : MODE_ALL;
+            boolean includeDetections = args.containsKey("includeDetections")
+                    ? (boolean) args.get("includeDetections")
+                    : true;
+            boolean packed = args.containsKey("packed") ? (boolean) args.get("packed") : false;
+            float referenceHeight = args.get("referenceHeight") instanceof Number
+                    ? ((Number) args.get("referenceHeight")).floatValue()
+                    : 0f;
+            return new StreamSession(mode, BallDetectionConfig.fromArguments(args), includeDetections, packed,
+                    referenceHeight);
         }
     }
-}
\ No newline at end of file
+}
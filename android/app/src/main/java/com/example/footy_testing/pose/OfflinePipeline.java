@@ -0,0 +1,211 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei enthält eine Pipeline für die Offline-Analyse. Jede Stufe läuft auf einem eigenen
+ * Thread, die Stufen sind über begrenzte Warteschlangen verbunden. Es zirkuliert nur eine feste
+ * Anzahl wiederverwendeter Elemente (z.B. Bild mit Eingabe- und Ausgabepuffern): die Quelle
+ * füllt ein freies Element, jede Stufe bearbeitet es der Reihe nach, danach geht es zurück in
+ * den Vorrat. Da jede Stufe nur einen Thread hat, bleibt die Reihenfolge der Bilder erhalten.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public final class OfflinePipeline<T> {
+
+    /**
+     * Erste Stufe, füllt ein freies Element
+     */
+    public interface Source<T> {
+        /**
+         * @return false, wenn keine Eingaben mehr vorhanden sind; das Element bleibt dann unbenutzt
+         */
+        boolean next(T item) throws Exception;
+    }
+
+    /**
+     * Eine Verarbeitungsstufe
+     */
+    public interface Stage<T> {
+        void process(T item) throws Exception;
+    }
+
+    /** Markiert das Ende in den Warteschlangen */
+    private static final Object END = new Object();
+
+    private final List<T> items;
+    private final List<String> stageNames = new ArrayList<>();
+    private final List<Stage<T>> stages = new ArrayList<>();
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile Exception error;
+
+    /**
+     * @param items Wiederverwendete Elemente, ihre Anzahl begrenzt die Bilder in Bearbeitung
+     */
+    public OfflinePipeline(List<T> items) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("Mindestens ein Element erforderlich");
+        }
+        this.items = items;
+    }
+
+    public OfflinePipeline<T> addStage(String name, Stage<T> stage) {
+        stageNames.add(name);
+        stages.add(stage);
+        return this;
+    }
+
+    /**
+     * Lässt die Pipeline bis zum Ende der Quelle laufen. Wirft eine Stufe eine Exception, werden
+     * alle Threads beendet und die Exception hier weitergegeben.
+     *
+     * @param sourceName Name der Quelle in den Statistiken
+     * @return "items", "totalMs", "itemsPerSecond" und je Stufe "items", "busyMs", "meanMs",
+     *         "utilization" (Anteil der Gesamtzeit mit Arbeit) unter "stages"
+     */
+    public Map<String, Object> run(String sourceName, Source<T> source) throws Exception {
+        int stageCount = stages.size();
+        int capacity = items.size();
+
+        BlockingQueue<T> free = new ArrayBlockingQueue<>(capacity, false, items);
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        for (int i = 0; i < stageCount; i++) {
+            // Eine Stelle mehr für die Ende-Markierung
+            queues.add(new ArrayBlockingQueue<>(capacity + 1));
+        }
+
+        long[] busyNanos = new long[stageCount + 1];
+        long[] counts = new long[stageCount + 1];
+
+        threads.clear();
+        error = null;
+        long start = System.nanoTime();
+
+        threads.add(new Thread(() -> {
+            try {
+                while (true) {
+                    T item = free.take();
+                    long itemStart = System.nanoTime();
+                    boolean more = source.next(item);
+                    if (!more) {
+                        break;
+                    }
+                    busyNanos[0] += System.nanoTime() - itemStart;
+                    counts[0]++;
+                    forward(queues, 0, item, free);
+                }
+                forward(queues, 0, END, free);
+            } catch (InterruptedException e) {
+                // Abbruch wegen eines Fehlers in einer anderen Stufe
+            } catch (Exception e) {
+                fail(e);
+            }
+        }, "Pipeline-" + sourceName));
+
+        for (int s = 0; s < stageCount; s++) {
+            final int index = s;
+            final Stage<T> stage = stages.get(s);
+            threads.add(new Thread(() -> {
+                try {
+                    while (true) {
+                        Object next = queues.get(index).take();
+                        if (next == END) {
+                            forward(queues, index + 1, END, free);
+                            break;
+                        }
+
+                        @SuppressWarnings("unchecked")
+                        T item = (T) next;
+                        long itemStart = System.nanoTime();
+                        stage.process(item);
+                        busyNanos[index + 1] += System.nanoTime() - itemStart;
+                        counts[index + 1]++;
+                        forward(queues, index + 1, item, free);
+                    }
+                } catch (InterruptedException e) {
+                    // Abbruch wegen eines Fehlers in einer anderen Stufe
+                } catch (Exception e) {
+                    fail(e);
+                }
+            }, "Pipeline-" + stageNames.get(s)));
+        }
+
+        // fail() wartet, bis alle Threads laufen, sonst ginge die Unterbrechung verloren
+        synchronized (this) {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+
+        if (error != null) {
+            throw error;
+        }
+
+        long totalNanos = System.nanoTime() - start;
+
+        Map<String, Object> stageMaps = new HashMap<>();
+        stageMaps.put(sourceName, stageStats(busyNanos[0], counts[0], totalNanos));
+        for (int s = 0; s < stageCount; s++) {
+            stageMaps.put(stageNames.get(s), stageStats(busyNanos[s + 1], counts[s + 1], totalNanos));
+        }
+
+        long itemCount = counts[stageCount];
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("items", itemCount);
+        stats.put("totalMs", totalNanos / 1e6);
+        stats.put("itemsPerSecond", totalNanos > 0 ? itemCount / (totalNanos / 1e9) : 0.0);
+        stats.put("stages", stageMaps);
+        return stats;
+    }
+
+    /**
+     * Gibt ein Element an die Stufe mit dem Index stage weiter, nach der letzten Stufe zurück in
+     * den Vorrat
+     */
+    @SuppressWarnings("unchecked")
+    private void forward(List<BlockingQueue<Object>> queues, int stage, Object item, BlockingQueue<T> free)
+            throws InterruptedException {
+        if (stage < queues.size()) {
+            queues.get(stage).put(item);
+        } else if (item != END) {
+            free.put((T) item);
+        }
+    }
+
+    private synchronized void fail(Exception e) {
+        if (error == null) {
+            error = e;
+        }
+        for (Thread thread : threads) {
+            if (thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private static Map<String, Object> stageStats(long busyNanos, long count, long totalNanos) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("items", count);
+        map.put("busyMs", busyNanos / 1e6);
+        map.put("meanMs", count > 0 ? busyNanos / 1e6 / count : 0.0);
+        map.put("utilization", totalNanos > 0 ? (double) busyNanos / totalNanos : 0.0);
+        return map;
+    }
+}
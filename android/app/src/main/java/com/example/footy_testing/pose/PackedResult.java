@@ -0,0 +1,168 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei beschreibt das kompakte Ergebnisformat der kombinierten Erkennung. Statt
+ * verschachtelter HashMaps wird ein einzelnes float[] mit festem Schema übertragen, das der
+ * StandardMessageCodec als Float32List in einem Stück kopiert. Das Schema ist über die
+ * Versionsnummer im Kopf abgesichert und muss mit PackedResult in Dart übereinstimmen.
+ *
+ * Aufbau (Version 2):
+ *   [0]       Version
+ *   [1]       Flags (Pose gültig, Ball gültig, Ball vorhergesagt, Pose übernommen, keine Bewegung)
+ *   [2]       Bild-ID (Streaming-Modus, sonst -1)
+ *   [3..5]    Gesamtzeit, Pose-Inferenzzeit, Ball-Zeit in ms
+ *   [6]       Jonglier-Zähler
+ *   [7..10]   Personen-Box x1, y1, x2, y2
+ *   [11..61]  17 Keypoints als x, y, score
+ *   [62..65]  Ball-Box x1, y1, x2, y2
+ *   [66]      Ball-Konfidenz
+ *   [67..70]  Stufe des LatencyGovernor, YOLO-Eingabegröße, Ball- und Pose-Schrittweite
+ *   [71]      Anzahl Juggle-Ereignisse n
+ *   [72..]    n Ereignisse als Methode, Konfidenz, Zähler, Alter in ms
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.List;
+
+public final class PackedResult {
+    public static final int VERSION = 2;
+
+    public static final int FLAG_POSE = 1;
+    public static final int FLAG_BALL = 2;
+    public static final int FLAG_BALL_PREDICTED = 4;
+    /** Keypoints der letzten Pose-Inferenz, auf diesem Bild lief MoveNet nicht */
+    public static final int FLAG_POSE_REUSED = 8;
+    /** Keine Bewegung seit der letzten Inferenz, Pose und Ball wurden übernommen */
+    public static final int FLAG_MOTION_IDLE = 16;
+
+    public static final int VERSION_INDEX = 0;
+    public static final int FLAGS = 1;
+    public static final int FRAME_ID = 2;
+    public static final int PROCESSING_TIME = 3;
+    public static final int POSE_INFERENCE_TIME = 4;
+    public static final int BALL_TIME = 5;
+    public static final int JUGGLE_COUNT = 6;
+    public static final int PERSON_BOX = 7;
+    public static final int KEYPOINTS = 11;
+    public static final int KEYPOINT_COUNT = 17;
+    public static final int BALL_BOX = KEYPOINTS + KEYPOINT_COUNT * 3;
+    public static final int BALL_SCORE = BALL_BOX + 4;
+    public static final int OPERATING_POINT = BALL_SCORE + 1;
+    public static final int EVENT_COUNT = OPERATING_POINT + 4;
+    public static final int EVENTS = EVENT_COUNT + 1;
+    public static final int EVENT_SIZE = 4;
+
+    /** Mindestkonfidenz eines Keypoints für die Personen-Box, wie in MoveNetHelper.detectPose */
+    private static final float MIN_KEYPOINT_SCORE = 0.2f;
+    private static final float BOX_BUFFER = 0.05f;
+
+    private PackedResult() {
+    }
+
+    /**
+     * Legt ein Ergebnis mit Kopf und Platz für die Ereignisse an
+     */
+    public static float[] allocate(int eventCount) {
+        float[] packed = new float[EVENTS + eventCount * EVENT_SIZE];
+        packed[VERSION_INDEX] = VERSION;
+        packed[FRAME_ID] = -1;
+        packed[EVENT_COUNT] = eventCount;
+        return packed;
+    }
+
+    /**
+     * @param keypoints MoveNet-Ausgabe, 17 Keypoints als [y, x, score]
+     * @return true, wenn mindestens ein Keypoint sicher genug für eine Personen-Box ist
+     */
+    public static boolean hasValidKeypoints(float[][] keypoints) {
+        for (int i = 0; i < KEYPOINT_COUNT; i++) {
+            if (keypoints[i][2] > MIN_KEYPOINT_SCORE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Schreibt Keypoints und Personen-Box (mit 5% Rand) in das Ergebnis
+     *
+     * @param keypoints MoveNet-Ausgabe, 17 Keypoints als [y, x, score]
+     */
+    public static void writePose(float[] packed, float[][] keypoints) {
+        float minX = 1.0f, minY = 1.0f, maxX = 0.0f, maxY = 0.0f;
+        boolean valid = false;
+
+        for (int i = 0; i < KEYPOINT_COUNT; i++) {
+            float y = keypoints[i][0];
+            float x = keypoints[i][1];
+            float score = keypoints[i][2];
+
+            int o = KEYPOINTS + i * 3;
+            packed[o] = x;
+            packed[o + 1] = y;
+            packed[o + 2] = score;
+
+            if (score > MIN_KEYPOINT_SCORE) {
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                valid = true;
+            }
+        }
+
+        if (valid) {
+            packed[PERSON_BOX] = Math.max(0.0f, minX - BOX_BUFFER);
+            packed[PERSON_BOX + 1] = Math.max(0.0f, minY - BOX_BUFFER);
+            packed[PERSON_BOX + 2] = Math.min(1.0f, maxX + BOX_BUFFER);
+            packed[PERSON_BOX + 3] = Math.min(1.0f, maxY + BOX_BUFFER);
+            packed[FLAGS] = (int) packed[FLAGS] | FLAG_POSE;
+        }
+    }
+
+    public static void writeBall(float[] packed, float[] box, float score, boolean predicted) {
+        System.arraycopy(box, 0, packed, BALL_BOX, 4);
+        packed[BALL_SCORE] = score;
+
+        int flags = (int) packed[FLAGS] | FLAG_BALL;
+        if (predicted) {
+            flags |= FLAG_BALL_PREDICTED;
+        }
+        packed[FLAGS] = flags;
+    }
+
+    /**
+     * @param nowMs Zeitpunkt des Ergebnisses, das Alter der Ereignisse wird relativ dazu gespeichert
+     */
+    public static void writeEvents(float[] packed, List<JuggleCounter.JuggleEvent> events, long nowMs) {
+        for (int i = 0; i < events.size(); i++) {
+            JuggleCounter.JuggleEvent event = events.get(i);
+            int o = EVENTS + i * EVENT_SIZE;
+            packed[o] = event.method;
+            packed[o + 1] = event.confidence;
+            packed[o + 2] = event.count;
+            packed[o + 3] = nowMs - event.timestampMs;
+        }
+    }
+
+    /**
+     * Schreibt die aktuelle Stufe des LatencyGovernor in das Ergebnis
+     *
+     * @param fullInputSize Eingabegröße des YOLO-Modells
+     */
+    public static void writeOperatingPoint(float[] packed, LatencyGovernor governor, int fullInputSize) {
+        packed[OPERATING_POINT] = governor.getLevel();
+        packed[OPERATING_POINT + 1] = governor.getInputSize(fullInputSize);
+        packed[OPERATING_POINT + 2] = governor.getBallStride();
+        packed[OPERATING_POINT + 3] = governor.getPoseStride();
+    }
+
+    public static void writeTimings(float[] packed, long processingTimeMs, long poseInferenceTimeMs,
+            long ballTimeMs, int juggleCount) {
+        packed[PROCESSING_TIME] = processingTimeMs;
+        packed[POSE_INFERENCE_TIME] = poseInferenceTimeMs;
+        packed[BALL_TIME] = ballTimeMs;
+        packed[JUGGLE_COUNT] = juggleCount;
+    }
+}
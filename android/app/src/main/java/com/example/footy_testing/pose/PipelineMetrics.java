@@ -0,0 +1,73 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei sammelt die Laufzeiten der einzelnen Verarbeitungsschritte eines Helfers in
+ * LatencyHistogrammen. Gemessen wird mit System.nanoTime; über den Channel-Aufruf getMetrics
+ * werden p50/p90/p99/Maximum je Schritt abgefragt, um Geräte anhand der Ausreißer statt der
+ * Mittelwerte abzustimmen.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class PipelineMetrics {
+    /** Auslesen der Channel-Argumente in CameraFrame und Konfiguration */
+    public static final int STAGE_CHANNEL_DECODE = 0;
+    /** YUV-Konvertierung, Drehung, Skalierung und Befüllen des Tensors (ein Durchlauf) */
+    public static final int STAGE_PREPROCESS = 1;
+    public static final int STAGE_INFERENCE = 2;
+    /** Auswertung des Ausgabe-Tensors (YOLO-Decoder bzw. Keypoint-Umrechnung und Glättung) */
+    public static final int STAGE_OUTPUT_DECODE = 3;
+    /** Aufbau der Antwort für Flutter */
+    public static final int STAGE_RESULT_ENCODE = 4;
+    /** Ganzes Bild auf dem Inferenz-Thread */
+    public static final int STAGE_TOTAL = 5;
+    /** Bewegungserkennung auf der Y-Plane (motionGating) */
+    public static final int STAGE_MOTION = 6;
+
+    private static final String[] STAGE_NAMES = {
+            "channelDecode", "preprocess", "inference", "outputDecode", "resultEncode", "total", "motion"
+    };
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGE_NAMES.length];
+
+    public PipelineMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @param stage Einer der STAGE-Werte
+     * @param nanos Dauer in Nanosekunden
+     */
+    public void record(int stage, long nanos) {
+        stages[stage].record(nanos);
+    }
+
+    public void reset() {
+        for (LatencyHistogram stage : stages) {
+            stage.reset();
+        }
+    }
+
+    /**
+     * @param droppedFrames Verworfene Bilder des InferenceExecutors
+     * @return Map mit "frames", "droppedFrames" und je Schritt count/meanMs/p50Ms/p90Ms/p99Ms/maxMs
+     *         unter "stages"
+     */
+    public Map<String, Object> toMap(long droppedFrames) {
+        Map<String, Object> stageMaps = new HashMap<>();
+        for (int i = 0; i < stages.length; i++) {
+            stageMaps.put(STAGE_NAMES[i], stages[i].toMap());
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("frames", stages[STAGE_TOTAL].getCount());
+        map.put("droppedFrames", droppedFrames);
+        map.put("stages", stageMaps);
+        return map;
+    }
+}
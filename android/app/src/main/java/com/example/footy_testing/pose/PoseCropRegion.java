@@ -0,0 +1,138 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei bestimmt den Bildausschnitt für MoveNet aus den Keypoints des vorherigen Bildes,
+ * wie in der Referenz-Pipeline von MoveNet. Statt das ganze Bild verzerrt auf 192x192 zu
+ * skalieren, wird ein quadratischer Ausschnitt um Rumpf und Körper ausgewertet. Knie und
+ * Knöchel bekommen dadurch bei gleicher Eingabegröße deutlich mehr Pixel.
+ */
+
+package com.example.footy_testing.pose;
+
+public final class PoseCropRegion {
+
+    /** Mindestkonfidenz eines Keypoints, um für den Ausschnitt berücksichtigt zu werden */
+    private static final float MIN_CROP_KEYPOINT_SCORE = 0.2f;
+
+    /** Rand um Rumpf bzw. Körper als Vielfaches ihrer Ausdehnung (Werte der Referenz-Pipeline) */
+    private static final float TORSO_EXPANSION_RATIO = 1.9f;
+    private static final float BODY_EXPANSION_RATIO = 1.2f;
+
+    // MoveNet-Indizes
+    private static final int LEFT_SHOULDER = 5;
+    private static final int RIGHT_SHOULDER = 6;
+    private static final int LEFT_HIP = 11;
+    private static final int RIGHT_HIP = 12;
+    private static final int[] TORSO_JOINTS = { LEFT_SHOULDER, RIGHT_SHOULDER, LEFT_HIP, RIGHT_HIP };
+
+    /** Aktueller Ausschnitt in Pixeln des gedrehten Bildes, darf über den Bildrand hinausragen */
+    private final int[] crop = new int[4];
+
+    private int rotatedWidth = -1;
+    private int rotatedHeight = -1;
+
+    /**
+     * Liefert den Ausschnitt für das nächste Bild. Ändert sich die Bildgröße, wird wieder mit
+     * dem ganzen Bild begonnen.
+     *
+     * @param rotatedWidth  Breite des gedrehten Bildes in Pixeln
+     * @param rotatedHeight Höhe des gedrehten Bildes in Pixeln
+     * @return x, y, Breite, Höhe in Pixeln des gedrehten Bildes
+     */
+    public int[] getCrop(int rotatedWidth, int rotatedHeight) {
+        if (rotatedWidth != this.rotatedWidth || rotatedHeight != this.rotatedHeight) {
+            this.rotatedWidth = rotatedWidth;
+            this.rotatedHeight = rotatedHeight;
+            initCrop();
+        }
+        return crop;
+    }
+
+    public void reset() {
+        rotatedWidth = -1;
+        rotatedHeight = -1;
+    }
+
+    /**
+     * Rechnet die Keypoints aus Koordinaten des Ausschnitts in normierte Koordinaten des ganzen
+     * Bildes um (in-place)
+     *
+     * @param keypoints MoveNet-Ausgabe, 17 Keypoints als [y, x, score]
+     */
+    public void mapToFrame(float[][] keypoints) {
+        for (float[] keypoint : keypoints) {
+            keypoint[0] = (crop[1] + keypoint[0] * crop[3]) / rotatedHeight;
+            keypoint[1] = (crop[0] + keypoint[1] * crop[2]) / rotatedWidth;
+        }
+    }
+
+    /**
+     * Bestimmt den Ausschnitt für das nächste Bild aus den Keypoints des aktuellen Bildes
+     *
+     * @param keypoints 17 Keypoints als [y, x, score], normiert auf das ganze Bild
+     */
+    public void update(float[][] keypoints) {
+        if (!isTorsoVisible(keypoints)) {
+            initCrop();
+            return;
+        }
+
+        float centerY = (keypoints[LEFT_HIP][0] + keypoints[RIGHT_HIP][0]) / 2 * rotatedHeight;
+        float centerX = (keypoints[LEFT_HIP][1] + keypoints[RIGHT_HIP][1]) / 2 * rotatedWidth;
+
+        float maxTorsoY = 0, maxTorsoX = 0;
+        for (int joint : TORSO_JOINTS) {
+            maxTorsoY = Math.max(maxTorsoY, Math.abs(centerY - keypoints[joint][0] * rotatedHeight));
+            maxTorsoX = Math.max(maxTorsoX, Math.abs(centerX - keypoints[joint][1] * rotatedWidth));
+        }
+
+        float maxBodyY = 0, maxBodyX = 0;
+        for (float[] keypoint : keypoints) {
+            if (keypoint[2] < MIN_CROP_KEYPOINT_SCORE) {
+                continue;
+            }
+            maxBodyY = Math.max(maxBodyY, Math.abs(centerY - keypoint[0] * rotatedHeight));
+            maxBodyX = Math.max(maxBodyX, Math.abs(centerX - keypoint[1] * rotatedWidth));
+        }
+
+        float halfSide = Math.max(
+                Math.max(maxTorsoX * TORSO_EXPANSION_RATIO, maxTorsoY * TORSO_EXPANSION_RATIO),
+                Math.max(maxBodyX * BODY_EXPANSION_RATIO, maxBodyY * BODY_EXPANSION_RATIO));
+
+        // Nicht weiter als bis zum entferntesten Bildrand
+        float distanceToBorder = Math.max(
+                Math.max(centerX, rotatedWidth - centerX),
+                Math.max(centerY, rotatedHeight - centerY));
+        halfSide = Math.min(halfSide, distanceToBorder);
+
+        if (halfSide > Math.max(rotatedWidth, rotatedHeight) / 2f || halfSide < 1) {
+            initCrop();
+            return;
+        }
+
+        int side = Math.round(halfSide * 2);
+        crop[0] = Math.round(centerX - halfSide);
+        crop[1] = Math.round(centerY - halfSide);
+        crop[2] = side;
+        crop[3] = side;
+    }
+
+    /**
+     * Quadrat über das ganze Bild, die kürzere Seite wird beidseitig aufgefüllt
+     */
+    private void initCrop() {
+        int side = Math.max(rotatedWidth, rotatedHeight);
+        crop[0] = (rotatedWidth - side) / 2;
+        crop[1] = (rotatedHeight - side) / 2;
+        crop[2] = side;
+        crop[3] = side;
+    }
+
+    private static boolean isTorsoVisible(float[][] keypoints) {
+        boolean hipVisible = keypoints[LEFT_HIP][2] > MIN_CROP_KEYPOINT_SCORE
+                || keypoints[RIGHT_HIP][2] > MIN_CROP_KEYPOINT_SCORE;
+        boolean shoulderVisible = keypoints[LEFT_SHOULDER][2] > MIN_CROP_KEYPOINT_SCORE
+                || keypoints[RIGHT_SHOULDER][2] > MIN_CROP_KEYPOINT_SCORE;
+        return hipVisible && shoulderVisible;
+    }
+}
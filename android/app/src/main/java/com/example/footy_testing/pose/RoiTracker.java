@@ -0,0 +1,138 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei verwaltet den Tracking-Modus der Ballerkennung. Nach einer sicheren Erkennung
+ * wird für die folgenden Bilder ein quadratischer Ausschnitt um die vorhergesagte Ballposition
+ * berechnet, der mit kleinerer Eingabegröße ausgewertet wird. Nach mehreren Fehlschlägen in
+ * Folge wird wieder das ganze Bild durchsucht.
+ */
+
+package com.example.footy_testing.pose;
+
+public final class RoiTracker {
+
+    private final float acquireConfidence;
+    private final int maxMisses;
+    private final float cropScale;
+
+    private boolean tracking = false;
+    private int missedFrames = 0;
+
+    /** Letzte Ballposition und -größe in normierten Koordinaten des gedrehten Bildes */
+    private float centerX;
+    private float centerY;
+    private float boxWidth;
+    private float boxHeight;
+
+    /** Bewegung pro Bild, normiert */
+    private float velocityX;
+    private float velocityY;
+
+    /**
+     * @param acquireConfidence Mindestkonfidenz, ab der das Tracking beginnt
+     * @param maxMisses         Fehlschläge in Folge, nach denen wieder das ganze Bild durchsucht wird
+     * @param cropScale         Seitenlänge des Ausschnitts als Vielfaches der Ballgröße
+     */
+    public RoiTracker(float acquireConfidence, int maxMisses, float cropScale) {
+        this.acquireConfidence = acquireConfidence;
+        this.maxMisses = maxMisses;
+        this.cropScale = cropScale;
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * Berechnet den Ausschnitt für das nächste Bild um die vorhergesagte Ballposition
+     *
+     * @param rotatedWidth  Breite des gedrehten Bildes in Pixeln
+     * @param rotatedHeight Höhe des gedrehten Bildes in Pixeln
+     * @param minCropSize   Minimale Seitenlänge des Ausschnitts in Pixeln
+     * @param crop          Ausgabe: x, y, Breite, Höhe in Pixeln des gedrehten Bildes
+     * @return false, wenn nicht getrackt wird und das ganze Bild verwendet werden soll
+     */
+    public boolean computeCrop(int rotatedWidth, int rotatedHeight, int minCropSize, int[] crop) {
+        if (!tracking) {
+            return false;
+        }
+
+        int maxSide = Math.min(rotatedWidth, rotatedHeight);
+
+        float ballSide = Math.max(boxWidth * rotatedWidth, boxHeight * rotatedHeight);
+        int side = (int) (ballSide * cropScale);
+        side = Math.max(side, Math.min(minCropSize, maxSide));
+        side = Math.min(side, maxSide);
+
+        // Vorhersage mit konstanter Geschwindigkeit, der Ausschnitt bleibt immer im Bild
+        float predictedX = (centerX + velocityX) * rotatedWidth;
+        float predictedY = (centerY + velocityY) * rotatedHeight;
+
+        int x = Math.round(predictedX - side / 2f);
+        int y = Math.round(predictedY - side / 2f);
+        x = Math.max(0, Math.min(rotatedWidth - side, x));
+        y = Math.max(0, Math.min(rotatedHeight - side, y));
+
+        crop[0] = x;
+        crop[1] = y;
+        crop[2] = side;
+        crop[3] = side;
+        return true;
+    }
+
+    /**
+     * Meldet die beste Erkennung des aktuellen Bildes
+     *
+     * @param box   Box als normierte Koordinaten x1, y1, x2, y2 im gedrehten Bild
+     * @param score Konfidenz der Erkennung
+     */
+    public void update(float[] box, float score) {
+        if (!tracking && score < acquireConfidence) {
+            return;
+        }
+
+        float newCenterX = (box[0] + box[2]) / 2;
+        float newCenterY = (box[1] + box[3]) / 2;
+
+        if (tracking) {
+            velocityX = newCenterX - centerX;
+            velocityY = newCenterY - centerY;
+        } else {
+            velocityX = 0;
+            velocityY = 0;
+        }
+
+        centerX = newCenterX;
+        centerY = newCenterY;
+        boxWidth = box[2] - box[0];
+        boxHeight = box[3] - box[1];
+
+        tracking = true;
+        missedFrames = 0;
+    }
+
+    /**
+     * Meldet ein Bild ohne Erkennung
+     */
+    public void miss() {
+        if (!tracking) {
+            return;
+        }
+
+        missedFrames++;
+        if (missedFrames >= maxMisses) {
+            reset();
+        } else {
+            // Position weiter extrapolieren, damit der Ausschnitt dem Ball folgt
+            centerX += velocityX;
+            centerY += velocityY;
+        }
+    }
+
+    public void reset() {
+        tracking = false;
+        missedFrames = 0;
+        velocityX = 0;
+        velocityY = 0;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei verteilt zeilenweise Arbeit (z.B. die YUV-Vorverarbeitung) in Streifen auf
+ * einen kleinen festen Pool von Worker-Threads. Der aufrufende Thread bearbeitet den ersten
+ * Streifen selbst, jeder weitere Streifen läuft auf einem eigenen Worker. Die Streifen teilen
+ * keinen veränderlichen Zustand, jeder schreibt nur in seinen eigenen Zeilenbereich.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class RowStripes {
+
+    /**
+     * Bearbeitet die Zeilen [rowStart, rowEnd) eines Streifens
+     */
+    public interface Task {
+        void run(int stripe, int rowStart, int rowEnd);
+    }
+
+    /**
+     * Auftrag eines Worker-Streifens, wird für jeden Aufruf von run wiederverwendet
+     */
+    private final class Stripe implements Runnable {
+        final int index;
+        int rowStart;
+        int rowEnd;
+
+        Stripe(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            RuntimeException error = null;
+            try {
+                task.run(index, rowStart, rowEnd);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+
+            synchronized (lock) {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                if (--pending == 0) {
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private final int threadCount;
+    private final ExecutorService workers;
+    private final Stripe[] stripes;
+
+    /** Schützt pending und failure, die Worker melden sich darüber zurück */
+    private final Object lock = new Object();
+    private int pending;
+    private RuntimeException failure;
+    /** Aufgabe des laufenden Aufrufs, wird vor der Übergabe an die Worker gesetzt */
+    private Task task;
+
+    /**
+     * @param name        Präfix der Thread-Namen
+     * @param threadCount Anzahl der Streifen inklusive des aufrufenden Threads
+     */
+    public RowStripes(final String name, int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+
+        stripes = new Stripe[this.threadCount];
+        for (int i = 1; i < this.threadCount; i++) {
+            stripes[i] = new Stripe(i);
+        }
+
+        if (this.threadCount > 1) {
+            final AtomicInteger index = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(this.threadCount - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name + "-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            workers = null;
+        }
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Teilt rowCount Zeilen in höchstens threadCount gleich große Streifen und wartet, bis
+     * alle bearbeitet sind. Ausnahmen aus den Workern werden im aufrufenden Thread geworfen.
+     * Die Aufträge der Streifen und der Zähler werden wiederverwendet, pro Aufruf wird nichts
+     * angelegt. Aufrufe von mehreren Threads werden nacheinander ausgeführt.
+     *
+     * @param stripeCount Gewünschte Anzahl der Streifen, wird auf threadCount begrenzt
+     */
+    public synchronized void run(int rowCount, int stripeCount, Task task) {
+        stripeCount = Math.max(1, Math.min(Math.min(stripeCount, threadCount), rowCount));
+        if (stripeCount == 1) {
+            task.run(0, 0, rowCount);
+            return;
+        }
+
+        this.task = task;
+        synchronized (lock) {
+            pending = stripeCount - 1;
+            failure = null;
+        }
+
+        for (int i = 1; i < stripeCount; i++) {
+            Stripe stripe = stripes[i];
+            stripe.rowStart = rowCount * i / stripeCount;
+            stripe.rowEnd = rowCount * (i + 1) / stripeCount;
+            workers.execute(stripe);
+        }
+
+        RuntimeException error = null;
+        try {
+            task.run(0, 0, rowCount / stripeCount);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        // Auch nach einer Unterbrechung bis zum Ende aller Streifen warten, da die Worker die
+        // Streifen-Aufträge sonst noch lesen, während der nächste Aufruf sie neu belegt
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (pending > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (error == null) {
+                error = failure;
+            }
+            failure = null;
+        }
+        this.task = null;
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Beendet die Worker, laufende Streifen werden noch fertig bearbeitet
+     */
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+}
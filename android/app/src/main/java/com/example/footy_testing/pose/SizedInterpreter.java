@@ -0,0 +1,137 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei beschreibt einen ausgeliehenen Interpreter mit fester Eingabeform und eigenen
+ * Ein- und Ausgabepuffern. Statt einen Interpreter per resizeInput zwischen Eingabegrößen
+ * umzustellen (allocateTensors und neue Puffer bei jedem Wechsel), wird je Form einmalig eine
+ * Instanz angelegt; ein Wechsel der Größe tauscht danach nur die Instanz aus.
+ */
+
+package com.example.footy_testing.pose;
+
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+final class SizedInterpreter {
+    private static final String TAG = "SizedInterpreter";
+
+    final InterpreterRegistry.Lease lease;
+    final Interpreter interpreter;
+    final TensorSpec inputSpec;
+    final TensorSpec outputSpec;
+    /** Umrechnung der Pixel in den Eingabe-Tensor, null bei FLOAT32 */
+    final InputQuantizer inputQuantizer;
+    final ByteBuffer inputBuffer;
+    final ByteBuffer outputBuffer;
+    /** Sicht auf outputBuffer bei FLOAT32-Ausgabe, sonst null */
+    final FloatBuffer outputFloats;
+
+    private final Object[] inputArray = new Object[1];
+    private final Map<Integer, Object> outputMap = new HashMap<>();
+    /** Eingabeform des Modells, wird vor der Rückgabe an den Pool wiederhergestellt */
+    private final int[] modelShape;
+
+    private SizedInterpreter(InterpreterRegistry.Lease lease, int[] modelShape) {
+        this.lease = lease;
+        this.interpreter = lease.selection.interpreter;
+        this.modelShape = modelShape;
+
+        inputSpec = TensorSpec.of(interpreter.getInputTensor(0));
+        outputSpec = TensorSpec.of(interpreter.getOutputTensor(0));
+        inputQuantizer = inputSpec.inputQuantizer();
+
+        inputBuffer = inputSpec.allocateBuffer();
+        outputBuffer = outputSpec.allocateBuffer();
+        outputFloats = outputSpec.isFloat() ? outputBuffer.asFloatBuffer() : null;
+        inputArray[0] = inputBuffer;
+        outputMap.put(0, outputBuffer);
+    }
+
+    /**
+     * Übernimmt einen Interpreter mit der Eingabeform des Modells
+     */
+    static SizedInterpreter of(InterpreterRegistry.Lease lease) {
+        return new SizedInterpreter(lease, lease.selection.interpreter.getInputTensor(0).shape().clone());
+    }
+
+    /**
+     * Stellt einen Interpreter auf die Form [batch, size, size, Kanäle] um. Schlägt das fehl
+     * (z.B. mit GPU-Delegate), wird der Interpreter geschlossen und die Exception weitergegeben.
+     *
+     * @param registry Registry, aus der der Interpreter ausgeliehen wurde
+     */
+    static SizedInterpreter resized(InterpreterRegistry registry, InterpreterRegistry.Lease lease, int batch,
+            int size) {
+        Interpreter interpreter = lease.selection.interpreter;
+        int[] modelShape = interpreter.getInputTensor(0).shape().clone();
+        int[] shape = modelShape.clone();
+        shape[0] = batch;
+        shape[1] = size;
+        shape[2] = size;
+
+        try {
+            if (!Arrays.equals(shape, modelShape)) {
+                interpreter.resizeInput(0, shape);
+                interpreter.allocateTensors();
+            }
+            return new SizedInterpreter(lease, modelShape);
+        } catch (RuntimeException e) {
+            registry.release(lease, false);
+            throw e;
+        }
+    }
+
+    int getBatchSize() {
+        return inputSpec.shape[0];
+    }
+
+    int getInputSize() {
+        return inputSpec.shape[1];
+    }
+
+    /**
+     * Führt das Modell auf den eigenen Puffern aus
+     */
+    void run() {
+        inputBuffer.rewind();
+        outputBuffer.rewind();
+        interpreter.runForMultipleInputsOutputs(inputArray, outputMap);
+    }
+
+    /**
+     * Führt das Modell auf fremden Puffern derselben Form aus (z.B. Elemente einer OfflinePipeline)
+     */
+    void run(ByteBuffer input, ByteBuffer output) {
+        Map<Integer, Object> outputs = new HashMap<>();
+        outputs.put(0, output);
+        input.rewind();
+        output.rewind();
+        interpreter.runForMultipleInputsOutputs(new Object[] { input }, outputs);
+    }
+
+    /**
+     * Gibt den Interpreter an die Registry zurück. Für den Pool wird vorher die Eingabeform des
+     * Modells wiederhergestellt, da der nächste Ausleiher sie erwartet.
+     *
+     * @param keepWarm Interpreter im Pool der Registry halten statt ihn zu schließen
+     */
+    void release(InterpreterRegistry registry, boolean keepWarm) {
+        if (keepWarm && !Arrays.equals(inputSpec.shape, modelShape)) {
+            try {
+                interpreter.resizeInput(0, modelShape);
+                interpreter.allocateTensors();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Eingabeform nicht wiederherstellbar, Interpreter wird geschlossen: " + e.getMessage());
+                keepWarm = false;
+            }
+        }
+        registry.release(lease, keepWarm);
+    }
+}
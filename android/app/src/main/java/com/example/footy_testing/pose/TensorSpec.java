@@ -0,0 +1,86 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei beschreibt einen Ein- oder Ausgabe-Tensor eines TensorFlow Lite-Modells
+ * (Form, Datentyp und Quantisierungsparameter). Die Werte werden einmalig beim Laden des
+ * Modells ausgelesen, damit der Erkennungspfad den Interpreter nicht pro Bild abfragen muss.
+ */
+
+package com.example.footy_testing.pose;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public final class TensorSpec {
+    public final int[] shape;
+    public final DataType dataType;
+    public final float scale;
+    public final int zeroPoint;
+
+    private TensorSpec(int[] shape, DataType dataType, float scale, int zeroPoint) {
+        this.shape = shape;
+        this.dataType = dataType;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+    }
+
+    public static TensorSpec of(Tensor tensor) {
+        Tensor.QuantizationParams params = tensor.quantizationParams();
+        float scale = params != null ? params.getScale() : 0.0f;
+        int zeroPoint = params != null ? params.getZeroPoint() : 0;
+        return new TensorSpec(tensor.shape().clone(), tensor.dataType(), scale, zeroPoint);
+    }
+
+    public boolean isQuantized() {
+        return dataType == DataType.UINT8 || dataType == DataType.INT8;
+    }
+
+    public boolean isFloat() {
+        return dataType == DataType.FLOAT32;
+    }
+
+    /**
+     * @return Tabellen für die quantisierte Eingabe, null bei FLOAT32
+     */
+    public InputQuantizer inputQuantizer() {
+        if (isFloat()) {
+            return null;
+        }
+        return InputQuantizer.of(dataType == DataType.INT8, scale, zeroPoint);
+    }
+
+    public int bytesPerElement() {
+        return isFloat() || dataType == DataType.INT32 ? 4 : 1;
+    }
+
+    public int numElements() {
+        int elements = 1;
+        for (int dim : shape) {
+            elements *= dim;
+        }
+        return elements;
+    }
+
+    public int numBytes() {
+        return numElements() * bytesPerElement();
+    }
+
+    /**
+     * Legt einen passenden Direct-Buffer in nativer Byte-Reihenfolge an
+     */
+    public ByteBuffer allocateBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(numBytes());
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(shape) + " " + dataType
+                + (isQuantized() ? " (scale=" + scale + ", zeroPoint=" + zeroPoint + ")" : "");
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei dekodiert die Ausgabe eines YOLOv8-Modells direkt aus dem flachen Ausgabepuffer.
+ * Es wird nur die Zeile der gesuchten Klasse gelesen, die besten Kandidaten werden in einem
+ * begrenzten Min-Heap gesammelt und anschließend per Non-Maximum-Suppression gefiltert.
+ * Pro Bild werden keine Objekte angelegt, alle Arbeitsarrays werden wiederverwendet.
+ * Quantisierte Ausgaben (INT8/UINT8) werden ohne Umrechnung des ganzen Tensors gelesen: die
+ * Konfidenz-Schwelle wird einmal in den quantisierten Wertebereich übertragen, dequantisiert
+ * werden nur die Kandidaten und ihre Boxen.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+public final class YoloDecoder {
+
+    private final int maxCandidates;
+
+    /** Min-Heap der Kandidaten (Anchor-Index und Score), Wurzel ist der schwächste */
+    private final int[] heapAnchors;
+    private final float[] heapScores;
+    private int heapSize;
+
+    /** Kandidaten nach NMS, absteigend sortiert: Box als x1, y1, x2, y2 */
+    private final float[] candidateBoxes;
+    private final float[] boxes;
+    private final float[] scores;
+    private int count;
+
+    /** Layout der aktuellen Ausgabe, gesetzt von layout() */
+    private int rows;
+    private int anchors;
+    private int rowStride;
+    private int anchorStride;
+
+    /** Aktuelle Ausgabe: entweder float oder quantisiert */
+    private FloatBuffer floatOutput;
+    private ByteBuffer quantizedOutput;
+    private boolean signed;
+    private float scale;
+    private int zeroPoint;
+
+    /**
+     * @param maxCandidates Maximale Anzahl an Kandidaten, die vor der NMS betrachtet werden
+     */
+    public YoloDecoder(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+        this.heapAnchors = new int[maxCandidates];
+        this.heapScores = new float[maxCandidates];
+        this.candidateBoxes = new float[maxCandidates * 4];
+        this.boxes = new float[maxCandidates * 4];
+        this.scores = new float[maxCandidates];
+    }
+
+    /**
+     * Dekodiert eine Klasse aus der Modellausgabe. Unterstützt werden beide Layouts von
+     * YOLOv8-Exporten: [1, 4 + Klassen, Anchors] (Standard) und [1, Anchors, 4 + Klassen].
+     *
+     * @param output         Flache Modellausgabe, beginnend bei Position 0
+     * @param shape          Form des Ausgabe-Tensors
+     * @param classId        Index der gesuchten Klasse (ohne die 4 Box-Zeilen)
+     * @param confThreshold  Minimale Konfidenz eines Kandidaten
+     * @param iouThreshold   Kandidaten mit größerer Überlappung werden unterdrückt
+     * @param maxDetections  Maximale Anzahl an Ergebnissen
+     * @return Anzahl der Ergebnisse, abrufbar über getBox/getScore
+     */
+    public int decode(FloatBuffer output, int[] shape, int classId, float confThreshold, float iouThreshold,
+            int maxDetections) {
+        floatOutput = output;
+        quantizedOutput = null;
+
+        if (!layout(shape, classId)) {
+            return 0;
+        }
+
+        int scoreOffset = (classId + 4) * rowStride;
+        float minScore = confThreshold;
+
+        for (int i = 0; i < anchors; i++) {
+            float score = output.get(scoreOffset + i * anchorStride);
+            if (score <= minScore) {
+                continue;
+            }
+
+            if (heapSize < maxCandidates) {
+                heapPush(i, score);
+                if (heapSize == maxCandidates) {
+                    minScore = Math.max(confThreshold, heapScores[0]);
+                }
+            } else {
+                heapReplaceRoot(i, score);
+                minScore = Math.max(confThreshold, heapScores[0]);
+            }
+        }
+
+        return finish(iouThreshold, maxDetections);
+    }
+
+    /**
+     * Wie decode, für eine quantisierte Ausgabe. Verglichen wird mit den Rohwerten, nur die
+     * Scores der Kandidaten und deren Boxen werden dequantisiert.
+     *
+     * @param output    Rohe Modellausgabe, beginnend bei Position 0
+     * @param signed    true für INT8, false für UINT8
+     * @param scale     Skalierung des Ausgabe-Tensors
+     * @param zeroPoint Nullpunkt des Ausgabe-Tensors
+     */
+    public int decodeQuantized(ByteBuffer output, boolean signed, float scale, int zeroPoint, int[] shape,
+            int classId, float confThreshold, float iouThreshold, int maxDetections) {
+        floatOutput = null;
+        quantizedOutput = output;
+        this.signed = signed;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+
+        if (!layout(shape, classId)) {
+            return 0;
+        }
+
+        int scoreOffset = (classId + 4) * rowStride;
+        int minRaw = quantizedThreshold(confThreshold);
+
+        for (int i = 0; i < anchors; i++) {
+            int raw = rawValue(scoreOffset + i * anchorStride);
+            if (raw <= minRaw) {
+                continue;
+            }
+
+            float score = (raw - zeroPoint) * scale;
+            if (heapSize < maxCandidates) {
+                heapPush(i, score);
+                if (heapSize == maxCandidates) {
+                    minRaw = Math.max(minRaw, quantizedThreshold(heapScores[0]));
+                }
+            } else {
+                heapReplaceRoot(i, score);
+                minRaw = Math.max(minRaw, quantizedThreshold(heapScores[0]));
+            }
+        }
+
+        return finish(iouThreshold, maxDetections);
+    }
+
+    /**
+     * Bestimmt das Layout der Ausgabe. Unterstützt werden [1, 4 + Klassen, Anchors] und
+     * [1, Anchors, 4 + Klassen].
+     *
+     * @return false, wenn die Klasse nicht in der Ausgabe enthalten ist
+     */
+    private boolean layout(int[] shape, int classId) {
+        if (shape[1] <= shape[2]) {
+            rows = shape[1];
+            anchors = shape[2];
+            rowStride = anchors;
+            anchorStride = 1;
+        } else {
+            rows = shape[2];
+            anchors = shape[1];
+            rowStride = 1;
+            anchorStride = rows;
+        }
+
+        heapSize = 0;
+        count = 0;
+
+        return classId >= 0 && classId + 4 < rows;
+    }
+
+    /**
+     * @return Größter Rohwert, dessen Score höchstens threshold ist
+     */
+    private int quantizedThreshold(float threshold) {
+        return (int) Math.floor(threshold / scale + zeroPoint);
+    }
+
+    private int rawValue(int index) {
+        byte value = quantizedOutput.get(index);
+        return signed ? value : value & 0xFF;
+    }
+
+    private float value(int index) {
+        if (floatOutput != null) {
+            return floatOutput.get(index);
+        }
+        return (rawValue(index) - zeroPoint) * scale;
+    }
+
+    /**
+     * Sortiert die Kandidaten im Heap, liest ihre Boxen und wendet die Non-Maximum-Suppression an
+     */
+    private int finish(float iouThreshold, int maxDetections) {
+        int candidates = heapSize;
+
+        // Heap-Sort: die Wurzel (kleinster Score) wird jeweils ans Ende getauscht,
+        // danach sind die Kandidaten absteigend sortiert
+        while (heapSize > 1) {
+            swap(0, heapSize - 1);
+            heapSize--;
+            siftDown(0);
+        }
+        heapSize = 0;
+
+        for (int c = 0; c < candidates; c++) {
+            int base = heapAnchors[c] * anchorStride;
+            float x = value(base);
+            float y = value(base + rowStride);
+            float w = value(base + 2 * rowStride);
+            float h = value(base + 3 * rowStride);
+
+            int o = c * 4;
+            candidateBoxes[o] = clamp(x - w / 2);
+            candidateBoxes[o + 1] = clamp(y - h / 2);
+            candidateBoxes[o + 2] = clamp(x + w / 2);
+            candidateBoxes[o + 3] = clamp(y + h / 2);
+        }
+
+        for (int c = 0; c < candidates && count < maxDetections; c++) {
+            int o = c * 4;
+            boolean suppressed = false;
+
+            for (int k = 0; k < count; k++) {
+                if (iou(candidateBoxes, o, boxes, k * 4) > iouThreshold) {
+                    suppressed = true;
+                    break;
+                }
+            }
+
+            if (!suppressed) {
+                System.arraycopy(candidateBoxes, o, boxes, count * 4, 4);
+                scores[count] = heapScores[c];
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public float getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * @return Box des Ergebnisses als normierte Koordinaten x1, y1, x2, y2
+     */
+    public float[] getBox(int index) {
+        int o = index * 4;
+        return new float[] { boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3] };
+    }
+
+    static float iou(float[] a, int aOffset, float[] b, int bOffset) {
+        float left = Math.max(a[aOffset], b[bOffset]);
+        float top = Math.max(a[aOffset + 1], b[bOffset + 1]);
+        float right = Math.min(a[aOffset + 2], b[bOffset + 2]);
+        float bottom = Math.min(a[aOffset + 3], b[bOffset + 3]);
+
+        float intersection = Math.max(0, right - left) * Math.max(0, bottom - top);
+        if (intersection <= 0) {
+            return 0;
+        }
+
+        float areaA = (a[aOffset + 2] - a[aOffset]) * (a[aOffset + 3] - a[aOffset + 1]);
+        float areaB = (b[bOffset + 2] - b[bOffset]) * (b[bOffset + 3] - b[bOffset + 1]);
+        return intersection / (areaA + areaB - intersection);
+    }
+
+    private static float clamp(float value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    private void heapPush(int anchor, float score) {
+        int i = heapSize++;
+        heapAnchors[i] = anchor;
+        heapScores[i] = score;
+
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapScores[parent] <= heapScores[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void heapReplaceRoot(int anchor, float score) {
+        heapAnchors[0] = anchor;
+        heapScores[0] = score;
+        siftDown(0);
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) {
+                return;
+            }
+
+            int smallest = left;
+            int right = left + 1;
+            if (right < heapSize && heapScores[right] < heapScores[left]) {
+                smallest = right;
+            }
+            if (heapScores[i] <= heapScores[smallest]) {
+                return;
+            }
+
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int anchor = heapAnchors[a];
+        heapAnchors[a] = heapAnchors[b];
+        heapAnchors[b] = anchor;
+
+        float score = heapScores[a];
+        heapScores[a] = heapScores[b];
+        heapScores[b] = score;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei enthält die Pixel-Arithmetik der YUV420-zu-ARGB-Konvertierung ohne
+ * Android-Abhängigkeiten. ImageUtils erzeugt daraus Bitmaps, das Benchmark-Modul misst die
+ * Schleifen direkt auf der JVM.
+ */
+
+package com.example.footy_testing.pose;
+
+public final class YuvConverter {
+
+    private YuvConverter() {
+    }
+
+    /**
+     * Konvertiert ein YUV420-Bild in ARGB-Pixel (Ganzzahl-Umrechnung nach BT.601)
+     *
+     * @param argb Ausgabe, mindestens width * height Einträge
+     */
+    public static void yuv420ToArgb(byte[] yPlane, byte[] uPlane, byte[] vPlane,
+            int width, int height, int uvRowStride, int uvPixelStride, int[] argb) {
+        for (int y = 0; y < height; y++) {
+            int yRowOffset = y * width;
+            int uvRowIndex = (y >> 1);
+            int uvRowOffset = uvRowIndex * uvRowStride;
+
+            for (int x = 0; x < width; x++) {
+                int yIndex = yRowOffset + x;
+                int yValue = yPlane[yIndex] & 0xFF;
+
+                int uvColIndex = x >> 1;
+                int uIndex = uvRowOffset + (uvColIndex * uvPixelStride);
+                int vIndex = uvRowOffset + (uvColIndex * uvPixelStride);
+
+                if (uIndex >= uPlane.length || vIndex >= vPlane.length) {
+                    uIndex = Math.min(uIndex, uPlane.length - 1);
+                    vIndex = Math.min(vIndex, vPlane.length - 1);
+                }
+
+                int uValue = (uPlane[uIndex] & 0xFF) - 128;
+                int vValue = (vPlane[vIndex] & 0xFF) - 128;
+
+                int y1192 = 1192 * (yValue - 16);
+                int r = (y1192 + 1634 * vValue);
+                int g = (y1192 - 833 * vValue - 400 * uValue);
+                int b = (y1192 + 2066 * uValue);
+
+                r = r < 0 ? 0 : (r > 262143 ? 255 : r >> 10);
+                g = g < 0 ? 0 : (g > 262143 ? 255 : g >> 10);
+                b = b < 0 ? 0 : (b > 262143 ? 255 : b >> 10);
+
+                argb[yIndex] = 0xff000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /**
+     * Graustufen-Fallback nur aus der Y-Ebene
+     *
+     * @param argb Ausgabe, mindestens width * height Einträge
+     */
+    public static void grayToArgb(byte[] yPlane, int width, int height, int[] argb) {
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int y = yPlane[i * width + j] & 0xff;
+
+                argb[i * width + j] = 0xff000000 | (y << 16) | (y << 8) | y;
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei implementiert die fusionierte Vorverarbeitung von YUV420-Kamerabildern direkt
+ * in den Eingabe-Tensor eines Modells. Rotation, Spiegelung (Frontkamera), Skalierung und
+ * die Zeilen- und Pixel-Strides der Planes werden in einem einzigen Durchlauf angewendet, ohne
+ * Bitmap oder ARGB-Zwischenpuffer in voller Auflösung. Optional wird nur ein Ausschnitt (Region of
+ * Interest) des gedrehten Bildes abgetastet. Bei mehreren Threads werden die Zielzeilen in
+ * Streifen aufgeteilt; jeder Streifen schreibt über eine eigene Sicht auf den Zielpuffer in
+ * seinen Zeilenbereich.
+ */
+
+package com.example.footy_testing.pose;
+
+import java.nio.ByteBuffer;
+
+public final class YuvPreprocessor {
+    /** Pixelwert / 255 als Tabelle, spart die Division je Kanal im FLOAT32-Pfad */
+    private static final float[] FLOAT_TABLE = new float[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            FLOAT_TABLE[i] = i / 255.0f;
+        }
+    }
+
+    /** Kleinere Streifen lohnen die Übergabe an einen Worker nicht */
+    private static final int MIN_ROWS_PER_STRIPE = 32;
+
+    private int cachedWidth = -1;
+    private int cachedHeight = -1;
+    private int cachedRotation = -1;
+    private boolean cachedMirror;
+    private int cachedDstWidth = -1;
+    private int cachedDstHeight = -1;
+    private int cachedCropX = -1;
+    private int cachedCropY = -1;
+    private int cachedCropWidth = -1;
+    private int cachedCropHeight = -1;
+
+    /** Quellindex (Sensor-Koordinate) je Zielspalte bzw. Zielzeile, -1 außerhalb des Bildes */
+    private int[] columnLookup = new int[0];
+    private int[] rowLookup = new int[0];
+
+    /** Zeilenpuffer und Sicht auf den Zielpuffer je Streifen */
+    private byte[][] rowBuffers = { new byte[0] };
+    private ByteBuffer[] stripeOutputs = new ByteBuffer[1];
+    private ByteBuffer stripeOutputSource;
+
+    private RowStripes rowStripes = new RowStripes("YuvPreprocessor", 1);
+
+    /** Parameter des laufenden Aufrufs für stripeTask, nur innerhalb von preprocess gültig */
+    private CameraFrame stripeFrame;
+    private InputQuantizer stripeQuantizer;
+    private int stripeBase;
+    private int stripeRowBytes;
+    private int stripeDstWidth;
+
+    /** Einmal angelegte Aufgabe der Streifen, liest die Parameter aus den Feldern oben */
+    private final RowStripes.Task stripeTask = new RowStripes.Task() {
+        @Override
+        public void run(int stripe, int rowStart, int rowEnd) {
+            ByteBuffer stripeOut = stripeOutputs[stripe];
+            stripeOut.position(stripeBase + rowStart * stripeRowBytes);
+            convertRows(stripeFrame, rowStart, rowEnd, stripeDstWidth, stripeQuantizer, stripeOut,
+                    rowBuffers[stripe]);
+        }
+    };
+
+    /**
+     * Vorgeschlagene Thread-Anzahl: die Hälfte der Kerne, höchstens 4, damit neben den
+     * Interpreter-Threads noch Kerne frei bleiben
+     */
+    public static int defaultThreadCount() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Legt fest, auf wie viele Threads (inklusive des aufrufenden) die Zeilen verteilt werden
+     */
+    public synchronized void setThreadCount(int threadCount) {
+        threadCount = Math.max(1, threadCount);
+        if (threadCount == rowStripes.getThreadCount()) {
+            return;
+        }
+
+        rowStripes.shutdown();
+        rowStripes = new RowStripes("YuvPreprocessor", threadCount);
+        rowBuffers = new byte[threadCount][0];
+        stripeOutputs = new ByteBuffer[threadCount];
+        stripeOutputSource = null;
+    }
+
+    public synchronized int getThreadCount() {
+        return rowStripes.getThreadCount();
+    }
+
+    /**
+     * Beendet die Worker-Threads, danach wird wieder auf dem aufrufenden Thread gerechnet
+     */
+    public void shutdown() {
+        setThreadCount(1);
+    }
+
+    /**
+     * Schreibt das Kamerabild als RGB-Tensor (NHWC) in den Puffer. Es wird Nearest-Neighbour
+     * abgetastet, identisch zu Bitmap.createScaledBitmap(..., false) auf dem gedrehten Bild.
+     *
+     * @param frame     Das Kamerabild
+     * @param dstWidth  Breite des Modell-Eingangs
+     * @param dstHeight Höhe des Modell-Eingangs
+     * @param mirror    Bild horizontal spiegeln (Frontkamera)
+     * @param asFloat   true für FLOAT32 (0..1), false für rohe UINT8-Werte (0..255)
+     * @param out       Zielpuffer, wird ab der aktuellen Position beschrieben
+     */
+    public void preprocess(CameraFrame frame, int dstWidth, int dstHeight, boolean mirror, boolean asFloat,
+            ByteBuffer out) {
+        preprocess(frame, dstWidth, dstHeight, mirror, asFloat ? null : InputQuantizer.UINT8, out);
+    }
+
+    /**
+     * Wie preprocess, schreibt aber bei quantisierten Modellen die über den InputQuantizer
+     * umgerechneten Werte (Skalierung und Nullpunkt des Eingabe-Tensors)
+     *
+     * @param quantizer Tabellen des Eingabe-Tensors, null für FLOAT32 (0..1)
+     */
+    public void preprocess(CameraFrame frame, int dstWidth, int dstHeight, boolean mirror,
+            InputQuantizer quantizer, ByteBuffer out) {
+        boolean transposed = isTransposed(frame.rotation);
+        int rotatedWidth = transposed ? frame.height : frame.width;
+        int rotatedHeight = transposed ? frame.width : frame.height;
+
+        preprocess(frame, 0, 0, rotatedWidth, rotatedHeight, dstWidth, dstHeight, mirror, quantizer, out);
+    }
+
+    /**
+     * Wie preprocess, tastet aber nur einen Ausschnitt des gedrehten (und ggf. gespiegelten)
+     * Bildes ab. Der Ausschnitt wird in Pixeln des gedrehten Bildes angegeben, also im selben
+     * Koordinatensystem, in dem das Modell seine Boxen liefert. Bereiche außerhalb des Bildes
+     * werden schwarz aufgefüllt.
+     *
+     * @param cropX      Linke Kante des Ausschnitts
+     * @param cropY      Obere Kante des Ausschnitts
+     * @param cropWidth  Breite des Ausschnitts
+     * @param cropHeight Höhe des Ausschnitts
+     */
+    public void preprocess(CameraFrame frame, int cropX, int cropY, int cropWidth, int cropHeight,
+            int dstWidth, int dstHeight, boolean mirror, boolean asFloat, ByteBuffer out) {
+        preprocess(frame, cropX, cropY, cropWidth, cropHeight, dstWidth, dstHeight, mirror,
+                asFloat ? null : InputQuantizer.UINT8, out);
+    }
+
+    /**
+     * Ausschnitt mit quantisierter Ausgabe
+     *
+     * @param quantizer Tabellen des Eingabe-Tensors, null für FLOAT32 (0..1)
+     */
+    public synchronized void preprocess(CameraFrame frame, int cropX, int cropY, int cropWidth,
+            int cropHeight, int dstWidth, int dstHeight, boolean mirror, InputQuantizer quantizer,
+            ByteBuffer out) {
+        updateLookup(frame.width, frame.height, frame.rotation, mirror, cropX, cropY, cropWidth, cropHeight,
+                dstWidth, dstHeight);
+
+        int stripes = Math.min(rowStripes.getThreadCount(), dstHeight / MIN_ROWS_PER_STRIPE);
+        if (stripes <= 1) {
+            convertRows(frame, 0, dstHeight, dstWidth, quantizer, out, rowBuffer(0, dstWidth));
+            return;
+        }
+
+        int base = out.position();
+        int rowBytes = dstWidth * 3 * (quantizer == null ? 4 : 1);
+        prepareStripes(out, stripes, dstWidth);
+
+        stripeFrame = frame;
+        stripeQuantizer = quantizer;
+        stripeBase = base;
+        stripeRowBytes = rowBytes;
+        stripeDstWidth = dstWidth;
+        try {
+            rowStripes.run(dstHeight, stripes, stripeTask);
+        } finally {
+            // Das Bild nicht über den Aufruf hinaus festhalten
+            stripeFrame = null;
+        }
+
+        out.position(base + dstHeight * rowBytes);
+    }
+
+    /**
+     * Legt die Zeilenpuffer und die Sichten auf den Zielpuffer an. Die Sichten teilen sich den
+     * Speicher mit out, haben aber eine eigene Position und werden wiederverwendet, solange
+     * derselbe Zielpuffer übergeben wird.
+     */
+    private void prepareStripes(ByteBuffer out, int stripes, int dstWidth) {
+        if (stripeOutputSource != out) {
+            for (int i = 0; i < stripeOutputs.length; i++) {
+                stripeOutputs[i] = null;
+            }
+            stripeOutputSource = out;
+        }
+
+        for (int i = 0; i < stripes; i++) {
+            rowBuffer(i, dstWidth);
+            if (stripeOutputs[i] == null) {
+                stripeOutputs[i] = out.duplicate().order(out.order());
+            }
+            stripeOutputs[i].limit(out.limit());
+        }
+    }
+
+    private byte[] rowBuffer(int stripe, int dstWidth) {
+        if (rowBuffers[stripe].length < dstWidth * 3) {
+            rowBuffers[stripe] = new byte[dstWidth * 3];
+        }
+        return rowBuffers[stripe];
+    }
+
+    /**
+     * Schreibt die Zielzeilen [rowStart, rowEnd) ab der aktuellen Position von out. Liest nur
+     * die Lookup-Tabellen und das Kamerabild, daher auf mehreren Threads gleichzeitig möglich.
+     */
+    private void convertRows(CameraFrame frame, int rowStart, int rowEnd, int dstWidth, InputQuantizer quantizer,
+            ByteBuffer out, byte[] rowBuffer) {
+        boolean transposed = isTransposed(frame.rotation);
+        boolean asFloat = quantizer == null;
+        byte[] redTable = asFloat ? null : quantizer.table(0);
+        byte[] greenTable = asFloat ? null : quantizer.table(1);
+        byte[] blueTable = asFloat ? null : quantizer.table(2);
+        byte[] yPlane = frame.yPlane;
+        byte[] uPlane = frame.uPlane;
+        byte[] vPlane = frame.vPlane;
+        boolean hasChroma = frame.hasChromaPlanes();
+        int yRowStride = frame.yRowStride;
+        int uvRowStride = frame.uvRowStride;
+        int uvPixelStride = frame.uvPixelStride;
+
+        for (int dy = rowStart; dy < rowEnd; dy++) {
+            int rowSample = rowLookup[dy];
+            int offset = 0;
+
+            for (int dx = 0; dx < dstWidth; dx++) {
+                int sx;
+                int sy;
+                if (transposed) {
+                    sx = rowSample;
+                    sy = columnLookup[dx];
+                } else {
+                    sx = columnLookup[dx];
+                    sy = rowSample;
+                }
+
+                int rgb;
+
+                if (sx < 0 || sy < 0) {
+                    rgb = 0;
+                } else {
+                    int yValue = yPlane[sy * yRowStride + sx] & 0xFF;
+
+                    if (hasChroma) {
+                        int uvRowOffset = (sy >> 1) * uvRowStride;
+                        int uIndex = uvRowOffset + ((sx >> 1) * uvPixelStride);
+                        int vIndex = uIndex;
+
+                        if (uIndex >= uPlane.length || vIndex >= vPlane.length) {
+                            uIndex = Math.min(uIndex, uPlane.length - 1);
+                            vIndex = Math.min(vIndex, vPlane.length - 1);
+                        }
+
+                        rgb = yuvToRgb(yValue, (uPlane[uIndex] & 0xFF) - 128, (vPlane[vIndex] & 0xFF) - 128);
+                    } else {
+                        rgb = (yValue << 16) | (yValue << 8) | yValue;
+                    }
+                }
+
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+
+                if (asFloat) {
+                    out.putFloat(FLOAT_TABLE[r]);
+                    out.putFloat(FLOAT_TABLE[g]);
+                    out.putFloat(FLOAT_TABLE[b]);
+                } else {
+                    rowBuffer[offset++] = redTable[r];
+                    rowBuffer[offset++] = greenTable[g];
+                    rowBuffer[offset++] = blueTable[b];
+                }
+            }
+
+            if (!asFloat) {
+                out.put(rowBuffer, 0, offset);
+            }
+        }
+    }
+
+    /**
+     * Gleiche Ganzzahl-Umrechnung wie YuvConverter.yuv420ToArgb, damit beide Pfade
+     * bitgleiche Werte liefern.
+     *
+     * @return RGB als 0x00RRGGBB
+     */
+    static int yuvToRgb(int yValue, int uValue, int vValue) {
+        int y1192 = 1192 * (yValue - 16);
+        int r = (y1192 + 1634 * vValue);
+        int g = (y1192 - 833 * vValue - 400 * uValue);
+        int b = (y1192 + 2066 * uValue);
+
+        r = r < 0 ? 0 : (r > 262143 ? 255 : r >> 10);
+        g = g < 0 ? 0 : (g > 262143 ? 255 : g >> 10);
+        b = b < 0 ? 0 : (b > 262143 ? 255 : b >> 10);
+
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static boolean isTransposed(int rotation) {
+        return rotation == 90 || rotation == 270;
+    }
+
+    /**
+     * Berechnet für jede Zielspalte und -zeile die Sensor-Koordinate. Bei 90/270 Grad hängt
+     * die Sensor-Spalte von der Zielzeile ab und umgekehrt.
+     */
+    private void updateLookup(int width, int height, int rotation, boolean mirror, int cropX, int cropY,
+            int cropWidth, int cropHeight, int dstWidth, int dstHeight) {
+        if (width == cachedWidth && height == cachedHeight && rotation == cachedRotation
+                && mirror == cachedMirror && dstWidth == cachedDstWidth && dstHeight == cachedDstHeight
+                && cropX == cachedCropX && cropY == cachedCropY && cropWidth == cachedCropWidth
+                && cropHeight == cachedCropHeight) {
+            return;
+        }
+
+        boolean transposed = isTransposed(rotation);
+        int rotatedWidth = transposed ? height : width;
+        int rotatedHeight = transposed ? width : height;
+
+        if (columnLookup.length < dstWidth) {
+            columnLookup = new int[dstWidth];
+        }
+        if (rowLookup.length < dstHeight) {
+            rowLookup = new int[dstHeight];
+        }
+
+        for (int dx = 0; dx < dstWidth; dx++) {
+            int rx = cropX + (int) (((2L * dx + 1) * cropWidth) / (2L * dstWidth));
+            if (rx < 0 || rx >= rotatedWidth) {
+                // Außerhalb des Bildes, wird schwarz aufgefüllt
+                columnLookup[dx] = -1;
+                continue;
+            }
+            if (mirror) {
+                rx = rotatedWidth - 1 - rx;
+            }
+
+            switch (rotation) {
+                case 90:
+                    columnLookup[dx] = height - 1 - rx;
+                    break;
+                case 180:
+                    columnLookup[dx] = width - 1 - rx;
+                    break;
+                case 270:
+                    columnLookup[dx] = rx;
+                    break;
+                default:
+                    columnLookup[dx] = rx;
+                    break;
+            }
+        }
+
+        for (int dy = 0; dy < dstHeight; dy++) {
+            int ry = cropY + (int) (((2L * dy + 1) * cropHeight) / (2L * dstHeight));
+            if (ry < 0 || ry >= rotatedHeight) {
+                rowLookup[dy] = -1;
+                continue;
+            }
+
+            switch (rotation) {
+                case 90:
+                    rowLookup[dy] = ry;
+                    break;
+                case 180:
+                    rowLookup[dy] = height - 1 - ry;
+                    break;
+                case 270:
+                    rowLookup[dy] = width - 1 - ry;
+                    break;
+                default:
+                    rowLookup[dy] = ry;
+                    break;
+            }
+        }
+
+        cachedWidth = width;
+        cachedHeight = height;
+        cachedRotation = rotation;
+        cachedMirror = mirror;
+        cachedDstWidth = dstWidth;
+        cachedDstHeight = dstHeight;
+        cachedCropX = cropX;
+        cachedCropY = cropY;
+        cachedCropWidth = cropWidth;
+        cachedCropHeight = cropHeight;
+    }
+}
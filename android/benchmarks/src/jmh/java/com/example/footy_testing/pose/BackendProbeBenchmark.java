@@ -0,0 +1,96 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei führt die Messschleife von BackendSelector (BackendProbe) ohne Gerät aus. Da es
+ * keine TFLite-Laufzeit für den Desktop gibt, wird statt eines Interpreters die
+ * YOLOv8-Vorverarbeitung eines 1080p-Bildes mit 1, 2 und 4 Threads gemessen. Gemessen wird die
+ * Dauer der ganzen Auswahl; die Zeiten je Kandidat und die Wahl der letzten Auswahl werden am
+ * Ende ausgegeben.
+ */
+
+package com.example.footy_testing.pose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@State(Scope.Thread)
+public class BackendProbeBenchmark {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final int BALL_INPUT_SIZE = 640;
+
+    private final BackendProbe probe = new BackendProbe();
+    private final List<Integer> threadCounts = new ArrayList<>();
+    private CameraFrame frame;
+    private ByteBuffer ballInput;
+    private BackendProbe.Result<Integer, YuvPreprocessor> lastResult;
+
+    private final BackendProbe.Target<Integer, YuvPreprocessor> target =
+            new BackendProbe.Target<Integer, YuvPreprocessor>() {
+                @Override
+                public YuvPreprocessor open(Integer threads) {
+                    YuvPreprocessor preprocessor = new YuvPreprocessor();
+                    preprocessor.setThreadCount(threads);
+                    return preprocessor;
+                }
+
+                @Override
+                public void run(YuvPreprocessor preprocessor) {
+                    ballInput.clear();
+                    preprocessor.preprocess(frame, BALL_INPUT_SIZE, BALL_INPUT_SIZE, false, true, ballInput);
+                }
+
+                @Override
+                public void close(YuvPreprocessor preprocessor) {
+                    preprocessor.shutdown();
+                }
+            };
+
+    @Setup
+    public void setUp() {
+        int uvLength = WIDTH * (HEIGHT / 2) - 1;
+        Random random = new Random(42);
+        byte[] yPlane = new byte[WIDTH * HEIGHT];
+        byte[] uPlane = new byte[uvLength];
+        byte[] vPlane = new byte[uvLength];
+        random.nextBytes(yPlane);
+        random.nextBytes(uPlane);
+        random.nextBytes(vPlane);
+
+        frame = new CameraFrame(yPlane, uPlane, vPlane, WIDTH, HEIGHT, WIDTH, WIDTH, 2, 90, false);
+        ballInput = ByteBuffer.allocateDirect(BALL_INPUT_SIZE * BALL_INPUT_SIZE * 3 * 4)
+                .order(ByteOrder.nativeOrder());
+
+        for (int threads : BackendProbe.CPU_THREAD_COUNTS) {
+            threadCounts.add(threads);
+        }
+    }
+
+    @Benchmark
+    public Object probeThreadCounts() {
+        if (lastResult != null) {
+            target.close(lastResult.instance);
+        }
+        lastResult = probe.probe(threadCounts, target);
+        return lastResult;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (lastResult != null) {
+            System.out.println("Gewählt: " + lastResult.candidate + " Threads, Zeiten in ms: "
+                    + lastResult.timingsMs);
+            target.close(lastResult.instance);
+            lastResult = null;
+        }
+    }
+}
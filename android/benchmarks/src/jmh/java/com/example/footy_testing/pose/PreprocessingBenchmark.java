@@ -0,0 +1,139 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei misst die Bildvorverarbeitung bei echten Kameraauflösungen: die
+ * YUV-zu-ARGB-Konvertierung des Bitmap-Pfads und das Befüllen der Eingabe-Tensoren für
+ * MoveNet (192, uint8) und YOLOv8 (640 bzw. 320 im Tracking-Modus, float32), jeweils mit
+ * 1, 2 und 4 Threads.
+ */
+
+package com.example.footy_testing.pose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+@State(Scope.Thread)
+public class PreprocessingBenchmark {
+    private static final int POSE_INPUT_SIZE = 192;
+    private static final int BALL_INPUT_SIZE = 640;
+    private static final int TRACKING_INPUT_SIZE = 320;
+
+    @Param({ "640x480", "1280x720", "1920x1080" })
+    public String resolution;
+
+    /** Hochformat-App: das Sensorbild wird um 90 Grad gedreht */
+    @Param({ "90" })
+    public int rotation;
+
+    /** Threads der Vorverarbeitung inklusive des aufrufenden */
+    @Param({ "1", "2", "4" })
+    public int threads;
+
+    private CameraFrame frame;
+    private int[] argb;
+    private final YuvPreprocessor preprocessor = new YuvPreprocessor();
+
+    private ByteBuffer poseInput;
+    private ByteBuffer ballInput;
+    private ByteBuffer ballInt8Input;
+    /** Eingang von yolov8n_int8: scale 1/255, Nullpunkt -128 */
+    private final InputQuantizer int8Quantizer = InputQuantizer.of(true, 1f / 255f, -128);
+    private ByteBuffer trackingInput;
+    private final int[] trackingCrop = new int[4];
+
+    @Setup
+    public void setUp() {
+        String[] size = resolution.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+
+        // Wie auf den meisten Geräten: U und V verschachtelt (pixelStride 2)
+        int uvRowStride = width;
+        int uvPixelStride = 2;
+        int uvLength = uvRowStride * (height / 2) - 1;
+
+        Random random = new Random(42);
+        byte[] yPlane = new byte[width * height];
+        byte[] uPlane = new byte[uvLength];
+        byte[] vPlane = new byte[uvLength];
+        random.nextBytes(yPlane);
+        random.nextBytes(uPlane);
+        random.nextBytes(vPlane);
+
+        frame = new CameraFrame(yPlane, uPlane, vPlane, width, height, width, uvRowStride, uvPixelStride, rotation,
+                false);
+        preprocessor.setThreadCount(threads);
+        argb = new int[width * height];
+
+        poseInput = ByteBuffer.allocateDirect(POSE_INPUT_SIZE * POSE_INPUT_SIZE * 3).order(ByteOrder.nativeOrder());
+        ballInput = ByteBuffer.allocateDirect(BALL_INPUT_SIZE * BALL_INPUT_SIZE * 3 * 4).order(ByteOrder.nativeOrder());
+        ballInt8Input = ByteBuffer.allocateDirect(BALL_INPUT_SIZE * BALL_INPUT_SIZE * 3);
+        trackingInput = ByteBuffer.allocateDirect(TRACKING_INPUT_SIZE * TRACKING_INPUT_SIZE * 3 * 4)
+                .order(ByteOrder.nativeOrder());
+
+        // Ausschnitt in der Bildmitte wie im Tracking-Modus der Ballerkennung
+        boolean transposed = rotation == 90 || rotation == 270;
+        int rotatedWidth = transposed ? height : width;
+        int rotatedHeight = transposed ? width : height;
+        int side = Math.min(rotatedWidth, rotatedHeight) / 3;
+        trackingCrop[0] = (rotatedWidth - side) / 2;
+        trackingCrop[1] = (rotatedHeight - side) / 2;
+        trackingCrop[2] = side;
+        trackingCrop[3] = side;
+    }
+
+    @TearDown
+    public void tearDown() {
+        preprocessor.shutdown();
+    }
+
+    @Benchmark
+    public int[] yuv420ToArgb() {
+        YuvConverter.yuv420ToArgb(frame.yPlane, frame.uPlane, frame.vPlane, frame.width, frame.height,
+                frame.uvRowStride, frame.uvPixelStride, argb);
+        return argb;
+    }
+
+    @Benchmark
+    public int[] grayToArgb() {
+        YuvConverter.grayToArgb(frame.yPlane, frame.width, frame.height, argb);
+        return argb;
+    }
+
+    @Benchmark
+    public ByteBuffer poseTensor() {
+        poseInput.clear();
+        preprocessor.preprocess(frame, POSE_INPUT_SIZE, POSE_INPUT_SIZE, false, false, poseInput);
+        return poseInput;
+    }
+
+    @Benchmark
+    public ByteBuffer ballTensor() {
+        ballInput.clear();
+        preprocessor.preprocess(frame, BALL_INPUT_SIZE, BALL_INPUT_SIZE, false, true, ballInput);
+        return ballInput;
+    }
+
+    @Benchmark
+    public ByteBuffer ballInt8Tensor() {
+        ballInt8Input.clear();
+        preprocessor.preprocess(frame, BALL_INPUT_SIZE, BALL_INPUT_SIZE, false, int8Quantizer, ballInt8Input);
+        return ballInt8Input;
+    }
+
+    @Benchmark
+    public ByteBuffer ballTrackingTensor() {
+        trackingInput.clear();
+        preprocessor.preprocess(frame, trackingCrop[0], trackingCrop[1], trackingCrop[2], trackingCrop[3],
+                TRACKING_INPUT_SIZE, TRACKING_INPUT_SIZE, false, true, trackingInput);
+        return trackingInput;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei spielt eine Aufnahme von FrameRecorder durch die Vorverarbeitung beider Modelle.
+ * Ohne Angabe von capture wird eine synthetische Aufnahme erzeugt. Eine echte Sitzung vom
+ * Gerät (files/captures) lässt sich nach gradle jmhJar mit
+ * java -jar build/libs/footy-benchmarks-jmh.jar ReplayBenchmark -p capture=<Datei> nachmessen.
+ */
+
+package com.example.footy_testing.pose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+@State(Scope.Thread)
+public class ReplayBenchmark {
+    private static final int POSE_INPUT_SIZE = 192;
+    private static final int BALL_INPUT_SIZE = 640;
+    private static final int SYNTHETIC_FRAMES = 60;
+
+    /** Pfad einer Aufnahme, leer für eine synthetische 640x480-Aufnahme */
+    @Param({ "" })
+    public String capture;
+
+    private File file;
+    private boolean temporary;
+    private FrameReplayer replayer;
+    private final YuvPreprocessor preprocessor = new YuvPreprocessor();
+
+    private ByteBuffer poseInput;
+    private ByteBuffer ballInput;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (capture.isEmpty()) {
+            file = File.createTempFile("capture", ".bin");
+            temporary = true;
+            writeSyntheticCapture(file);
+        } else {
+            file = new File(capture);
+        }
+
+        replayer = new FrameReplayer(file);
+        poseInput = ByteBuffer.allocateDirect(POSE_INPUT_SIZE * POSE_INPUT_SIZE * 3).order(ByteOrder.nativeOrder());
+        ballInput = ByteBuffer.allocateDirect(BALL_INPUT_SIZE * BALL_INPUT_SIZE * 3 * 4).order(ByteOrder.nativeOrder());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (temporary) {
+            file.delete();
+        }
+    }
+
+    /** Eine Operation = die ganze Aufnahme */
+    @Benchmark
+    public int replayCapture() throws Exception {
+        final int[] frames = new int[1];
+        replayer.replay((index, frame, timestampNanos) -> {
+            poseInput.clear();
+            preprocessor.preprocess(frame, POSE_INPUT_SIZE, POSE_INPUT_SIZE, frame.isFrontCamera, false, poseInput);
+            ballInput.clear();
+            preprocessor.preprocess(frame, BALL_INPUT_SIZE, BALL_INPUT_SIZE, frame.isFrontCamera, true, ballInput);
+            frames[0]++;
+        }, false);
+        return frames[0];
+    }
+
+    private static void writeSyntheticCapture(File file) throws IOException {
+        int width = 640;
+        int height = 480;
+        int uvLength = width * (height / 2) - 1;
+        Random random = new Random(42);
+
+        FrameRecorder recorder = new FrameRecorder(file);
+        for (int i = 0; i < SYNTHETIC_FRAMES; i++) {
+            byte[] yPlane = new byte[width * height];
+            byte[] uPlane = new byte[uvLength];
+            byte[] vPlane = new byte[uvLength];
+            random.nextBytes(yPlane);
+            random.nextBytes(uPlane);
+            random.nextBytes(vPlane);
+
+            // Beim Erzeugen blockieren statt verwerfen, damit alle Bilder in der Datei landen
+            while (!recorder.record(new CameraFrame(yPlane, uPlane, vPlane, width, height, width, width, 2, 90, false),
+                    i * 33_333_333L)) {
+                Thread.yield();
+            }
+        }
+        recorder.close();
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Autor: Furkan Kilic
+ *
+ * Diese Datei misst die Dekodierung der YOLOv8-Ausgabe (Schwellwert, Top-K und NMS) für eine
+ * Klasse auf synthetischen Ausgaben in Modellform [1, 4 + Klassen, Anker], als FLOAT32 und als
+ * INT8-Ausgabe des quantisierten Modells.
+ */
+
+package com.example.footy_testing.pose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+@State(Scope.Thread)
+public class YoloDecoderBenchmark {
+    private static final int MAX_CANDIDATES = 100;
+    private static final int MAX_DETECTIONS = 5;
+    private static final int BALL_CLASS_ID = 32;
+    private static final float INT8_SCALE = 1f / 255f;
+    private static final int INT8_ZERO_POINT = -128;
+
+    /** Anker bei 640 (8400) und bei 320 im Tracking-Modus (2100) */
+    @Param({ "8400", "2100" })
+    public int anchors;
+
+    @Param({ "80" })
+    public int classes;
+
+    private int[] shape;
+    private FloatBuffer output;
+    private ByteBuffer quantizedOutput;
+    private final YoloDecoder decoder = new YoloDecoder(MAX_CANDIDATES);
+
+    @Setup
+    public void setUp() {
+        shape = new int[] { 1, 4 + classes, anchors };
+        output = ByteBuffer.allocateDirect(shape[1] * anchors * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        quantizedOutput = ByteBuffer.allocateDirect(shape[1] * anchors);
+
+        Random random = new Random(42);
+        for (int row = 0; row < shape[1]; row++) {
+            for (int anchor = 0; anchor < anchors; anchor++) {
+                float value;
+                if (row < 2) {
+                    value = random.nextFloat();
+                } else if (row < 4) {
+                    value = 0.01f + random.nextFloat() * 0.1f;
+                } else {
+                    // Überwiegend niedrige Scores, einige Kandidaten über der Schwelle
+                    value = random.nextFloat() * random.nextFloat() * 0.3f;
+                }
+                output.put(row * anchors + anchor, value);
+                quantizedOutput.put(row * anchors + anchor,
+                        (byte) Math.min(127, Math.round(value / INT8_SCALE) + INT8_ZERO_POINT));
+            }
+        }
+    }
+
+    @Benchmark
+    public int decode() {
+        output.rewind();
+        return decoder.decode(output, shape, BALL_CLASS_ID, BallDetectionConfig.DEFAULT_CONF_THRESHOLD,
+                BallDetectionConfig.DEFAULT_IOU_THRESHOLD, MAX_DETECTIONS);
+    }
+
+    @Benchmark
+    public int decodeInt8() {
+        return decoder.decodeQuantized(quantizedOutput, true, INT8_SCALE, INT8_ZERO_POINT, shape, BALL_CLASS_ID,
+                BallDetectionConfig.DEFAULT_CONF_THRESHOLD, BallDetectionConfig.DEFAULT_IOU_THRESHOLD,
+                MAX_DETECTIONS);
+    }
+}
@@ -51,6 +51,8 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
   Rect? _ballBoundingBox;
 
   final int _targetFps = 10;
+  // YOLO läuft nur auf jedem zweiten Bild, dazwischen sagt der native Kalman-Filter den Ball voraus
+  final int _ballInferenceStride = 2;
   int _frameSkip = 0;
   final int _maxFrameSkip = 3;
   DateTime? _lastFrameTime;
@@ -78,6 +80,8 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
 
   DateTime? _lastJuggleTime;
 
+  StreamSubscription<CombinedDetectionResult>? _detectionSubscription;
+
   List<double> _shinPositionHistory = [];
   int _shinPositionHistoryMaxLength = 5;
 
@@ -111,6 +115,7 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
   @override
   void dispose() {
     _ballDetectionTimer?.cancel();
+    _detectionSubscription?.cancel();
     _cameraController?.dispose();
     NativeDetectionService.dispose();
     _audioPlayer.dispose();
@@ -200,7 +205,11 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
       print("Versuche YOLO-Modell zu laden...");
 
       bool result =
-          await NativeDetectionService.loadModels(useGpu: true, retryCount: 3);
+          await NativeDetectionService.loadModels(
+              useGpu: true,
+              retryCount: 3,
+              smoothKeypoints: true,
+              waitForBall: false);
 
       setState(() {
         _isInitialized = result;
@@ -426,8 +435,22 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
           _lastCameraImage!,
           isFrontCamera: _cameraDirection == CameraLensDirection.front);
 
+      _handleBallResult(ballDetectionResult);
+    } catch (e) {
+      _failedBallDetections++;
+      if (_isDebugMode) {
+        print("🚨 Fehler bei der Ballerkennung: $e");
+      }
+    }
+  }
+
+  void _handleBallResult(DetectionResult ballDetectionResult,
+      {bool countJuggles = true}) {
+    try {
       if (!mounted) return;
 
+      if (ballDetectionResult.dropped) return;
+
       if (ballDetectionResult.error != null) {
         if (_isDebugMode) {
           print(
@@ -480,7 +503,9 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
             }
           }
 
-          _checkBallCrossedKneeLine(ballCenterY);
+          if (countJuggles) {
+            _checkBallCrossedKneeLine(ballCenterY);
+          }
 
           _lastBallCenterY = ballCenterY;
         } else {
@@ -508,6 +533,24 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
     }
   }
 
+  void _handleJuggleEvents(List<JuggleEvent> events) {
+    if (!mounted || events.isEmpty) return;
+
+    setState(() {
+      _juggleCount += events.length;
+      _lastJuggleTime = DateTime.now();
+    });
+
+    _playCountSound();
+
+    if (_isDebugMode) {
+      for (var event in events) {
+        print(
+            "🎯 JUGGLE #$_juggleCount ERKANNT! (nativ, Methode ${event.method}, Konfidenz ${event.confidence.toStringAsFixed(2)})");
+      }
+    }
+  }
+
   void _checkBallCrossedKneeLine(double ballCenterY) {
     if (_lastBallCenterY == null) {
       return;
@@ -770,15 +813,55 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
       _lastFrameTime = null;
     });
 
+    await NativeDetectionService.resetJuggleCounter();
+
     print("🐞 Debug-Modus aktiviert");
     print("⚡ Optimierte Performance-Einstellungen aktiv");
 
     try {
-      bool isCurrentlyProcessing = false;
       int totalFrames = 0;
       int droppedFrames = 0;
+      int nextFrameId = 0;
+      int lastResultFrameId = -1;
       DateTime performanceTrackingStart = DateTime.now();
 
+      // Streaming-Modus: Bilder werden ohne Warten übergeben, Ergebnisse kommen über den EventChannel
+      await NativeDetectionService.startSession(
+          ballInferenceStride: _ballInferenceStride,
+          packed: true,
+          referenceHeight: _cameraController!.value.previewSize?.height);
+
+      await _detectionSubscription?.cancel();
+      _detectionSubscription =
+          NativeDetectionService.detectionEvents.listen((combinedResult) {
+        if (!mounted) return;
+
+        if (combinedResult.frameId != null) {
+          lastResultFrameId = combinedResult.frameId!;
+        }
+
+        final result = combinedResult.pose;
+
+        // Vom nativen Inferenz-Thread verworfenes Bild (neueres Bild wartet bereits)
+        if (result.dropped) return;
+
+        if (result.error != null) {
+          print("⚠️ Erkennungsfehler: ${result.error}");
+        }
+
+        _handleDetectionResult(result);
+        // Gezählt wird nativ im JuggleCounter, hier nur Anzeige der Ballposition
+        _handleBallResult(combinedResult.ball, countJuggles: false);
+        _handleJuggleEvents(combinedResult.juggleEvents);
+
+        if (_isDebugMode && totalFrames % 10 == 0) {
+          print(
+              "📊 STATS: FPS=$_fps, Verarbeitungszeit=${result.processingTimeMs}ms, Inferenz=${result.inferenceTimeMs}ms");
+        }
+      }, onError: (e) {
+        print("🚨 Fehler während der Detektion: $e");
+      });
+
       await _cameraController!.startImageStream((CameraImage image) {
         if (!_isDetecting) return;
 
@@ -797,7 +880,8 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
           }
         }
 
-        if (isCurrentlyProcessing) {
+        // Höchstens ein Bild in Arbeit und eines wartend, damit Übertragung und Inferenz überlappen
+        if (nextFrameId - lastResultFrameId > 2) {
           droppedFrames++;
           return;
         }
@@ -812,33 +896,8 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
         }
         _lastFrameTime = now;
 
-        isCurrentlyProcessing = true;
-
-        NativeDetectionService.detectObjects(image,
-                isFrontCamera: _cameraDirection == CameraLensDirection.front)
-            .then((result) {
-          isCurrentlyProcessing = false;
-
-          if (!mounted) return;
-
-          if (result.error != null) {
-            print("⚠️ Erkennungsfehler: ${result.error}");
-          }
-
-          _handleDetectionResult(result);
-
-          if (_lastCameraImage != null) {
-            _detectSoccerBall();
-          }
-
-          if (_isDebugMode && totalFrames % 10 == 0) {
-            print(
-                "📊 STATS: FPS=$_fps, Verarbeitungszeit=${result.processingTimeMs}ms, Inferenz=${result.inferenceTimeMs}ms");
-          }
-        }).catchError((e) {
-          isCurrentlyProcessing = false;
-          print("🚨 Fehler während der Detektion: $e");
-        });
+        NativeDetectionService.submitFrame(image, nextFrameId++,
+            isFrontCamera: _cameraDirection == CameraLensDirection.front);
       });
 
       setState(() {
@@ -869,6 +928,10 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
       print("Fehler beim Stoppen der Bildaufnahme: $e");
     }
 
+    await NativeDetectionService.stopSession();
+    await _detectionSubscription?.cancel();
+    _detectionSubscription = null;
+
     if (_juggleCount > 0) {
       try {
         await DatabaseHelper.instance.addJuggleCount(_juggleCount);
@@ -912,6 +975,8 @@ class _EnhancedJuggleCounterPageState extends State<EnhancedJuggleCounterPage> {
       _ballHeightHistory.clear();
     });
 
+    NativeDetectionService.resetJuggleCounter();
+
     if (_isDebugMode) {
       print("🔄 Jonglierzähler zurückgesetzt");
     }
@@ -8,6 +8,7 @@ library;
 
 import 'dart:async';
 import 'dart:io';
+import 'dart:typed_data';
 import 'package:camera/camera.dart';
 import 'package:flutter/services.dart';
 import 'package:flutter/material.dart';
@@ -17,63 +18,182 @@ class NativeDetectionService {
       MethodChannel('com.example.footy_testing/detection');
   static const MethodChannel _ballChannel =
       MethodChannel('com.example.footy_testing/ball_detection');
+  static const EventChannel _eventChannel =
+      EventChannel('com.example.footy_testing/detection_events');
+
+  static Stream<CombinedDetectionResult>? _detectionEvents;
 
   static bool _modelsLoaded = false;
   static bool _ballModelLoaded = false;
 
+  // Schwellen für die Ballerkennung (Konfidenz und IoU der Non-Maximum-Suppression)
+  static const double _ballConfThreshold = 0.10;
+  static const double _ballIouThreshold = 0.45;
+
+  /// Lädt MoveNet und YOLOv8 gleichzeitig, beide Modelle werden nativ im Hintergrund
+  /// geladen und aufgewärmt.
+  ///
+  /// [smoothKeypoints] aktiviert die zeitliche Glättung der Keypoints (One-Euro-Filter),
+  /// [smoothingMinCutoff] und [smoothingBeta] überschreiben die nativen Standardwerte.
+  /// Das Backend wird nativ gemessen und pro Gerät gespeichert, [reprobeBackend] erzwingt
+  /// eine neue Messung. Mit [waitForBall] = false kehrt der Aufruf zurück, sobald MoveNet
+  /// bereit ist; detectAll liefert dann bis zum Ende des YOLO-Ladens nur die Pose.
+  /// [preprocessThreads] legt fest, auf wie viele Kerne die Bildvorverarbeitung je Modell
+  /// verteilt wird (nativ standardmäßig die Hälfte der Kerne, höchstens 4).
   static Future<bool> loadModels(
-      {bool useGpu = false, int retryCount = 1}) async {
-    try {
-      debugPrint('Lade Erkennungsmodelle, Versuche: $retryCount');
-
-      for (int i = 0; i < retryCount; i++) {
-        try {
-          debugPrint('MoveNet-Ladeversuch ${i + 1}/$retryCount');
-          final result = await _channel.invokeMethod('loadModels', {
-            'movenetModelPath': 'assets/movenet_lightning.tflite',
-            'useGpu': useGpu,
-          });
-
-          _modelsLoaded = result == true;
-          if (_modelsLoaded) break;
-        } catch (e) {
-          debugPrint(
-              'Fehler beim Laden des MoveNet-Modells (Versuch ${i + 1}): $e');
-          if (i == retryCount - 1) rethrow;
-          await Future.delayed(Duration(milliseconds: 500));
-        }
-      }
+      {bool useGpu = false,
+      int retryCount = 1,
+      bool smoothKeypoints = false,
+      double? smoothingMinCutoff,
+      double? smoothingBeta,
+      bool reprobeBackend = false,
+      bool waitForBall = true,
+      int? preprocessThreads}) async {
+    debugPrint('Lade Erkennungsmodelle parallel, Versuche: $retryCount');
 
-      for (int i = 0; i < retryCount; i++) {
-        try {
-          debugPrint(
-              'YOLOv8-Ladeversuch für Ballerkennung ${i + 1}/$retryCount');
-          final ballResult = await _ballChannel.invokeMethod('loadModels', {
-            'modelPath': 'assets/yolov8n_int8.tflite',
-            'labelsPath': 'assets/labels.txt',
-            'useGpu': useGpu,
-          });
-
-          _ballModelLoaded = ballResult == true;
-          if (_ballModelLoaded) break;
-        } catch (e) {
-          debugPrint(
-              'Fehler beim Laden des YOLOv8-Modells (Versuch ${i + 1}): $e');
-          if (i == retryCount - 1) rethrow;
-          await Future.delayed(Duration(milliseconds: 500));
-        }
+    final poseLoad = _loadWithRetry('MoveNet', retryCount, () {
+      return _channel.invokeMethod('loadModels', {
+        'movenetModelPath': 'assets/movenet_lightning.tflite',
+        'useGpu': useGpu,
+        'reprobeBackend': reprobeBackend,
+        'smoothing': smoothKeypoints,
+        if (smoothingMinCutoff != null)
+          'smoothingMinCutoff': smoothingMinCutoff,
+        if (smoothingBeta != null) 'smoothingBeta': smoothingBeta,
+        if (preprocessThreads != null) 'preprocessThreads': preprocessThreads,
+      });
+    });
+
+    final ballLoad = _loadWithRetry('YOLOv8', retryCount, () {
+      return _ballChannel.invokeMethod('loadModels', {
+        'modelPath': 'assets/yolov8n_int8.tflite',
+        'labelsPath': 'assets/labels.txt',
+        'useGpu': useGpu,
+        'reprobeBackend': reprobeBackend,
+        if (preprocessThreads != null) 'preprocessThreads': preprocessThreads,
+      });
+    }).then((loaded) {
+      _ballModelLoaded = loaded;
+      debugPrint('YOLOv8 bereit: $loaded');
+      return loaded;
+    });
+
+    _modelsLoaded = await poseLoad;
+    if (!waitForBall) {
+      debugPrint('MoveNet bereit: $_modelsLoaded, YOLOv8 lädt weiter');
+      return _modelsLoaded;
+    }
+
+    await ballLoad;
+    debugPrint(
+        'Modell-Ladeergebnis: MoveNet=$_modelsLoaded, YOLOv8Ball=$_ballModelLoaded');
+    return _modelsLoaded && _ballModelLoaded;
+  }
+
+  static Future<bool> _loadWithRetry(
+      String name, int retryCount, Future<dynamic> Function() load) async {
+    for (int i = 0; i < retryCount; i++) {
+      try {
+        debugPrint('$name-Ladeversuch ${i + 1}/$retryCount');
+        final result = await load();
+        if (result == true) return true;
+      } catch (e) {
+        debugPrint('Fehler beim Laden von $name (Versuch ${i + 1}): $e');
+      }
+      if (i < retryCount - 1) {
+        await Future.delayed(Duration(milliseconds: 500));
       }
+    }
+    return false;
+  }
 
-      final allModelsLoaded = _modelsLoaded && _ballModelLoaded;
-      debugPrint(
-          'Modell-Ladeergebnis: MoveNet=$_modelsLoaded, YOLOv8Ball=$_ballModelLoaded');
-      return allModelsLoaded;
+  /// Ladezustand beider Modelle: state (idle, loading, ready, failed), loadTimeMs,
+  /// warmupTimeMs und das gewählte Backend
+  static Future<Map<String, dynamic>> getModelStatus() async {
+    try {
+      final pose =
+          await _channel.invokeMapMethod<String, dynamic>('getModelStatus');
+      final ball =
+          await _ballChannel.invokeMapMethod<String, dynamic>('getModelStatus');
+      return {'pose': pose, 'ball': ball};
     } on PlatformException catch (e) {
-      debugPrint('Fehler beim Laden der Modelle: ${e.message}');
-      return false;
+      return {'error': e.message};
+    }
+  }
+
+  /// Nimmt alle Kamerabilder, die an die Erkennung gehen, in eine Datei auf.
+  /// Gibt den Pfad der Aufnahme zurück.
+  static Future<String?> startRecording({String? path}) async {
+    try {
+      return await _channel.invokeMethod<String>('startRecording', {
+        if (path != null) 'path': path,
+      });
+    } on PlatformException catch (e) {
+      debugPrint('Aufnahme konnte nicht gestartet werden: ${e.message}');
+      return null;
     }
   }
 
+  static Future<Map<String, dynamic>> stopRecording() async {
+    try {
+      return await _channel.invokeMapMethod<String, dynamic>('stopRecording') ??
+          {};
+    } on PlatformException catch (e) {
+      return {'error': e.message};
+    }
+  }
+
+  /// Spielt eine Aufnahme durch die Erkennung und liefert Durchsatz, Latenzen
+  /// und den Zählerstand. [mode] ist 'all', 'pose', 'ball' oder 'ballBatch'.
+  /// Mit 'ballBatch' läuft YOLO mit [batchSize] Bildern pro Inferenz, die
+  /// Ballerkennungen je Bild stehen mit Index und Zeitstempel unter 'results'.
+  /// Die Aufnahme läuft mit eigenen Interpretern und eigenem Zähler, eine
+  /// laufende Live-Erkennung wird nicht beeinflusst. Die Latenz-Regelung ist
+  /// dabei abgeschaltet, Zähler und Filter nutzen die aufgezeichneten Zeitstempel.
+  static Future<Map<String, dynamic>> replayCapture(String path,
+      {String mode = 'all',
+      int batchSize = 8,
+      bool realTime = false,
+      int? expectedCount,
+      bool motionGating = false}) async {
+    try {
+      return await _channel.invokeMapMethod<String, dynamic>('replayCapture', {
+            'path': path,
+            'mode': mode,
+            'realTime': realTime,
+            'batchSize': batchSize,
+            'motionGating': motionGating,
+            if (expectedCount != null) 'expectedCount': expectedCount,
+          }) ??
+          {};
+    } on PlatformException catch (e) {
+      return {'error': e.message};
+    }
+  }
+
+  /// Analysiert eine Aufnahme offline in einer Pipeline, in der Lesen,
+  /// Vorverarbeitung, Inferenz, Auswertung und Zählung überlappend auf eigenen
+  /// Threads laufen. Liefert Bilder/s, die Auslastung je Stufe unter 'stages'
+  /// sowie Zählerstand und Juggle-Ereignisse der Aufnahme.
+  static Future<Map<String, dynamic>> analyzeCapture(String path,
+      {double? referenceHeight}) async {
+    try {
+      return await _channel.invokeMapMethod<String, dynamic>('analyzeCapture', {
+            'path': path,
+            'confThreshold': _ballConfThreshold,
+            'iouThreshold': _ballIouThreshold,
+            if (referenceHeight != null) 'referenceHeight': referenceHeight,
+          }) ??
+          {};
+    } on PlatformException catch (e) {
+      return {'error': e.message};
+    }
+  }
+
+  static bool get isPoseModelLoaded => _modelsLoaded;
+
+  static bool get isBallModelLoaded => _ballModelLoaded;
+
   static Future<DetectionResult> detectObjects(CameraImage image,
       {bool isFrontCamera = false}) async {
     if (!_modelsLoaded) {
@@ -99,6 +219,7 @@ class NativeDetectionService {
 
       final Map<String, dynamic> arguments = {
         'imageBytes': image.planes[0].bytes,
+        'yRowStride': image.planes[0].bytesPerRow,
         'width': image.width,
         'height': image.height,
         'rotation': rotation,
@@ -134,6 +255,163 @@ class NativeDetectionService {
     }
   }
 
+  static Future<CombinedDetectionResult> detectAll(CameraImage image,
+      {bool isFrontCamera = false,
+      int ballInferenceStride = 1,
+      double targetLatencyMs = 0,
+      bool motionGating = false,
+      double? referenceHeight,
+      bool includeDetections = true,
+      bool packed = false}) async {
+    if (!_modelsLoaded) {
+      try {
+        final loaded = await loadModels();
+        if (!loaded) {
+          debugPrint('Modelle konnten nicht geladen werden');
+          return CombinedDetectionResult.empty();
+        }
+      } catch (e) {
+        debugPrint('Unerwarteter Fehler beim Laden der Modelle: $e');
+        return CombinedDetectionResult.empty();
+      }
+    }
+
+    try {
+      int rotation = 0;
+      if (Platform.isAndroid) {
+        rotation = isFrontCamera ? 270 : 90;
+      }
+
+      final Map<String, dynamic> arguments = {
+        'imageBytes': image.planes[0].bytes,
+        'yRowStride': image.planes[0].bytesPerRow,
+        'width': image.width,
+        'height': image.height,
+        'rotation': rotation,
+        'iouThreshold': _ballIouThreshold,
+        'confThreshold': _ballConfThreshold,
+        'inferenceStride': ballInferenceStride,
+        'targetLatencyMs': targetLatencyMs,
+        'motionGating': motionGating,
+        'includeDetections': includeDetections,
+        'packed': packed,
+        'isFrontCamera': isFrontCamera,
+      };
+
+      if (referenceHeight != null) {
+        arguments['referenceHeight'] = referenceHeight;
+      }
+
+      if (image.format.group == ImageFormatGroup.yuv420) {
+        if (image.planes.length >= 3) {
+          arguments['uPlane'] = image.planes[1].bytes;
+          arguments['vPlane'] = image.planes[2].bytes;
+          arguments['uvRowStride'] = image.planes[1].bytesPerRow;
+          arguments['uvPixelStride'] = image.planes[1].bytesPerPixel ?? 1;
+        }
+      }
+
+      final dynamic result = await _channel.invokeMethod('detectAll', arguments);
+
+      return CombinedDetectionResult.fromNative(result);
+    } on PlatformException catch (e) {
+      debugPrint('Fehler bei der kombinierten Erkennung: ${e.message}');
+      return CombinedDetectionResult.empty();
+    } catch (e) {
+      debugPrint('Unerwarteter Fehler bei der kombinierten Erkennung: $e');
+      return CombinedDetectionResult.empty();
+    }
+  }
+
+  /// Ergebnisse des Streaming-Modus, jeweils mit der Bild-ID aus [submitFrame]
+  static Stream<CombinedDetectionResult> get detectionEvents {
+    _detectionEvents ??= _eventChannel
+        .receiveBroadcastStream()
+        .map((event) => CombinedDetectionResult.fromNative(event));
+    return _detectionEvents!;
+  }
+
+  /// Startet eine Streaming-Sitzung. [mode] ist 'all', 'pose' oder 'ball'.
+  static Future<bool> startSession(
+      {String mode = 'all',
+      int ballInferenceStride = 1,
+      double targetLatencyMs = 0,
+      bool motionGating = false,
+      double? referenceHeight,
+      bool includeDetections = true,
+      bool packed = false}) async {
+    try {
+      final Map<String, dynamic> arguments = {
+        'mode': mode,
+        'packed': packed,
+        'iouThreshold': _ballIouThreshold,
+        'confThreshold': _ballConfThreshold,
+        'inferenceStride': ballInferenceStride,
+        'targetLatencyMs': targetLatencyMs,
+        'motionGating': motionGating,
+        'includeDetections': includeDetections,
+      };
+      if (referenceHeight != null) {
+        arguments['referenceHeight'] = referenceHeight;
+      }
+
+      final result = await _channel.invokeMethod('startSession', arguments);
+      return result == true;
+    } on PlatformException catch (e) {
+      debugPrint('Fehler beim Starten der Streaming-Sitzung: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Übergibt ein Bild an die laufende Sitzung. Das Ergebnis kommt über [detectionEvents].
+  static Future<void> submitFrame(CameraImage image, int frameId,
+      {bool isFrontCamera = false}) async {
+    try {
+      int rotation = 0;
+      if (Platform.isAndroid) {
+        rotation = isFrontCamera ? 270 : 90;
+      }
+
+      final Map<String, dynamic> arguments = {
+        'frameId': frameId,
+        'imageBytes': image.planes[0].bytes,
+        'yRowStride': image.planes[0].bytesPerRow,
+        'width': image.width,
+        'height': image.height,
+        'rotation': rotation,
+        'isFrontCamera': isFrontCamera,
+      };
+
+      if (image.format.group == ImageFormatGroup.yuv420 &&
+          image.planes.length >= 3) {
+        arguments['uPlane'] = image.planes[1].bytes;
+        arguments['vPlane'] = image.planes[2].bytes;
+        arguments['uvRowStride'] = image.planes[1].bytesPerRow;
+        arguments['uvPixelStride'] = image.planes[1].bytesPerPixel ?? 1;
+      }
+
+      await _channel.invokeMethod('submitFrame', arguments);
+    } on PlatformException catch (e) {
+      debugPrint('Fehler beim Übergeben des Bildes $frameId: ${e.message}');
+    }
+  }
+
+  static Future<void> stopSession() async {
+    try {
+      await _channel.invokeMethod('stopSession');
+    } on PlatformException catch (e) {
+      debugPrint('Fehler beim Beenden der Streaming-Sitzung: ${e.message}');
+    }
+  }
+
+  static Future<void> resetJuggleCounter() async {
+    try {
+      await _channel.invokeMethod('resetJuggleCounter');
+    } on PlatformException catch (e) {
+      debugPrint('Fehler beim Zurücksetzen des Jonglierzählers: ${e.message}');
+    }
+  }
+
   static Future<String> testConnection() async {
     try {
       final String result = await _channel.invokeMethod('getTestString');
@@ -143,6 +421,70 @@ class NativeDetectionService {
     }
   }
 
+  /// Gewählte Backends und Messwerte beider Modelle aus dem letzten loadModels
+  static Future<Map<String, dynamic>> getBackendInfo() async {
+    try {
+      final pose = await _channel.invokeMapMethod<String, dynamic>('getBackendInfo');
+      final ball =
+          await _ballChannel.invokeMapMethod<String, dynamic>('getBackendInfo');
+      return {'pose': pose, 'ball': ball};
+    } on PlatformException catch (e) {
+      return {'error': e.message};
+    }
+  }
+
+  /// Laufzeiten je Verarbeitungsschritt (p50/p90/p99/max in ms) sowie
+  /// verarbeitete und verworfene Bilder beider Helfer.
+  static Future<Map<String, dynamic>> getMetrics() async {
+    try {
+      final pose = await _channel.invokeMapMethod<String, dynamic>('getMetrics');
+      final ball =
+          await _ballChannel.invokeMapMethod<String, dynamic>('getMetrics');
+      return {'pose': pose, 'ball': ball};
+    } on PlatformException catch (e) {
+      return {'error': e.message};
+    }
+  }
+
+  static Future<void> resetMetrics() async {
+    try {
+      await _channel.invokeMethod('resetMetrics');
+      await _ballChannel.invokeMethod('resetMetrics');
+    } on PlatformException catch (e) {
+      debugPrint('Metriken konnten nicht zurückgesetzt werden: ${e.message}');
+    }
+  }
+
+  /// Schaltet den Trace der Bildverarbeitung ein oder aus. [capacity] ist
+  /// die Anzahl der Ereignisse im Ringpuffer.
+  static Future<bool> setTraceEnabled(bool enabled, {int? capacity}) async {
+    try {
+      return await _channel.invokeMethod<bool>('setTraceEnabled', {
+            'enabled': enabled,
+            if (capacity != null) 'capacity': capacity,
+          }) ??
+          false;
+    } on PlatformException catch (e) {
+      debugPrint('Trace konnte nicht umgeschaltet werden: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Liest die Trace-Ereignisse aus, mit [log] zusätzlich nach Logcat.
+  static Future<List<Map<String, dynamic>>> dumpTrace(
+      {bool clear = false, bool log = false}) async {
+    try {
+      final events = await _channel.invokeListMethod<Map<dynamic, dynamic>>(
+          'dumpTrace', {'clear': clear, 'log': log});
+      return (events ?? [])
+          .map((event) => Map<String, dynamic>.from(event))
+          .toList();
+    } on PlatformException catch (e) {
+      debugPrint('Trace konnte nicht gelesen werden: ${e.message}');
+      return [];
+    }
+  }
+
   static Future<Map<String, dynamic>> testBallDetection() async {
     try {
       if (!_modelsLoaded) {
@@ -195,7 +537,10 @@ class NativeDetectionService {
   }
 
   static Future<DetectionResult> detectBall(CameraImage image,
-      {bool isFrontCamera = false}) async {
+      {bool isFrontCamera = false,
+      int inferenceStride = 1,
+      double targetLatencyMs = 0,
+      bool motionGating = false}) async {
     if (!_ballModelLoaded) {
       try {
         final loaded = await loadModels();
@@ -217,9 +562,15 @@ class NativeDetectionService {
 
       final Map<String, dynamic> arguments = {
         'imageBytes': image.planes[0].bytes,
+        'yRowStride': image.planes[0].bytesPerRow,
         'width': image.width,
         'height': image.height,
         'rotation': rotation,
+        'iouThreshold': _ballIouThreshold,
+        'confThreshold': _ballConfThreshold,
+        'inferenceStride': inferenceStride,
+        'targetLatencyMs': targetLatencyMs,
+        'motionGating': motionGating,
         'isFrontCamera': isFrontCamera,
       };
 
@@ -273,12 +624,14 @@ class DetectedObject {
   final double confidence;
   final List<double> box;
   final List<Keypoint>? keypoints;
+  final bool predicted;
 
   DetectedObject({
     required this.tag,
     required this.confidence,
     required this.box,
     this.keypoints,
+    this.predicted = false,
   });
 
   @override
@@ -311,12 +664,18 @@ class DetectionResult {
   final int processingTimeMs;
   final String? error;
   final int inferenceTimeMs;
+  final bool dropped;
+  final int droppedFrames;
+  final OperatingPoint? operatingPoint;
 
   DetectionResult({
     required this.detections,
     required this.processingTimeMs,
     this.error,
     this.inferenceTimeMs = 0,
+    this.dropped = false,
+    this.droppedFrames = 0,
+    this.operatingPoint,
   });
 
   factory DetectionResult.empty() {
@@ -449,6 +808,7 @@ class DetectionResult {
               confidence: confidence,
               box: box,
               keypoints: keypoints,
+              predicted: detectionMap['predicted'] == true,
             ));
 
             debugPrint(
@@ -467,11 +827,20 @@ class DetectionResult {
           ? (map['inferenceTimeMs'] as int?) ?? 0
           : 0;
 
+      final bool dropped = map['dropped'] == true;
+
+      final int droppedFrames = map.containsKey('droppedFrames')
+          ? (map['droppedFrames'] as int?) ?? 0
+          : 0;
+
       return DetectionResult(
         detections: detections,
         processingTimeMs: processingTimeMs,
         inferenceTimeMs: inferenceTimeMs,
         error: map['error'] as String?,
+        dropped: dropped,
+        droppedFrames: droppedFrames,
+        operatingPoint: OperatingPoint.fromNative(map['operatingPoint']),
       );
     } catch (e) {
       debugPrint('Fehler beim Parsen des Erkennungsergebnisses: $e');
@@ -484,3 +853,258 @@ class DetectionResult {
     return 'DetectionResult{detections: ${detections.length}, processingTimeMs: $processingTimeMs, error: $error}';
   }
 }
+
+/// Aktuelle Stufe des LatencyGovernor: YOLO-Eingabegröße und Schrittweiten,
+/// mit denen die Ziel-Laufzeit (targetLatencyMs) eingehalten wird
+class OperatingPoint {
+  final int level;
+  final int inputSize;
+  final int ballStride;
+  final int poseStride;
+  final double? averageMs;
+
+  OperatingPoint({
+    required this.level,
+    required this.inputSize,
+    required this.ballStride,
+    required this.poseStride,
+    this.averageMs,
+  });
+
+  static OperatingPoint? fromNative(dynamic value) {
+    if (value is! Map) return null;
+    return OperatingPoint(
+      level: (value['level'] as num?)?.toInt() ?? 0,
+      inputSize: (value['inputSize'] as num?)?.toInt() ?? 0,
+      ballStride: (value['ballStride'] as num?)?.toInt() ?? 1,
+      poseStride: (value['poseStride'] as num?)?.toInt() ?? 1,
+      averageMs: (value['averageMs'] as num?)?.toDouble(),
+    );
+  }
+
+  @override
+  String toString() {
+    return 'OperatingPoint{level: $level, inputSize: $inputSize, ballStride: $ballStride, poseStride: $poseStride}';
+  }
+}
+
+class JuggleEvent {
+  final int timestampMs;
+  final int method;
+  final double confidence;
+  final int count;
+
+  JuggleEvent({
+    required this.timestampMs,
+    required this.method,
+    required this.confidence,
+    required this.count,
+  });
+
+  factory JuggleEvent.fromMap(Map<dynamic, dynamic> map) {
+    return JuggleEvent(
+      timestampMs: (map['timestampMs'] as num?)?.toInt() ?? 0,
+      method: (map['method'] as num?)?.toInt() ?? 0,
+      confidence: (map['confidence'] as num?)?.toDouble() ?? 0.0,
+      count: (map['count'] as num?)?.toInt() ?? 0,
+    );
+  }
+
+  @override
+  String toString() {
+    return 'JuggleEvent{count: $count, method: $method, confidence: $confidence}';
+  }
+}
+
+class CombinedDetectionResult {
+  final DetectionResult pose;
+  final DetectionResult ball;
+  final int? juggleCount;
+  final List<JuggleEvent> juggleEvents;
+  final int? frameId;
+
+  /// Pose des letzten MoveNet-Durchlaufs, auf diesem Bild wurde sie übersprungen
+  final bool poseReused;
+
+  /// Keine Bewegung seit der letzten Inferenz, Pose und Ball wurden übernommen
+  final bool motionIdle;
+  final OperatingPoint? operatingPoint;
+
+  CombinedDetectionResult({
+    required this.pose,
+    required this.ball,
+    this.juggleCount,
+    this.juggleEvents = const [],
+    this.frameId,
+    this.poseReused = false,
+    this.motionIdle = false,
+    this.operatingPoint,
+  });
+
+  factory CombinedDetectionResult.empty() {
+    return CombinedDetectionResult(
+      pose: DetectionResult.empty(),
+      ball: DetectionResult.empty(),
+    );
+  }
+
+  /// Akzeptiert beide Antwortformate: Map oder kompaktes Float32List (siehe [PackedResult])
+  factory CombinedDetectionResult.fromNative(dynamic result) {
+    if (result is Float32List) {
+      return PackedResult.decode(result);
+    }
+    if (result is Map) {
+      return CombinedDetectionResult.fromMap(Map<String, dynamic>.from(result));
+    }
+    return CombinedDetectionResult.empty();
+  }
+
+  factory CombinedDetectionResult.fromMap(Map<String, dynamic> map) {
+    final DetectionResult pose = DetectionResult.fromMap(map);
+    final DetectionResult ball = DetectionResult.fromMap({
+      'detections': map['ballDetections'],
+      'processingTimeMs': map['ballProcessingTimeMs'],
+      'error': map['error'],
+      'dropped': map['dropped'],
+    });
+
+    final List<JuggleEvent> juggleEvents = [];
+    final dynamic eventsValue = map['juggleEvents'];
+    if (eventsValue is List) {
+      for (var event in eventsValue) {
+        if (event is Map) {
+          juggleEvents.add(JuggleEvent.fromMap(event));
+        }
+      }
+    }
+
+    return CombinedDetectionResult(
+      pose: pose,
+      ball: ball,
+      juggleCount: (map['juggleCount'] as num?)?.toInt(),
+      juggleEvents: juggleEvents,
+      frameId: (map['frameId'] as num?)?.toInt(),
+      poseReused: map['poseReused'] == true,
+      motionIdle: map['motionIdle'] == true,
+      operatingPoint: OperatingPoint.fromNative(map['operatingPoint']),
+    );
+  }
+
+  @override
+  String toString() {
+    return 'CombinedDetectionResult{pose: $pose, ball: $ball, juggleCount: $juggleCount}';
+  }
+}
+
+/// Kompaktes Ergebnisformat der kombinierten Erkennung. Muss mit PackedResult.java übereinstimmen.
+class PackedResult {
+  static const int version = 2;
+
+  static const int flagPose = 1;
+  static const int flagBall = 2;
+  static const int flagBallPredicted = 4;
+  static const int flagPoseReused = 8;
+  static const int flagMotionIdle = 16;
+
+  static const int _flags = 1;
+  static const int _frameId = 2;
+  static const int _processingTime = 3;
+  static const int _poseInferenceTime = 4;
+  static const int _ballTime = 5;
+  static const int _juggleCount = 6;
+  static const int _personBox = 7;
+  static const int _keypoints = 11;
+  static const int _keypointCount = 17;
+  static const int _ballBox = _keypoints + _keypointCount * 3;
+  static const int _ballScore = _ballBox + 4;
+  static const int _operatingPoint = _ballScore + 1;
+  static const int _eventCount = _operatingPoint + 4;
+  static const int _events = _eventCount + 1;
+  static const int _eventSize = 4;
+
+  static const List<String> keypointNames = [
+    'nose', 'left_eye', 'right_eye', 'left_ear', 'right_ear',
+    'left_shoulder', 'right_shoulder', 'left_elbow', 'right_elbow',
+    'left_wrist', 'right_wrist', 'left_hip', 'right_hip',
+    'left_knee', 'right_knee', 'left_ankle', 'right_ankle',
+  ];
+
+  static CombinedDetectionResult decode(Float32List packed) {
+    if (packed.length < _events || packed[0].toInt() != version) {
+      debugPrint('Unbekanntes Ergebnisformat: Version ${packed.isNotEmpty ? packed[0] : '-'}');
+      return CombinedDetectionResult.empty();
+    }
+
+    final int flags = packed[_flags].toInt();
+    final int processingTimeMs = packed[_processingTime].toInt();
+
+    final List<DetectedObject> poseDetections = [];
+    if (flags & flagPose != 0) {
+      final List<Keypoint> keypoints = [];
+      for (int i = 0; i < _keypointCount; i++) {
+        final int o = _keypoints + i * 3;
+        keypoints.add(Keypoint(
+          name: keypointNames[i],
+          x: packed[o],
+          y: packed[o + 1],
+          score: packed[o + 2],
+        ));
+      }
+      poseDetections.add(DetectedObject(
+        tag: 'person',
+        confidence: 1.0,
+        box: packed.sublist(_personBox, _personBox + 4).toList(),
+        keypoints: keypoints,
+      ));
+    }
+
+    final List<DetectedObject> ballDetections = [];
+    if (flags & flagBall != 0) {
+      ballDetections.add(DetectedObject(
+        tag: 'soccer_ball',
+        confidence: packed[_ballScore],
+        box: packed.sublist(_ballBox, _ballBox + 4).toList(),
+        predicted: flags & flagBallPredicted != 0,
+      ));
+    }
+
+    final int now = DateTime.now().millisecondsSinceEpoch;
+    final int eventCount = packed[_eventCount].toInt();
+    final List<JuggleEvent> events = [];
+    for (int i = 0; i < eventCount; i++) {
+      final int o = _events + i * _eventSize;
+      if (o + _eventSize > packed.length) break;
+      events.add(JuggleEvent(
+        method: packed[o].toInt(),
+        confidence: packed[o + 1],
+        count: packed[o + 2].toInt(),
+        timestampMs: now - packed[o + 3].toInt(),
+      ));
+    }
+
+    final int frameId = packed[_frameId].toInt();
+
+    return CombinedDetectionResult(
+      pose: DetectionResult(
+        detections: poseDetections,
+        processingTimeMs: processingTimeMs,
+        inferenceTimeMs: packed[_poseInferenceTime].toInt(),
+      ),
+      ball: DetectionResult(
+        detections: ballDetections,
+        processingTimeMs: packed[_ballTime].toInt(),
+      ),
+      juggleCount: packed[_juggleCount].toInt(),
+      juggleEvents: events,
+      frameId: frameId >= 0 ? frameId : null,
+      poseReused: flags & flagPoseReused != 0,
+      motionIdle: flags & flagMotionIdle != 0,
+      operatingPoint: OperatingPoint(
+        level: packed[_operatingPoint].toInt(),
+        inputSize: packed[_operatingPoint + 1].toInt(),
+        ballStride: packed[_operatingPoint + 2].toInt(),
+        poseStride: packed[_operatingPoint + 3].toInt(),
+      ),
+    );
+  }
+}